@@ -0,0 +1,94 @@
+package ataxx;
+
+import java.util.List;
+
+/** The result of analyzing a position to some depth: the value of each
+ *  legal move and the principal variation.  Values are from Red's point
+ *  of view, as for Searcher.  Analyses are immutable, so that one thread
+ *  may publish them while another displays them.
+ *  @author Carson Trinh
+ */
+class Analysis {
+
+    /** The analysis of the position with Zobrist key KEY, with PLAYER to
+     *  move, to DEPTH, in which MOVES[k] has value SCORES[k] and the
+     *  principal variation is PV, having visited NODES positions. */
+    Analysis(long key, PieceColor player, int depth, Move[] moves,
+             int[] scores, List<Move> pv, long nodes) {
+        _key = key;
+        _player = player;
+        _depth = depth;
+        _moves = moves.clone();
+        _scores = scores.clone();
+        _pv = List.copyOf(pv);
+        _nodes = nodes;
+    }
+
+    /** Return the Zobrist key of the position analyzed. */
+    long key() {
+        return _key;
+    }
+
+    /** Return the player to move in the position analyzed. */
+    PieceColor player() {
+        return _player;
+    }
+
+    /** Return the depth to which each move was searched. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the number of moves analyzed. */
+    int numMoves() {
+        return _moves.length;
+    }
+
+    /** Return move #K. */
+    Move move(int k) {
+        return _moves[k];
+    }
+
+    /** Return the value of move #K. */
+    int score(int k) {
+        return _scores[k];
+    }
+
+    /** Return the principal variation: the best line of play found,
+     *  starting with the best move. */
+    List<Move> pv() {
+        return _pv;
+    }
+
+    /** Return the value of the position: that of its best move. */
+    int score() {
+        int sense = _player == PieceColor.RED ? 1 : -1;
+        int best = -sense * Searcher.INFTY;
+        for (int score : _scores) {
+            if (sense * score > sense * best) {
+                best = score;
+            }
+        }
+        return best;
+    }
+
+    /** Return the number of positions visited to reach this depth. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Zobrist key of the position. */
+    private final long _key;
+    /** Player to move. */
+    private final PieceColor _player;
+    /** Search depth. */
+    private final int _depth;
+    /** The legal moves. */
+    private final Move[] _moves;
+    /** Values of _moves. */
+    private final int[] _scores;
+    /** Principal variation. */
+    private final List<Move> _pv;
+    /** Positions visited. */
+    private final long _nodes;
+}
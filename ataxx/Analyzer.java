@@ -0,0 +1,195 @@
+package ataxx;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/** Batch analysis of positions.  An Analyzer reads positions, one per
+ *  line in the notation of Board.setPosition, hands them to a fixed pool
+ *  of worker threads, and writes one line per position as each search
+ *  completes:
+ *
+ *      N MOVE SCORE DEPTH NODES
+ *
+ *  where N is the position's line number in the input, MOVE is the best
+ *  move ("-" for a pass, "none" if the game is over), and SCORE is from
+ *  Red's point of view.  A position that cannot be read or analyzed
+ *  yields the line "N error MESSAGE".  Blank lines and '#' comments are
+ *  skipped.
+ *
+ *  Input is read only as fast as the workers consume it, and each worker
+ *  keeps its own Board and Searcher (with its transposition table) for
+ *  its whole run, so memory use does not grow with the size of the input.
+ *  @author Carson Trinh
+ */
+class Analyzer {
+
+    /** An Analyzer that reads positions from INPUT and writes results to
+     *  OUTPUT, searching each to DEPTH on THREADS worker threads. */
+    Analyzer(Reader input, Writer output, int threads, int depth) {
+        _input = new BufferedReader(input, IO_BUFFER_SIZE);
+        _output = new BufferedWriter(output, IO_BUFFER_SIZE);
+        _threads = threads;
+        _depth = depth;
+        _queue = new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD);
+    }
+
+    /** Analyze every position on my input, returning the number of
+     *  positions read. */
+    long run() throws IOException {
+        Thread[] workers = new Thread[_threads];
+        for (int i = 0; i < _threads; i += 1) {
+            workers[i] = new Thread(this::work, "analyzer-" + i);
+            workers[i].start();
+        }
+        long count = 0;
+        try {
+            long lineNum = 0;
+            while (true) {
+                String line = _input.readLine();
+                if (line == null) {
+                    break;
+                }
+                lineNum += 1;
+                int comment = line.indexOf('#');
+                if (comment != -1) {
+                    line = line.substring(0, comment);
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                put(new Job(lineNum, line), workers);
+                count += 1;
+            }
+            for (int i = 0; i < _threads; i += 1) {
+                put(END, workers);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+        }
+        synchronized (_output) {
+            _output.flush();
+        }
+        if (_failure != null) {
+            throw _failure;
+        }
+        return count;
+    }
+
+    /** Add JOB to _queue, waiting for space, and throwing an exception if
+     *  all of WORKERS have died, so that none ever will be. */
+    private void put(Job job, Thread[] workers)
+        throws IOException, InterruptedException {
+        while (!_queue.offer(job, LIVENESS_INTERVAL, TimeUnit.MILLISECONDS)) {
+            boolean alive = false;
+            for (Thread worker : workers) {
+                alive |= worker.isAlive();
+            }
+            if (!alive) {
+                throw new IOException("all analysis threads failed");
+            }
+        }
+    }
+
+    /** Body of a worker thread: analyze positions from _queue until
+     *  receiving END. */
+    private void work() {
+        Board board = new Board();
+        Searcher searcher =
+            new Searcher(new TranspositionTable(WORKER_TABLE_SIZE));
+        StringBuilder result = new StringBuilder();
+        try {
+            while (true) {
+                Job job = _queue.take();
+                if (job == END) {
+                    return;
+                }
+                result.setLength(0);
+                result.append(job._lineNum).append(' ');
+                try {
+                    board.setPosition(job._position);
+                    Move best = searcher.findMove(board, _depth);
+                    result.append(best == null ? "none" : best.toString())
+                        .append(' ').append(searcher.score())
+                        .append(' ').append(searcher.depth())
+                        .append(' ').append(searcher.nodes());
+                } catch (GameException excp) {
+                    result.append("error ").append(excp.getMessage());
+                } catch (RuntimeException excp) {
+                    result.append("error ").append(excp);
+                }
+                result.append('\n');
+                write(result);
+            }
+        } catch (InterruptedException excp) {
+            return;
+        }
+    }
+
+    /** Write TEXT to my output.  The output is flushed whenever no work
+     *  is waiting, so that results appear promptly when the input arrives
+     *  slowly, but are written in large blocks when it does not. */
+    private void write(CharSequence text) {
+        synchronized (_output) {
+            try {
+                _output.append(text);
+                if (_queue.isEmpty()) {
+                    _output.flush();
+                }
+            } catch (IOException excp) {
+                _failure = excp;
+            }
+        }
+    }
+
+    /** A position to analyze. */
+    private static class Job {
+        /** The position POSITION, found at line LINENUM of the input. */
+        Job(long lineNum, String position) {
+            _lineNum = lineNum;
+            _position = position;
+        }
+
+        /** Input line number. */
+        private final long _lineNum;
+        /** Position in Board.setPosition notation. */
+        private final String _position;
+    }
+
+    /** Marks the end of input for one worker. */
+    private static final Job END = new Job(0, null);
+
+    /** Time between checks that workers are alive while waiting to
+     *  queue a position (milliseconds). */
+    private static final long LIVENESS_INTERVAL = 1000;
+    /** Number of queued positions allowed per worker. */
+    private static final int QUEUE_PER_THREAD = 64;
+    /** Log base 2 of each worker's transposition table size. */
+    private static final int WORKER_TABLE_SIZE = 18;
+    /** Size of input and output buffers (chars). */
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    /** Source of positions. */
+    private final BufferedReader _input;
+    /** Destination of results. */
+    private final BufferedWriter _output;
+    /** Number of worker threads. */
+    private final int _threads;
+    /** Search depth. */
+    private final int _depth;
+    /** Positions waiting for a worker. */
+    private final BlockingQueue<Job> _queue;
+    /** First output failure, if any. */
+    private volatile IOException _failure;
+}
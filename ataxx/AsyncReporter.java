@@ -0,0 +1,205 @@
+package ataxx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Formatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/** A Reporter that writes messages to an OutputStream from a dedicated
+ *  thread.  Callers format each message into one of a fixed set of
+ *  reusable buffers and hand it to the writer thread, which writes
+ *  messages in batches.  Output is flushed after outcome messages and
+ *  prompts, when close() is called, and otherwise at most FLUSH_INTERVAL
+ *  milliseconds after it is written.  If the writer falls behind so that
+ *  all buffers are in use, callers wait for one to be freed.  Once
+ *  writing fails, the output is abandoned and later messages are
+ *  dropped.
+ *  @author Carson Trinh
+ */
+class AsyncReporter implements Reporter {
+
+    /** Kinds of message. */
+    static final int ERROR = 0, OUTCOME = 1, MOVE = 2, PROMPT = 3;
+    /** Kinds of message reporting a move made, with arguments (side,
+     *  move), and the end of a game, with argument (winner). */
+    static final int MOVE_MADE = 4, GAME_OVER = 5;
+
+    /** A Reporter that writes to OUT. */
+    AsyncReporter(OutputStream out) {
+        _out = new BufferedWriter(
+            new OutputStreamWriter(out, StandardCharsets.UTF_8),
+            OUTPUT_BUFFER_SIZE);
+        _free = new ArrayBlockingQueue<>(NUM_BUFFERS);
+        _full = new ArrayBlockingQueue<>(NUM_BUFFERS + 1);
+        for (int i = 0; i < NUM_BUFFERS; i += 1) {
+            _free.add(new Message());
+        }
+        _writer = new Thread(this::writeMessages, "reporter");
+        _writer.setDaemon(true);
+        _writer.start();
+    }
+
+    @Override
+    public void errMsg(String format, Object... args) {
+        report(ERROR, false, format, args);
+    }
+
+    @Override
+    public void outcomeMsg(String format, Object... args) {
+        report(OUTCOME, true, format, args);
+    }
+
+    @Override
+    public void moveMsg(String format, Object... args) {
+        report(MOVE, false, format, args);
+    }
+
+    @Override
+    public void promptMsg(String prompt) {
+        report(PROMPT, true, "%s", prompt);
+    }
+
+    @Override
+    public void gameOver(PieceColor winner) {
+        if (winner == null) {
+            report(GAME_OVER, true, "Draw.", winner);
+        } else {
+            report(GAME_OVER, true, "%s wins.", winner);
+        }
+    }
+
+    /** Write all pending output and stop the writer thread.  No messages
+     *  may be reported afterwards. */
+    void close() {
+        try {
+            _full.put(CLOSE);
+            _writer.join();
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Append the text of a message of kind KIND, formed from FORMAT and
+     *  ARGS as for String.format, to OUT, which writes to TEXT.  If
+     *  nothing is appended, the message is dropped.  Messages of kinds
+     *  MOVE_MADE and GAME_OVER also carry the arguments given for those
+     *  kinds, whether or not FORMAT uses them. */
+    void render(Formatter out, StringBuilder text, int kind,
+                String format, Object... args) {
+        out.format(format, args);
+        if (kind != PROMPT) {
+            text.append(NEWLINE);
+        }
+    }
+
+    /** Queue a message of kind KIND formed from FORMAT and ARGS for
+     *  writing, flushing it promptly iff FLUSH. */
+    void report(int kind, boolean flush, String format,
+                        Object... args) {
+        if (_failed) {
+            return;
+        }
+        try {
+            Message msg = _free.take();
+            msg._text.setLength(0);
+            render(msg._formatter, msg._text, kind, format, args);
+            msg._flush = flush;
+            _full.put(msg);
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Body of the writer thread. */
+    private void writeMessages() {
+        boolean dirty = false;
+        try {
+            while (true) {
+                Message msg = dirty
+                    ? _full.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS)
+                    : _full.take();
+                if (msg == null || msg == CLOSE) {
+                    _out.flush();
+                    dirty = false;
+                    if (msg == CLOSE) {
+                        return;
+                    }
+                    continue;
+                }
+                boolean flush = false;
+                do {
+                    try {
+                        _out.append(msg._text);
+                    } finally {
+                        _free.add(msg);
+                    }
+                    flush |= msg._flush;
+                    msg = _full.peek() == CLOSE ? null : _full.poll();
+                } while (msg != null);
+                if (flush) {
+                    _out.flush();
+                    dirty = false;
+                } else {
+                    dirty = true;
+                }
+            }
+        } catch (IOException excp) {
+            _failed = true;
+            discardMessages();
+        } catch (InterruptedException excp) {
+            _failed = true;
+        }
+    }
+
+    /** Return the buffers of all messages queued by callers that have
+     *  not yet seen that the output failed, until close() is called. */
+    private void discardMessages() {
+        try {
+            Message msg;
+            while ((msg = _full.take()) != CLOSE) {
+                _free.add(msg);
+            }
+        } catch (InterruptedException excp) {
+            return;
+        }
+    }
+
+    /** A reusable message buffer. */
+    private static class Message {
+        /** Message text. */
+        private final StringBuilder _text = new StringBuilder();
+        /** Formats into _text. */
+        private final Formatter _formatter = new Formatter(_text);
+        /** True iff output should be flushed after this message. */
+        private boolean _flush;
+    }
+
+    /** Marks the end of output. */
+    private static final Message CLOSE = new Message();
+
+    /** Number of message buffers. */
+    private static final int NUM_BUFFERS = 256;
+    /** Maximum delay before written output is flushed (msec). */
+    private static final long FLUSH_INTERVAL = 20;
+    /** Size of the output buffer (chars). */
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    /** Line separator. */
+    private static final String NEWLINE = System.lineSeparator();
+
+    /** Destination of output. */
+    private final Writer _out;
+    /** Message buffers available to callers. */
+    private final BlockingQueue<Message> _free;
+    /** Messages waiting to be written. */
+    private final BlockingQueue<Message> _full;
+    /** The writer thread. */
+    private final Thread _writer;
+    /** True once writing has failed. */
+    private volatile boolean _failed;
+}
@@ -5,8 +5,12 @@ import ucb.gui2.Pad;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.BasicStroke;
-import java.util.Observer;
-import java.util.Observable;
+import java.awt.Rectangle;
+import java.awt.Font;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.EnumMap;
+import javax.swing.Timer;
 
 import java.awt.event.MouseEvent;
 
@@ -15,7 +19,7 @@ import static ataxx.PieceColor.*;
 /** Widget for displaying an Ataxx board.
  *  @author Carson Trinh
  */
-class AtaxxBoardWidget extends Pad implements Observer {
+class AtaxxBoardWidget extends Pad {
 
     /** Length of side of one square, in pixels. */
     static final int SQDIM = 50;
@@ -43,43 +47,123 @@ class AtaxxBoardWidget extends Pad implements Observer {
     private static final BasicStroke LINE_STROKE = new BasicStroke(1.0f);
 
     /** Model being displayed. */
-    private static Board _model;
+    private final Board _model;
 
     /** A new widget displaying MODEL. */
     AtaxxBoardWidget(Board model) {
         _model = model;
         setMouseHandler("click", this::readMove);
-        _model.addObserver(this);
+        _model.addListener(this::modelChanged);
         _dim = SQDIM * SIDE;
         setPreferredSize(_dim, _dim);
+        for (char c = 'a'; c < 'a' + SIDE; c += 1) {
+            for (char r = '1'; r < '1' + SIDE; r += 1) {
+                _shown[cell(c, r)] = _model.get(c, r);
+            }
+        }
+        _frameTimer = new Timer(FRAME_MILLIS, (e) -> repaintChanges());
+        _frameTimer.setRepeats(false);
     }
 
     @Override
-    public synchronized void paintComponent(Graphics2D g) {
-        g.setColor(BLANK_COLOR);
-        g.fillRect(0, 0, _dim, _dim);
+    public void paintComponent(Graphics2D g) {
+        Rectangle clip = g.getClipBounds();
+        PieceColor[] shown;
+        synchronized (this) {
+            shown = _shown.clone();
+        }
+        for (char c = 'a'; c < 'a' + SIDE; c += 1) {
+            for (char r = '1'; r < '1' + SIDE; r += 1) {
+                int x0 = (c - 'a') * SQDIM;
+                int y0 = (SIDE - (r - '1')) * SQDIM;
+                if (clip == null
+                    || clip.intersects(x0, y0 - SQDIM, SQDIM + 1, SQDIM + 1)) {
+                    g.drawImage(cellImage(shown[cell(c, r)]), x0, y0 - SQDIM,
+                                null);
+                }
+            }
+        }
+        LiveAnalysis live = _analysis;
+        Analysis analysis = live == null ? null : live.current();
+        if (analysis != null && analysis.key() == _model.key()) {
+            drawAnalysis(g, analysis);
+        }
+    }
 
-        int n = SIDE;
-        int D = SQDIM;
+    /** Show the analysis of the current position by LIVE over the board,
+     *  or stop showing analysis if LIVE is null.  LIVE should repaint me
+     *  whenever its analysis changes. */
+    void setAnalysis(LiveAnalysis live) {
+        _analysis = live;
+        me.repaint();
+    }
 
-        for (char c = 'a'; c < 'a' + n; c += 1) {
-            for (char r = '1'; r < '1' + n; r += 1) {
-                int x0 = (c - 'a') * SQDIM;
-                int y0 = (n - (r - '1')) * SQDIM;
-                if (_model.get(c, r) == RED) {
-                    drawPiece(g, x0, y0, RED);
-                } else if (_model.get(c, r) == BLUE) {
-                    drawPiece(g, x0, y0, BLUE);
-                } else if (_model.get(c, r) == BLOCKED) {
-                    drawBlock(g, x0, y0);
-                } else {
-                    g.setColor(BLANK_COLOR);
+    /** Draw ANALYSIS on G: shade each square that can be moved to from
+     *  red (worst for the player to move) to green (best) according to
+     *  the value of the best move there, and mark the moves of the
+     *  principal variation with numbered lines. */
+    private static void drawAnalysis(Graphics2D g, Analysis analysis) {
+        int sense = analysis.player() == RED ? 1 : -1;
+        long[] best = new long[SIDE * SIDE];
+        Arrays.fill(best, Long.MIN_VALUE);
+        long lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+        for (int k = 0; k < analysis.numMoves(); k += 1) {
+            Move move = analysis.move(k);
+            if (move.isPass()) {
+                continue;
+            }
+            long v = (long) sense * analysis.score(k);
+            int sq = cell(move.col1(), move.row1());
+            best[sq] = Math.max(best[sq], v);
+            lo = Math.min(lo, v);
+            hi = Math.max(hi, v);
+        }
+        g.setFont(SCORE_FONT);
+        for (char c = 'a'; c < 'a' + SIDE; c += 1) {
+            for (char r = '1'; r < '1' + SIDE; r += 1) {
+                long v = best[cell(c, r)];
+                if (v == Long.MIN_VALUE) {
+                    continue;
                 }
-                drawQuad(g, x0, y0, 0,
-                        x0 + D, y0, 0,
-                        x0 + D, y0 - D, 0,
-                        x0, y0 - D, 0);
+                float t = hi == lo ? 1.0f : (float) (v - lo) / (hi - lo);
+                int x0 = (c - 'a') * SQDIM;
+                int y0 = (SIDE - (r - '1')) * SQDIM - SQDIM;
+                g.setColor(new Color(1.0f - t, t, 0.0f, HEAT_ALPHA));
+                g.fillRect(x0 + 1, y0 + 1, SQDIM - 1, SQDIM - 1);
+                g.setColor(LINE);
+                g.drawString(scoreText(v), x0 + 3, y0 + SQDIM - 3);
+            }
+        }
+        g.setStroke(PV_STROKE);
+        int n = 0;
+        for (Move move : analysis.pv()) {
+            n += 1;
+            if (move.isPass()) {
+                continue;
             }
+            int x0 = (move.col0() - 'a') * SQDIM + SQDIM / 2,
+                y0 = (SIDE - (move.row0() - '1')) * SQDIM - SQDIM / 2,
+                x1 = (move.col1() - 'a') * SQDIM + SQDIM / 2,
+                y1 = (SIDE - (move.row1() - '1')) * SQDIM - SQDIM / 2;
+            g.setColor(PV_COLOR);
+            g.drawLine(x0, y0, x1, y1);
+            g.fillOval(x1 - PV_DOT, y1 - PV_DOT, 2 * PV_DOT, 2 * PV_DOT);
+            g.setColor(BLANK_COLOR);
+            g.drawString(Integer.toString(n), x1 - PV_DOT / 2,
+                         y1 + PV_DOT / 2);
+        }
+        g.setStroke(LINE_STROKE);
+    }
+
+    /** Return the text showing value V of a move for the player making
+     *  it. */
+    private static String scoreText(long v) {
+        if (v >= Searcher.WINNING_VALUE) {
+            return "win";
+        } else if (v <= -Searcher.WINNING_VALUE) {
+            return "loss";
+        } else {
+            return Long.toString(v);
         }
     }
 
@@ -96,14 +180,14 @@ class AtaxxBoardWidget extends Pad implements Observer {
     }
 
     /** Draw a block centered at (CX, CY) on G. */
-    void drawBlock(Graphics2D g, int cx, int cy) {
+    static void drawBlock(Graphics2D g, int cx, int cy) {
         g.setColor(BLOCK_COLOR);
         g.fillRect(cx, cy, SQDIM, SQDIM);
     }
 
 
     /** Draw a circle centered at (CX, CY) on G for PLAYER. */
-    void drawPiece(Graphics2D g, int cx, int cy, PieceColor player) {
+    static void drawPiece(Graphics2D g, int cx, int cy, PieceColor player) {
         if (player == RED) {
             g.setColor(RED_COLOR);
         }
@@ -131,26 +215,124 @@ class AtaxxBoardWidget extends Pad implements Observer {
         }
     }
 
-    @Override
-    public synchronized void update(Observable model, Object arg) {
-        repaint();
+    /** Note the squares changed by EVENT, and arrange to repaint them
+     *  at the end of the current frame. */
+    private synchronized void modelChanged(BoardEvent event) {
+        if (event.kind() == BoardEvent.Kind.RESET) {
+            _dirty = ALL_CELLS;
+        } else {
+            for (int k = 0; k < event.numChanges(); k += 1) {
+                _dirty |= 1L << cell(event.col(k), event.row(k));
+            }
+        }
+        if (_dirty != 0 && !_frameTimer.isRunning()) {
+            _frameTimer.start();
+        }
+    }
+
+    /** Repaint the squares whose contents have changed since they were
+     *  last painted.  Called on the event thread at most once per frame,
+     *  however many changes to the model there have been. */
+    private void repaintChanges() {
+        long dirty;
+        synchronized (this) {
+            dirty = _dirty;
+            _dirty = 0;
+        }
+        for (char c = 'a'; c < 'a' + SIDE; c += 1) {
+            for (char r = '1'; r < '1' + SIDE; r += 1) {
+                if ((dirty & (1L << cell(c, r))) == 0) {
+                    continue;
+                }
+                PieceColor v = _model.get(c, r);
+                synchronized (this) {
+                    if (_shown[cell(c, r)] == v) {
+                        continue;
+                    }
+                    _shown[cell(c, r)] = v;
+                }
+                int x0 = (c - 'a') * SQDIM;
+                int y0 = (SIDE - (r - '1')) * SQDIM;
+                me.repaint(x0, y0 - SQDIM, SQDIM + 1, SQDIM + 1);
+            }
+        }
     }
 
-    /** Draw outlined and filled quadrilateral on G at coplanar points
-     *  (P[0], P[1], P[2]), ..., (P[9], P[10], P[11]). */
-    private void drawQuad(Graphics2D g, Integer... P) {
-        int[] xpoints = new int[4];
-        int[] ypoints = new int[4];
+    /** Return the index of square C R in _shown. */
+    private static int cell(char c, char r) {
+        return (r - '1') * SIDE + (c - 'a');
+    }
 
-        for (int i = 0; i < 4; i += 1) {
-            xpoints[i] = P[i * 3];
-            ypoints[i] = P[i * 3 + 1];
+    /** Return the image of a square containing V, including its
+     *  outline, with its upper-left corner at (0, 0). */
+    private static BufferedImage cellImage(PieceColor v) {
+        synchronized (CELL_IMAGES) {
+            BufferedImage image = CELL_IMAGES.get(v);
+            if (image == null) {
+                image = new BufferedImage(SQDIM + 1, SQDIM + 1,
+                                          BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = image.createGraphics();
+                if (v == RED || v == BLUE) {
+                    drawPiece(g, 0, SQDIM, v);
+                } else if (v == BLOCKED) {
+                    drawBlock(g, 0, SQDIM);
+                } else {
+                    g.setColor(BLANK_COLOR);
+                }
+                drawQuad(g, 0, SQDIM, SQDIM, SQDIM, SQDIM, 0, 0, 0);
+                g.dispose();
+                CELL_IMAGES.put(v, image);
+            }
+            return image;
         }
+    }
+
+    /** Draw outlined and filled quadrilateral on G with corners (X0, Y0),
+     *  (X1, Y1), (X2, Y2), and (X3, Y3). */
+    private static void drawQuad(Graphics2D g, int x0, int y0, int x1, int y1,
+                                 int x2, int y2, int x3, int y3) {
+        int[] xpoints = { x0, x1, x2, x3 };
+        int[] ypoints = { y0, y1, y2, y3 };
         g.fillPolygon(xpoints, ypoints, 4);
         g.setColor(LINE);
         g.drawPolygon(xpoints, ypoints, 4);
     }
 
+    /** Pre-rendered images of squares, by contents. */
+    private static final EnumMap<PieceColor, BufferedImage> CELL_IMAGES =
+        new EnumMap<>(PieceColor.class);
+
+    /** Opacity of the shading of squares by the value of moves. */
+    private static final float HEAT_ALPHA = 0.45f;
+    /** Color of the principal variation. */
+    private static final Color PV_COLOR = new Color(0, 0, 0, 160);
+    /** Stroke for the principal variation. */
+    private static final BasicStroke PV_STROKE = new BasicStroke(3.0f);
+    /** Radius of the dot at the end of each move of the principal
+     *  variation. */
+    private static final int PV_DOT = 7;
+    /** Font for the values of moves. */
+    private static final Font SCORE_FONT =
+        new Font(Font.SANS_SERIF, Font.PLAIN, 10);
+
+    /** Minimum interval between repaints (msec). */
+    private static final int FRAME_MILLIS = 16;
+
+    /** Set of all squares, as a bit set indexed by cell(). */
+    private static final long ALL_CELLS = (1L << (SIDE * SIDE)) - 1;
+
+    /** Contents of the squares as last painted, indexed by cell(). */
+    private final PieceColor[] _shown = new PieceColor[SIDE * SIDE];
+    /** Squares that may have changed since last painted, as a bit set
+     *  indexed by cell(). */
+    private long _dirty;
+
+    /** Fires once per frame in which the model has changed. */
+    private final Timer _frameTimer;
+
+    /** Source of the analysis shown, or null if none is. */
+    private volatile LiveAnalysis _analysis;
+
     /** Dimension of current drawing surface in pixels. */
     private int _dim;
 
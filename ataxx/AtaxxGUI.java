@@ -6,8 +6,7 @@ import ucb.gui2.LayoutSpec;
 import java.util.Observable;
 import java.util.Observer;
 
-import java.io.Writer;
-import java.io.PrintWriter;
+import static ataxx.Command.Type.*;
 
 /** The GUI for the Ataxx game.
  *  @author Carson Trinh
@@ -18,7 +17,7 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
      * unnecessary as possible for the rest of the program to know that it
      * is interacting with a GUI as opposed to a terminal.
      *
-     * To this end, we first have made Board observable, so that the
+     * To this end, we first have made Board listenable, so that the
      * GUI gets notified of changes to a Game's board and can interrogate
      * it as needed, while the Game and Board themselves need not be aware
      * that it is being watched.
@@ -27,22 +26,25 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
      * with a Game, we instead simply arrange to make the GUI's input look
      * like that from a terminal, so that we can reuse all the machinery
      * in the rest of the program to interpret and execute commands.  The
-     * AtaxxGUI simply composes commands (such as "start" or "clear") and
-     * writes them to a Writer that (using the Java library's PipedReader
-     * and PipedWriter classes) provides input to the Game using exactly the
-     * same API as would be used to read from a terminal. Thus, a simple
-     * Manual player can handle all commands and moves from the GUI.
+     * AtaxxGUI simply composes Commands (such as "start" or "clear") and
+     * offers them to a CommandQueue, which the Game reads as its
+     * CommandSource, just as it would read commands typed at a terminal,
+     * but without their being formatted as text and parsed again. Thus, a
+     * simple Manual player can handle all commands and moves from the
+     * GUI.
      *
      * See also Main.java for how this might get set up.
      */
 
     /** Minimum size of board in pixels. */
     private static final int MIN_SIZE = 300;
+    /** Maximum depth of background analysis. */
+    private static final int ANALYSIS_DEPTH = 6;
 
     /** A new display observing MODEL, with TITLE as its window title.
-     *  It uses OUTCOMMANDS to send commands to a game instance, using the
+     *  It offers the commands to a game instance to OUTCOMMANDS, using the
      *  same commands as the text format for Ataxx. */
-    AtaxxGUI(String title, Board model, Writer outCommands) {
+    AtaxxGUI(String title, Board model, CommandQueue outCommands) {
         super(title, true);
         addMenuButton("Game->Quit", this::quit);
         addMenuButton("Options->Seed...", this::setSeed);
@@ -50,6 +52,8 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
 
         addMenuButton("Game->New", this::newGame);
         addMenuButton("Game->Start", this::startGame);
+        addMenuButton("Game->Undo", this::undo);
+        addMenuButton("Game->Redo", this::redo);
         addMenuButton("Game->Blocks->Set Blocks", this::setBlocks);
         addMenuButton("Game->Blocks->Move Pieces", this::movePieces);
 
@@ -57,13 +61,15 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
         addMenuButton("Options->Players->Red Manual", this::setRedManual);
         addMenuButton("Options->Players->Red AI", this::setBlueAI);
         addMenuButton("Options->Players->Red Manual", this::setBlueManual);
+        addMenuButton("Options->Analysis->Show", this::showAnalysis);
+        addMenuButton("Options->Analysis->Hide", this::hideAnalysis);
         addMenuButton("Info->Help", this::help);
 
 
 
         _model = model;
         _widget = new AtaxxBoardWidget(model);
-        _out = new PrintWriter(outCommands, true);
+        _out = outCommands;
         add(_widget,
             new LayoutSpec("height", "1",
                            "width", "REMAINDER",
@@ -71,21 +77,29 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
                            "ibottom", 5));
         setMinimumSize(MIN_SIZE, MIN_SIZE);
         _widget.addObserver(this);
-        _model.addObserver(this);
+        _model.addListener(this::modelChanged);
     }
 
     /** Reset the board to its initial configuration. */
     private synchronized void newGame(String unused) {
-        _out.printf("clear%n");
+        sendControl(Command.of(CLEAR));
         setChanged();
         notifyObservers();
     }
     /** Start the game. */
     private synchronized void startGame(String unused) {
-        _out.printf("start%n");
+        send(Command.of(START));
         setChanged();
         notifyObservers();
     }
+    /** Take back the last move. */
+    private synchronized void undo(String unused) {
+        send(Command.of(UNDO));
+    }
+    /** Replay the last move taken back. */
+    private synchronized void redo(String unused) {
+        send(Command.of(REDO));
+    }
     /** Set blocks on the baord. */
     private synchronized void setBlocks(String unused) {
 
@@ -100,38 +114,58 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
     }
     /** Set Red to AI. */
     private synchronized void setRedAI(String unused) {
-        _out.printf("auto red%n");
+        send(new Command(AUTO, "red"));
         setChanged();
         notifyObservers();
     }
     /** Set Red to Manual. */
     private synchronized void setRedManual(String unused) {
-        _out.printf("manual red%n");
+        send(new Command(MANUAL, "red"));
         setChanged();
         notifyObservers();
     }
     /** Set Blue to AI. */
     private synchronized void setBlueAI(String unused) {
-        _out.printf("auto blue%n");
+        send(new Command(AUTO, "blue"));
         setChanged();
         notifyObservers();
     }
     /** Set Blue to Manual. */
     private synchronized void setBlueManual(String unused) {
-        _out.printf("manual blue%n");
+        send(new Command(MANUAL, "blue"));
         setChanged();
         notifyObservers();
     }
     /** Display the help message. */
     private synchronized void help(String unused) {
-        _out.printf("help%n");
+        send(Command.of(HELP));
         setChanged();
         notifyObservers();
     }
 
+    /** Start analyzing each position in the background, showing the
+     *  results over the board. */
+    private synchronized void showAnalysis(String unused) {
+        if (_analysis == null) {
+            _analysis = new LiveAnalysis(_model, ANALYSIS_DEPTH,
+                                         _widget::repaint);
+            _widget.setAnalysis(_analysis);
+            _analysis.start();
+        }
+    }
+
+    /** Stop analyzing positions. */
+    private synchronized void hideAnalysis(String unused) {
+        if (_analysis != null) {
+            _analysis.stop();
+            _analysis = null;
+            _widget.setAnalysis(null);
+        }
+    }
+
     /** Execute the "Quit" button function. */
     private synchronized void quit(String unused) {
-        _out.printf("quit%n");
+        sendControl(Command.of(QUIT));
     }
 
     /** Execute Seed... command. */
@@ -143,7 +177,7 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
         }
         try {
             long s = Long.parseLong(resp);
-            _out.printf("seed %d%n", s);
+            send(new Command(SEED, Long.toString(s)));
         } catch (NumberFormatException excp) {
             return;
         }
@@ -161,17 +195,40 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
     public void moveMsg(String format, Object... args) {
     }
 
+    @Override
+    public void promptMsg(String prompt) {
+    }
+
     @Override
     public void update(Observable obs, Object arg) {
-        if (obs == _model) {
-            setChanged();
-            notifyObservers("click");
-        } else if (obs == _widget) {
+        if (obs == _widget) {
             setChanged();
             notifyObservers("click");
         }
     }
 
+    /** Respond to EVENT, a change to the model. */
+    private void modelChanged(BoardEvent event) {
+        setChanged();
+        notifyObservers("click");
+    }
+
+    /** Offer CMND to the game, dropping it and telling the user if the
+     *  game has fallen so far behind that its queue is full. */
+    private void send(Command cmnd) {
+        if (!_out.offer(cmnd)) {
+            showMessage("The game is busy, so \"" + cmnd + "\" was ignored.",
+                        "Ataxx", "warning");
+        }
+    }
+
+    /** Send CMND, which ends or resets the game and so must not be
+     *  dropped, to the game, waiting for room in its queue if it is
+     *  full. */
+    private void sendControl(Command cmnd) {
+        _out.put(cmnd);
+    }
+
     /** Respond to a click on SQ while in "play" mode. */
     private void movePiece(String sq) {
 
@@ -181,7 +238,9 @@ class AtaxxGUI extends TopLevel implements Observer, Reporter {
     private AtaxxBoardWidget _widget;
     /** The model of the game. */
     private Board _model;
-    /** Output sink for sending commands to a game. */
-    private PrintWriter _out;
+    /** Background analysis shown on the board, or null if none. */
+    private LiveAnalysis _analysis;
+    /** Queue for sending commands to a game. */
+    private CommandQueue _out;
 
 }
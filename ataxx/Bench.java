@@ -0,0 +1,57 @@
+package ataxx;
+
+/** A fixed benchmark of the search: a suite of positions from all
+ *  phases of the game, each searched to the same depth by a new Searcher
+ *  on one thread.  The total number of positions visited depends only on
+ *  the search algorithm, not on the machine or its load, so that it
+ *  serves as a signature of the search's behavior, while the time and
+ *  positions per second measure the machine and JVM.
+ *  @author Carson Trinh
+ */
+class Bench {
+
+    /** Depth to which each position is searched. */
+    static final int DEPTH = AI.MAX_DEPTH;
+
+    /** The positions searched, as for Board.setPosition. */
+    static final String[] POSITIONS = {
+        "r-----b/-------/-------/-------/-------/-------/b-----r r 0",
+        "-rr-b--/-------/-------/r------/--b----/----b--/-b--bb- b 2",
+        "-bb----/-bb----/b------/--r-b--/--rr-b-/---rr--/-b-rrb- r 1",
+        "rr-rr--/rrr-b--/r-b-bbb/rrbbbb-/-b-bbbb/----bb-/--bb-r- r 0",
+        "b-rr-bb/bbbbrbb/bbb-rbb/r-bbrrb/rrrrbbb/rrrrbbr/-rbb-b- r 2",
+        "-----b-/r-b----/rb---rr/-------/b------/-------/-----r- b 2",
+        "r------/r------/--rrr--/--rr-bb/-------/--b----/------r b 0",
+        "-rr----/rr-----/--b-b--/r--bbbb/r-----b/----b--/b---b-- r 5",
+        "rr---rb/rrb-brb/rrbb-rb/r--b--b/bb-b--b/b-bbb--/b------ r 0",
+        "rrrrrrb/rrrrr-r/rrrrr-r/-rrrrrr/-rb-bb-/rrrbbb-/rrrbbbb r 0",
+        "---b---/---b---/r----b-/-----b-/-----r-/-rrr--r/rr-r--- b 1",
+        "-bb--b-/rbbb---/-bb-b-b/rbbb--b/r-r-rr-/r-rrrrr/rrrrrr- r 0",
+        "r-----b/-----b-/---rr--/-------/-------/-------/b---r-- b 1",
+        "bb--b--/bb--br-/bbbb-rr/-b-bbr-/---b---/b---rr-/------r b 0",
+        "rrbbb--/rrbbbb-/rrbbbbb/brrrbbb/rrrrbbb/rbbbr-r/rbbbbrr b 0",
+        "rr-----/rr-----/b---r--/rrr----/rrr----/r----b-/------b b 9",
+    };
+
+    /** Search each of POSITIONS to DEPTH, reporting the best move and
+     *  the number of positions visited for each, and then the totals,
+     *  using REPORTER.  Return the total number of positions visited. */
+    static long run(int depth, Reporter reporter) {
+        long nodes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < POSITIONS.length; i += 1) {
+            Board board = new Board();
+            board.setPosition(POSITIONS[i]);
+            Searcher searcher = new Searcher();
+            Move move = searcher.findMove(board, depth);
+            nodes += searcher.nodes();
+            reporter.outcomeMsg("Position %d: %s %d", i + 1, move,
+                                searcher.nodes());
+        }
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        reporter.outcomeMsg("Nodes searched: %d", nodes);
+        reporter.outcomeMsg("Time: %d ms", millis);
+        reporter.outcomeMsg("Nodes/second: %d", nodes * 1000 / millis);
+        return nodes;
+    }
+}
@@ -7,7 +7,8 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Stack;
 import java.util.Formatter;
-import java.util.Observable;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static ataxx.PieceColor.*;
 import static ataxx.GameException.error;
@@ -33,7 +34,7 @@ import static ataxx.GameException.error;
  *  Moves on this board are denoted by Moves.
  *  @author Carson Trinh
  */
-class Board extends Observable {
+class Board {
 
     /** Number of squares on a side of the board. */
     static final int SIDE = 7;
@@ -77,6 +78,8 @@ class Board extends Observable {
         _numBluePieces = b.numPieces(BLUE);
         _numMoves = b.numMoves();
         _numJumps = b.numJumps();
+        _key = b._key;
+        _layout = b._layout;
     }
 
     /** Return the linearized index of square COL ROW. */
@@ -113,9 +116,238 @@ class Board extends Observable {
 
         _numRedPieces = 2;
         _numBluePieces = 2;
+        _numMoves = 0;
+        _numJumps = 0;
+        _changeStack.clear();
+        _changeStack.push(null);
+        _moveStack.clear();
+        _key = computeKey();
+        _layout = null;
+
+        if (Events.recording()) {
+            new Events.BoardCleared().commit();
+        }
+        fireReset();
+    }
+
+    /** Set me to the position described by POSITION, with no move history.
+     *  POSITION has the form written by positionString(): the seven rows
+     *  from '7' down to '1', separated by '/', each giving its squares from
+     *  'a' to 'g' as 'r' (red), 'b' (blue), 'X' (block) or '-' (empty);
+     *  then the player to move ('r' or 'b'); then, optionally, numJumps().
+     *  For example, the initial position is
+     *  "r-----b/-------/-------/-------/-------/-------/b-----r r 0".
+     *  If POSITION is invalid, I am left unchanged. */
+    void setPosition(String position) {
+        String[] fields = position.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (fields.length < 2 || fields.length > 3 || rows.length != SIDE
+            || !(fields[1].equals("r") || fields[1].equals("b"))) {
+            throw error("Bad position: %s", position);
+        }
+        int numJumps;
+        try {
+            numJumps = fields.length == 3 ? Integer.parseInt(fields[2]) : 0;
+        } catch (NumberFormatException excp) {
+            throw error("Bad position: %s", position);
+        }
+        if (numJumps < 0 || numJumps > JUMP_LIMIT) {
+            throw error("Bad position: %s", position);
+        }
+        PieceColor[] squares = new PieceColor[SIDE * SIDE];
+        for (int k = 0; k < SIDE; k += 1) {
+            if (rows[k].length() != SIDE) {
+                throw error("Bad position: %s", position);
+            }
+            for (int c = 0; c < SIDE; c += 1) {
+                PieceColor v;
+                switch (rows[k].charAt(c)) {
+                case 'r':
+                    v = RED;
+                    break;
+                case 'b':
+                    v = BLUE;
+                    break;
+                case 'X':
+                    v = BLOCKED;
+                    break;
+                case '-':
+                    v = EMPTY;
+                    break;
+                default:
+                    throw error("Bad position: %s", position);
+                }
+                squares[k * SIDE + c] = v;
+            }
+        }
+
+        _numRedPieces = _numBluePieces = 0;
+        for (int k = 0; k < SIDE; k += 1) {
+            for (int c = 0; c < SIDE; c += 1) {
+                PieceColor v = squares[k * SIDE + c];
+                unrecordedSet((char) ('a' + c), (char) ('7' - k), v);
+                incrPieces(v, 1);
+            }
+        }
+        _numJumps = numJumps;
+        _whoseMove = fields[1].equals("r") ? RED : BLUE;
+        _numMoves = 0;
+        _changeStack.clear();
+        _changeStack.push(null);
+        _moveStack.clear();
+        _key = computeKey();
+        _layout = null;
+
+        fireReset();
+    }
+
+    /** Return a snapshot of my current position. */
+    Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /** Set me to the position in SNAPSHOT, with no move history. */
+    void restore(Snapshot snapshot) {
+        System.arraycopy(snapshot._squares, 0, _board, 0, _board.length);
+        _whoseMove = snapshot._whoseMove;
+        _numRedPieces = snapshot._numRedPieces;
+        _numBluePieces = snapshot._numBluePieces;
+        _numMoves = snapshot._numMoves;
+        _numJumps = snapshot._numJumps;
+        _key = snapshot._key;
+        _changeStack.clear();
+        _changeStack.push(null);
+        _moveStack.clear();
+        _layout = null;
+
+        fireReset();
+    }
+
+    /** A copy of the position on a Board, including the player to move and
+     *  the move counts, but not the moves that led to it. */
+    static class Snapshot {
+
+        /** A snapshot of the current position of BOARD. */
+        private Snapshot(Board board) {
+            _squares = board._board.clone();
+            _whoseMove = board._whoseMove;
+            _numRedPieces = board._numRedPieces;
+            _numBluePieces = board._numBluePieces;
+            _numMoves = board._numMoves;
+            _numJumps = board._numJumps;
+            _key = board._key;
+        }
+
+        /** Contents of the squares. */
+        private final PieceColor[] _squares;
+        /** Player to move. */
+        private final PieceColor _whoseMove;
+        /** Numbers of red and blue pieces. */
+        private final int _numRedPieces, _numBluePieces;
+        /** Values of numMoves() and numJumps(). */
+        private final int _numMoves, _numJumps;
+        /** Zobrist key. */
+        private final long _key;
+    }
+
+    /** Tables of the unblocked squares for one arrangement of blocks,
+     *  which is fixed once play starts.  They let move generation,
+     *  captures and mobility checks visit only squares that can hold
+     *  pieces, rather than probing every square within reach, blocked,
+     *  border or not.  Layouts are shared by all boards with the same
+     *  blocks. */
+    private static final class Layout {
+
+        /** Return the layout for the blocks on BOARD (an array of
+         *  squares like _board). */
+        static Layout of(PieceColor[] board) {
+            long mask = 0;
+            for (char r = '7'; r >= '1'; r -= 1) {
+                for (char c = 'a'; c <= 'g'; c += 1) {
+                    mask = 2 * mask + (board[index(c, r)] == BLOCKED ? 1 : 0);
+                }
+            }
+            Layout layout = LAYOUTS.get(mask);
+            if (layout == null) {
+                if (LAYOUTS.size() >= MAX_LAYOUTS) {
+                    LAYOUTS.clear();
+                }
+                layout = new Layout(board);
+                LAYOUTS.put(mask, layout);
+            }
+            return layout;
+        }
+
+        /** The layout of the blocks on BOARD. */
+        private Layout(PieceColor[] board) {
+            List<Integer> squares = new ArrayList<>();
+            for (char r = '7'; r >= '1'; r -= 1) {
+                for (char c = 'a'; c <= 'g'; c += 1) {
+                    if (board[index(c, r)] != BLOCKED) {
+                        squares.add(index(c, r));
+                    }
+                }
+            }
+            _squares = toArray(squares);
+            _adjacent = new int[board.length][];
+            _targets = new int[board.length][];
+            for (int sq : _squares) {
+                List<Integer> adjacent = new ArrayList<>(),
+                    targets = new ArrayList<>();
+                for (int dc = -2; dc <= 2; dc += 1) {
+                    for (int dr = -2; dr <= 2; dr += 1) {
+                        int target = neighbor(sq, dc, dr);
+                        if ((dc == 0 && dr == 0)
+                            || board[target] == BLOCKED) {
+                            continue;
+                        }
+                        targets.add(target);
+                        if (Math.abs(dc) <= 1 && Math.abs(dr) <= 1) {
+                            adjacent.add(target);
+                        }
+                    }
+                }
+                _adjacent[sq] = toArray(adjacent);
+                _targets[sq] = toArray(targets);
+            }
+        }
+
+        /** Return the elements of LIST. */
+        private static int[] toArray(List<Integer> list) {
+            return list.stream().mapToInt(Integer::intValue).toArray();
+        }
 
-        setChanged();
-        notifyObservers();
+        /** Unblocked squares, by rows from a7 to g1. */
+        private final int[] _squares;
+        /** Unblocked squares adjacent to each unblocked square (null for
+         *  the others). */
+        private final int[][] _adjacent;
+        /** Unblocked squares within two rows and columns of each unblocked
+         *  square (null for the others). */
+        private final int[][] _targets;
+
+        /** Number of different layouts kept before starting over. */
+        private static final int MAX_LAYOUTS = 1024;
+        /** Layouts already compiled, by the bit mask of their blocked
+         *  squares. */
+        private static final ConcurrentHashMap<Long, Layout> LAYOUTS =
+            new ConcurrentHashMap<>();
+    }
+
+    /** Return the current position in the notation accepted by
+     *  setPosition. */
+    String positionString() {
+        StringBuilder out = new StringBuilder();
+        for (char row = '7'; row >= '1'; row--) {
+            for (char col = 'a'; col <= 'g'; col++) {
+                PieceColor v = get(col, row);
+                out.append(v == RED ? 'r' : v == BLUE ? 'b'
+                           : v == BLOCKED ? 'X' : '-');
+            }
+            out.append(row == '1' ? ' ' : '/');
+        }
+        out.append(_whoseMove == RED ? 'r' : 'b').append(' ').append(_numJumps);
+        return out.toString();
     }
 
     /** Clears part of the board before a game start. */
@@ -184,19 +416,27 @@ class Board extends Observable {
      *  undoable. */
     private void set(int sq, PieceColor v) {
         addUndo(sq, v, _numJumps);
-        _board[sq] = v;
+        unrecordedSet(sq, v);
     }
 
     /** Set square at C R to V (not undoable). */
     private void unrecordedSet(char c, char r, PieceColor v) {
-        _board[index(c, r)] = v;
+        unrecordedSet(index(c, r), v);
     }
 
     /** Set square at linearized index SQ to V (not undoable). */
     private void unrecordedSet(int sq, PieceColor v) {
+        _key ^= SQUARE_KEYS[_board[sq].ordinal()][sq]
+            ^ SQUARE_KEYS[v.ordinal()][sq];
         _board[sq] = v;
     }
 
+    /** Make the opposing player the player to move. */
+    private void switchSides() {
+        _whoseMove = _whoseMove.opposite();
+        _key ^= BLUE_TO_MOVE_KEY;
+    }
+
     /** Return true iff MOVE is legal on the current board. */
     boolean legalMove(Move move) {
         if (move.isPass()) {
@@ -213,14 +453,12 @@ class Board extends Observable {
         if (numPieces(who) == 0) {
             return false;
         }
-        for (int i = 0; i < _board.length; i++) {
-            if (get(i) == EMPTY) {
-                for (int col = -2; col < 3; col++) {
-                    for (int row = -2; row < 3; row++) {
-                        int target = neighbor(i, col, row);
-                        if (get(target) == who) {
-                            return true;
-                        }
+        Layout layout = layout();
+        for (int sq : layout._squares) {
+            if (get(sq) == EMPTY) {
+                for (int target : layout._targets[sq]) {
+                    if (get(target) == who) {
+                        return true;
                     }
                 }
             }
@@ -228,6 +466,65 @@ class Board extends Observable {
         return false;
     }
 
+    /** Return the linearized indices of the unblocked squares, in order
+     *  from a7 to g7, then a6 to g6, and so on down to g1.  The result
+     *  must not be modified. */
+    int[] squares() {
+        return layout()._squares;
+    }
+
+    /** Return the linearized indices of the unblocked squares adjacent to
+     *  the unblocked square with index SQ.  The result must not be
+     *  modified. */
+    int[] adjacent(int sq) {
+        return layout()._adjacent[sq];
+    }
+
+    /** Return the linearized indices of the unblocked squares at most two
+     *  columns and rows from the unblocked square with index SQ (other
+     *  than SQ itself): the possible destinations of moves from SQ and
+     *  sources of moves to SQ.  They are in order of column, and within
+     *  each column, of row.  The result must not be modified. */
+    int[] targets(int sq) {
+        return layout()._targets[sq];
+    }
+
+    /** Return the column of the square with linearized index SQ. */
+    static char col(int sq) {
+        return (char) ('a' + sq % EXTENDED_SIDE - 2);
+    }
+
+    /** Return the row of the square with linearized index SQ. */
+    static char row(int sq) {
+        return (char) ('1' + sq / EXTENDED_SIDE - 2);
+    }
+
+    /** Return the tables of unblocked squares for my current blocks,
+     *  compiling them if the blocks have changed since they were last
+     *  compiled. */
+    private Layout layout() {
+        if (_layout == null) {
+            _layout = Layout.of(_board);
+        }
+        return _layout;
+    }
+
+    /** Return a Zobrist hash of the current position: the contents of
+     *  each square and the player to move.  Equal positions have equal
+     *  keys regardless of how they were reached. */
+    long key() {
+        return _key;
+    }
+
+    /** Return the key of the current position computed from scratch. */
+    private long computeKey() {
+        long key = _whoseMove == BLUE ? BLUE_TO_MOVE_KEY : 0;
+        for (int sq = 0; sq < _board.length; sq += 1) {
+            key ^= SQUARE_KEYS[_board[sq].ordinal()][sq];
+        }
+        return key;
+    }
+
     /** Return the color of the player who has the next move.  The
      *  value is arbitrary if gameOver(). */
     PieceColor whoseMove() {
@@ -266,70 +563,158 @@ class Board extends Observable {
             pass();
             startUndo();
             _moveStack.push(move);
-            setChanged();
-            notifyObservers();
+            fireChange(BoardEvent.Kind.MOVE, move);
             return;
         }
         startUndo();
         _moveStack.push(move);
         if (move.isJump()) {
             set(move.col0(), move.row0(), EMPTY);
-            _numJumps += 1;
         } else if (move.isExtend()) {
-            _numJumps = 0;
             incrPieces(_whoseMove, 1);
         }
 
         set(move.col1(), move.row1(), _whoseMove);
         int pos = index(move.col1(), move.row1());
-        for (int col = -1; col < 2; col++) {
-            for (int row = -1; row < 2; row++) {
-                int target = neighbor(pos, col, row);
-                if (get(target) == _whoseMove.opposite()) {
-                    set(target, _whoseMove);
-                    incrPieces(_whoseMove, 1);
-                    incrPieces(_whoseMove.opposite(), -1);
-                }
+        for (int target : layout()._adjacent[pos]) {
+            if (get(target) == _whoseMove.opposite()) {
+                set(target, _whoseMove);
+                incrPieces(_whoseMove, 1);
+                incrPieces(_whoseMove.opposite(), -1);
             }
         }
 
+        _numJumps = move.isJump() ? _numJumps + 1 : 0;
         _numMoves += 1;
-        _whoseMove = _whoseMove.opposite();
-        setChanged();
-        notifyObservers();
+        switchSides();
+        fireChange(BoardEvent.Kind.MOVE, move);
     }
 
     /** Update to indicate that the current player passes, assuming it
-     *  is legal to do so.  The only effect is to change whoseMove(). */
+     *  is legal to do so.  The only effect is to change whoseMove().
+     *  Listeners are not told; makeMove tells them of the pass. */
     void pass() {
         if (canMove(_whoseMove)) {
             throw error("Pass not allowed.");
         }
-        _whoseMove = _whoseMove.opposite();
+        switchSides();
         _numMoves += 1;
-        setChanged();
-        notifyObservers();
     }
 
     /** Undo the last move. */
     void undo() {
+        BoardEvent event = null;
+        if (listening()) {
+            event = changeEvent(BoardEvent.Kind.UNDO, _moveStack.peek());
+        }
         while (_changeStack.peek() != null) {
             BoardChangeArray change = _changeStack.pop();
             unrecordedSet(change.index(), change.oldColor());
             incrPieces(change.oldColor(), 1);
             incrPieces(change.newColor(), -1);
+            _numJumps = change.numJumps();
         }
         _changeStack.pop();
         _moveStack.pop();
-        _whoseMove = _whoseMove.opposite();
+        switchSides();
         _numMoves -= 1;
-        if (_changeStack.peek() != null) {
-            _numJumps = _changeStack.peek().numJumps();
-        } else {
-            _numJumps = 0;
+        if (event != null) {
+            fire(event);
+        }
+    }
+
+    /** Add LISTENER to those told of changes to me. */
+    void addListener(BoardListener listener) {
+        synchronized (_listenerLock) {
+            BoardListener[] listeners =
+                Arrays.copyOf(_listeners, _listeners.length + 1);
+            listeners[_listeners.length] = listener;
+            _listeners = listeners;
+        }
+    }
+
+    /** Remove LISTENER from those told of changes to me, if present. */
+    void removeListener(BoardListener listener) {
+        synchronized (_listenerLock) {
+            for (int i = 0; i < _listeners.length; i += 1) {
+                if (_listeners[i] == listener) {
+                    BoardListener[] listeners =
+                        new BoardListener[_listeners.length - 1];
+                    System.arraycopy(_listeners, 0, listeners, 0, i);
+                    System.arraycopy(_listeners, i + 1, listeners, i,
+                                     listeners.length - i);
+                    _listeners = listeners;
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Suspend telling my listeners of changes iff not ON.  When
+     *  notification resumes, they are sent one RESET event. */
+    void setNotifying(boolean on) {
+        boolean resumed = on && !_notifying;
+        _notifying = on;
+        if (resumed) {
+            fireReset();
+        }
+    }
+
+    /** Return true iff there are listeners to be told of changes now. */
+    private boolean listening() {
+        return _notifying && _listeners.length > 0;
+    }
+
+    /** Tell my listeners of the change of kind KIND (MOVE or UNDO)
+     *  involving MOVE whose square changes are on top of _changeStack. */
+    private void fireChange(BoardEvent.Kind kind, Move move) {
+        if (listening()) {
+            fire(changeEvent(kind, move));
+        }
+    }
+
+    /** Tell my listeners that I may have changed entirely. */
+    private void fireReset() {
+        if (listening()) {
+            fire(new BoardEvent(this, BoardEvent.Kind.RESET, null, 0,
+                                null, null, null));
+        }
+    }
+
+    /** Return an event of kind KIND involving MOVE, listing the changes
+     *  on top of _changeStack, in the order they were made if KIND is
+     *  MOVE, and reversed, as they are undone, if it is UNDO. */
+    private BoardEvent changeEvent(BoardEvent.Kind kind, Move move) {
+        int top = _changeStack.size() - 1;
+        int n = 0;
+        while (_changeStack.get(top - n) != null) {
+            n += 1;
+        }
+        int[] squares = new int[n];
+        PieceColor[] oldColors = new PieceColor[n],
+            newColors = new PieceColor[n];
+        for (int k = 0; k < n; k += 1) {
+            BoardChangeArray change;
+            if (kind == BoardEvent.Kind.UNDO) {
+                change = _changeStack.get(top - k);
+                oldColors[k] = change.newColor();
+                newColors[k] = change.oldColor();
+            } else {
+                change = _changeStack.get(top - n + 1 + k);
+                oldColors[k] = change.oldColor();
+                newColors[k] = change.newColor();
+            }
+            squares[k] = change.index();
+        }
+        return new BoardEvent(this, kind, move, n, squares, oldColors,
+                              newColors);
+    }
+
+    /** Deliver EVENT to each of my listeners. */
+    private void fire(BoardEvent event) {
+        for (BoardListener listener : _listeners) {
+            listener.boardChanged(event);
         }
-        setChanged();
-        notifyObservers();
     }
 
     /** Indicate beginning of a move in the undo stack. */
@@ -338,7 +723,9 @@ class Board extends Observable {
     }
 
     /** Add an undo action for changing SQ to NEWCOLOR on the current board,
-     * with the appropriate NUMJUMPS. */
+     *  with NUMJUMPS, the value of numJumps() before the move making the
+     *  change.  A pass changes nothing, and so leaves numJumps() as it
+     *  is. */
     private void addUndo(int sq, PieceColor newColor, int numJumps) {
         _changeStack.push(new BoardChangeArray(sq, newColor, get(sq),
                 numJumps));
@@ -373,14 +760,34 @@ class Board extends Observable {
         }
         char cP = (char) ('h' - (c - '`'));
         char rP = (char) ('8' - (r - '0'));
+        int[] squares = {
+            index(c, r), index(c, rP), index(cP, r), index(cP, rP)
+        };
+        PieceColor[] oldColors = new PieceColor[squares.length];
+        int n = 0;
+        for (int sq : squares) {
+            if (get(sq) != BLOCKED) {
+                squares[n] = sq;
+                oldColors[n] = get(sq);
+                n += 1;
+                unrecordedSet(sq, BLOCKED);
+            }
+        }
+        _layout = null;
 
-        unrecordedSet(c, r, BLOCKED);
-        unrecordedSet(c, rP, BLOCKED);
-        unrecordedSet(cP, r, BLOCKED);
-        unrecordedSet(cP, rP, BLOCKED);
-
-        setChanged();
-        notifyObservers();
+        if (Events.recording()) {
+            Events.BlockPlaced placed = new Events.BlockPlaced();
+            if (placed.shouldCommit()) {
+                placed.square = "" + c + r;
+                placed.commit();
+            }
+        }
+        if (listening()) {
+            PieceColor[] newColors = new PieceColor[n];
+            Arrays.fill(newColors, BLOCKED);
+            fire(new BoardEvent(this, BoardEvent.Kind.BLOCK, null, n, squares,
+                                oldColors, newColors));
+        }
     }
 
     /** Place a block at CR. */
@@ -480,4 +887,40 @@ class Board extends Observable {
     private int _numMoves;
     /** Number of consecutive jumps without intervening extends. */
     private int _numJumps;
+    /** Zobrist key of the current position. */
+    private long _key;
+    /** Tables for the current blocks, or null if they have changed since
+     *  they were last compiled. */
+    private Layout _layout;
+    /** True iff my listeners are told of changes. */
+    private boolean _notifying = true;
+    /** Listeners told of my changes.  Never modified: adding or removing
+     *  a listener replaces the array, so that changes can be delivered
+     *  without locking. */
+    private volatile BoardListener[] _listeners = NO_LISTENERS;
+    /** Serializes changes to _listeners. */
+    private final Object _listenerLock = new Object();
+
+    /** The initial, empty, array of listeners. */
+    private static final BoardListener[] NO_LISTENERS = new BoardListener[0];
+
+    /** Random keys for each PieceColor on each square of the playable
+     *  board, XORed together to form key().  EMPTY squares and the border
+     *  contribute nothing. */
+    private static final long[][] SQUARE_KEYS =
+        new long[PieceColor.values().length][EXTENDED_SIDE * EXTENDED_SIDE];
+    /** Key component indicating that BLUE is to move. */
+    private static final long BLUE_TO_MOVE_KEY;
+
+    static {
+        Random keys = new Random(0x41AA);
+        for (PieceColor v : new PieceColor[] { RED, BLUE, BLOCKED }) {
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                for (char r = '1'; r <= '7'; r += 1) {
+                    SQUARE_KEYS[v.ordinal()][index(c, r)] = keys.nextLong();
+                }
+            }
+        }
+        BLUE_TO_MOVE_KEY = keys.nextLong();
+    }
 }
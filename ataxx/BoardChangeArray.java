@@ -38,7 +38,8 @@ public class BoardChangeArray {
         return (PieceColor) _changeArray[2];
     }
 
-    /** Return the number of jumps at the time of the board change. */
+    /** Return the number of jumps before the move making the board
+     *  change. */
     int numJumps() {
         return (int) _changeArray[3];
     }
@@ -0,0 +1,98 @@
+package ataxx;
+
+import static ataxx.Board.EXTENDED_SIDE;
+
+/** A change to a Board, as delivered to its BoardListeners.  Besides its
+ *  kind and the move (if any) involved, an event lists the squares whose
+ *  contents changed, in the order they changed, with their old and new
+ *  contents.  An event of kind RESET lists no squares: the whole board
+ *  may have changed.
+ *  @author Carson Trinh
+ */
+class BoardEvent {
+
+    /** Kinds of change. */
+    static enum Kind {
+        /** A move (possibly a pass) was made. */
+        MOVE,
+        /** A move was undone. */
+        UNDO,
+        /** A block and its reflections were set. */
+        BLOCK,
+        /** The board was cleared, set to a new position, or changed while
+         *  its listeners were suspended. */
+        RESET;
+    }
+
+    /** A change of kind KIND to BOARD involving MOVE (null if none), in
+     *  which squares SQUARES[k] (linearized indices) changed from
+     *  OLDCOLORS[k] to NEWCOLORS[k], for 0 <= k < NUMCHANGES. */
+    BoardEvent(Board board, Kind kind, Move move, int numChanges,
+               int[] squares, PieceColor[] oldColors, PieceColor[] newColors) {
+        _board = board;
+        _kind = kind;
+        _move = move;
+        _numChanges = numChanges;
+        _squares = squares;
+        _oldColors = oldColors;
+        _newColors = newColors;
+    }
+
+    /** Return the board that changed. */
+    Board board() {
+        return _board;
+    }
+
+    /** Return the kind of change. */
+    Kind kind() {
+        return _kind;
+    }
+
+    /** Return the move made or undone, or null if there is none. */
+    Move move() {
+        return _move;
+    }
+
+    /** Return the number of squares that changed. */
+    int numChanges() {
+        return _numChanges;
+    }
+
+    /** Return the linearized index of the Kth square that changed. */
+    int square(int k) {
+        return _squares[k];
+    }
+
+    /** Return the column of the Kth square that changed. */
+    char col(int k) {
+        return (char) ('a' + _squares[k] % EXTENDED_SIDE - 2);
+    }
+
+    /** Return the row of the Kth square that changed. */
+    char row(int k) {
+        return (char) ('1' + _squares[k] / EXTENDED_SIDE - 2);
+    }
+
+    /** Return the former contents of the Kth square that changed. */
+    PieceColor oldColor(int k) {
+        return _oldColors[k];
+    }
+
+    /** Return the new contents of the Kth square that changed. */
+    PieceColor newColor(int k) {
+        return _newColors[k];
+    }
+
+    /** The board that changed. */
+    private final Board _board;
+    /** The kind of change. */
+    private final Kind _kind;
+    /** The move involved, or null. */
+    private final Move _move;
+    /** Number of squares that changed. */
+    private final int _numChanges;
+    /** The squares that changed. */
+    private final int[] _squares;
+    /** Their old and new contents. */
+    private final PieceColor[] _oldColors, _newColors;
+}
@@ -0,0 +1,465 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static ataxx.PieceColor.*;
+
+/** A differential fuzzer for Board.  It plays random games, with random
+ *  block layouts, illegal moves and passes, undos of several moves and
+ *  restarts, on a ReferenceBoard and a candidate Board in lockstep,
+ *  comparing everything the two can report after every step: the
+ *  squares, the player to move, the piece, move and jump counts, whether
+ *  each player can move, whether the game is over, the moves made, which
+ *  moves, passes and blocks are accepted, and the consistency of the
+ *  candidate's Zobrist key.  Games are played in parallel, each from its
+ *  own seed, so that any one can be replayed alone.  The first
+ *  divergence found is minimized by removing steps for as long as the
+ *  remainder still diverges.
+ *
+ *  Steps are written as in the commands of the game: "block CR", a piece
+ *  move, "-" for a pass, "undo" and "clear".  Moves and passes are
+ *  skipped once the reference game is over, as are undos with nothing to
+ *  undo, so any sequence of steps may be replayed.
+ *
+ *  Usage: java ataxx.BoardFuzzer [--seed=N] [--steps=N] [--threads=N]
+ *  [--candidate=CLASS], where CLASS names a subclass of Board with a
+ *  constructor taking no arguments (Board itself by default).
+ *  @author Carson Trinh
+ */
+public class BoardFuzzer {
+
+    /** A divergence between the candidate and the reference. */
+    static class Failure {
+        /** The divergence described by MESSAGE after the last of STEPS,
+         *  found in the game with seed SEED. */
+        Failure(long seed, List<String> steps, String message) {
+            _seed = seed;
+            _steps = steps;
+            _message = message;
+        }
+
+        /** Return the seed of the game in which I was found. */
+        long seed() {
+            return _seed;
+        }
+
+        /** Return the steps leading to me. */
+        List<String> steps() {
+            return _steps;
+        }
+
+        /** Return a description of the difference. */
+        String message() {
+            return _message;
+        }
+
+        /** Game seed. */
+        private final long _seed;
+        /** Steps from a new board. */
+        private final List<String> _steps;
+        /** Description. */
+        private final String _message;
+    }
+
+    /** A fuzzer of the Boards made by CANDIDATES. */
+    BoardFuzzer(Supplier<Board> candidates) {
+        _candidates = candidates;
+    }
+
+    /** Run the fuzzer as described above, according to ARGS.  Exits with
+     *  status 1 if the boards diverge. */
+    public static void main(String[] args) {
+        long seed = 0, steps = DEFAULT_STEPS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        Supplier<Board> candidates = Board::new;
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring(7));
+            } else if (arg.startsWith("--steps=")) {
+                steps = Long.parseLong(arg.substring(8));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--candidate=")) {
+                candidates = candidates(arg.substring(12));
+            } else {
+                System.err.printf("Unknown option: %s%n", arg);
+                System.exit(1);
+            }
+        }
+        BoardFuzzer fuzzer = new BoardFuzzer(candidates);
+        long start = System.nanoTime();
+        Failure failure = fuzzer.run(seed, steps, threads);
+        double secs = (System.nanoTime() - start) * 1e-9;
+        if (failure == null) {
+            System.out.printf("%d steps in %d games, %.1f s: no "
+                              + "divergence.%n", fuzzer.steps(),
+                              fuzzer.games(), secs);
+            return;
+        }
+        System.out.printf("Divergence in game with seed %d after %d steps:"
+                          + " %s%n", failure.seed(), failure.steps().size(),
+                          failure.message());
+        failure = fuzzer.minimize(failure);
+        System.out.printf("Minimized to %d steps: %s%n",
+                          failure.steps().size(), failure.message());
+        for (String step : failure.steps()) {
+            System.out.println(step);
+        }
+        System.exit(1);
+    }
+
+    /** Play games with seeds SEED, SEED + 1, ..., on THREADS threads,
+     *  until they have taken at least STEPS steps in all.  Returns the
+     *  divergence found in the game with the smallest seed, or null if
+     *  there is none. */
+    Failure run(long seed, long steps, int threads) {
+        long games = (steps + GAME_STEPS - 1) / GAME_STEPS;
+        AtomicLong next = new AtomicLong(seed);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i += 1) {
+            workers[i] = new Thread(() -> {
+                for (long g = next.getAndIncrement(); g < seed + games;
+                     g = next.getAndIncrement()) {
+                    if (failedBefore(g)) {
+                        return;
+                    }
+                    Failure failure = play(g);
+                    if (failure != null) {
+                        report(failure);
+                    }
+                }
+            }, "fuzzer-" + i);
+            workers[i].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return _failure;
+    }
+
+    /** Return the number of steps taken by run. */
+    long steps() {
+        return _steps.get();
+    }
+
+    /** Return the number of games played by run. */
+    long games() {
+        return _games.get();
+    }
+
+    /** Play GAME_STEPS random steps of the game with seed SEED, returning
+     *  the divergence found, or null if none. */
+    Failure play(long seed) {
+        Random random = new Random(seed);
+        Lockstep boards = new Lockstep(_candidates.get());
+        List<String> steps = new ArrayList<>();
+        List<String> pending = new ArrayList<>();
+        addBlocks(random, pending);
+        while (steps.size() < GAME_STEPS) {
+            if (pending.isEmpty()) {
+                nextSteps(random, boards._reference, pending);
+            }
+            String step = pending.remove(0);
+            steps.add(step);
+            String message = boards.apply(step);
+            if (message != null) {
+                return new Failure(seed, steps, message);
+            }
+        }
+        _steps.addAndGet(steps.size());
+        _games.incrementAndGet();
+        return null;
+    }
+
+    /** Return the description of the divergence found by replaying
+     *  STEPS from new boards, or null if there is none. */
+    String check(List<String> steps) {
+        Lockstep boards = new Lockstep(_candidates.get());
+        for (String step : steps) {
+            String message = boards.apply(step);
+            if (message != null) {
+                return message;
+            }
+        }
+        return null;
+    }
+
+    /** Return a failure equivalent to FAILURE whose steps are a shortest
+     *  sequence found that still diverges: one from which no single step
+     *  can be removed. */
+    Failure minimize(Failure failure) {
+        List<String> steps = new ArrayList<>(failure.steps());
+        String message = failure.message();
+        for (int chunk = Math.max(1, steps.size() / 2); chunk >= 1; ) {
+            boolean removed = false;
+            for (int i = 0; i + chunk <= steps.size(); ) {
+                List<String> trial = new ArrayList<>(steps.subList(0, i));
+                trial.addAll(steps.subList(i + chunk, steps.size()));
+                String trialMessage = check(trial);
+                if (trialMessage != null) {
+                    steps = trial;
+                    message = trialMessage;
+                    removed = true;
+                } else {
+                    i += chunk;
+                }
+            }
+            if (!removed) {
+                chunk /= 2;
+            }
+        }
+        return new Failure(failure.seed(), steps, message);
+    }
+
+    /** Append the next steps of a game on REF to STEPS, using RANDOM:
+     *  usually a legal move, but sometimes a random move, pass or block
+     *  that is probably illegal, and sometimes the undoing of several
+     *  moves.  When the game is over, either undo moves or start a new
+     *  game. */
+    private static void nextSteps(Random random, ReferenceBoard ref,
+                                  List<String> steps) {
+        int choice = random.nextInt(100);
+        if (ref.gameOver() && random.nextInt(RESTART_ODDS) == 0) {
+            steps.add("clear");
+            addBlocks(random, steps);
+        } else if (ref.gameOver() || choice < UNDO_PERCENT) {
+            for (int n = 1 + random.nextInt(MAX_UNDOS); n > 0; n -= 1) {
+                steps.add("undo");
+            }
+        } else if (choice < UNDO_PERCENT + PROBE_PERCENT) {
+            steps.add(Move.fromId(1 + random.nextInt(Move.NUM_IDS - 1))
+                      .toString());
+        } else if (choice < UNDO_PERCENT + PROBE_PERCENT + 1) {
+            steps.add("-");
+        } else if (choice < UNDO_PERCENT + PROBE_PERCENT + 2) {
+            steps.add("block " + randomSquare(random));
+        } else {
+            List<Move> moves = ref.legalMoves(ref.whoseMove());
+            steps.add(moves.isEmpty() ? "-"
+                      : moves.get(random.nextInt(moves.size())).toString());
+        }
+    }
+
+    /** Append a random number of random block placements to STEPS, using
+     *  RANDOM. */
+    private static void addBlocks(Random random, List<String> steps) {
+        for (int n = random.nextInt(MAX_BLOCKS + 1); n > 0; n -= 1) {
+            steps.add("block " + randomSquare(random));
+        }
+    }
+
+    /** Return a random square of the board, using RANDOM. */
+    private static String randomSquare(Random random) {
+        return "" + (char) ('a' + random.nextInt(Board.SIDE))
+            + (char) ('1' + random.nextInt(Board.SIDE));
+    }
+
+    /** Return true iff a divergence has been found in a game with a
+     *  seed less than SEED. */
+    private synchronized boolean failedBefore(long seed) {
+        return _failure != null && _failure.seed() < seed;
+    }
+
+    /** Record FAILURE if it is from the earliest game to fail so far. */
+    private synchronized void report(Failure failure) {
+        if (_failure == null || failure.seed() < _failure.seed()) {
+            _failure = failure;
+        }
+    }
+
+    /** Return a supplier of new instances of the Board subclass named
+     *  NAME, exiting if there is none. */
+    private static Supplier<Board> candidates(String name) {
+        try {
+            Class<? extends Board> cls =
+                Class.forName(name).asSubclass(Board.class);
+            cls.getDeclaredConstructor().newInstance();
+            return () -> {
+                try {
+                    return cls.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException excp) {
+                    throw new IllegalStateException(excp);
+                }
+            };
+        } catch (ReflectiveOperationException | ClassCastException excp) {
+            System.err.printf("Cannot use %s as a Board: %s%n", name, excp);
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /** A reference board and a candidate, to which steps are applied
+     *  together. */
+    private static class Lockstep {
+        /** Boards starting with CANDIDATE. */
+        Lockstep(Board candidate) {
+            _candidate = candidate;
+        }
+
+        /** Apply STEP to both boards, returning a description of the
+         *  first difference between them that results, or null if there
+         *  is none. */
+        String apply(String step) {
+            ReferenceBoard ref = _reference;
+            Board cand = _candidate;
+            try {
+                if (step.equals("clear")) {
+                    ref.clear();
+                    cand.clear();
+                } else if (step.equals("undo")) {
+                    if (ref.allMoves().isEmpty()) {
+                        return null;
+                    }
+                    ref.undo();
+                    cand.undo();
+                } else if (step.startsWith("block ")) {
+                    char c = step.charAt(6), r = step.charAt(7);
+                    boolean legal = ref.legalBlock(c, r);
+                    if (legal) {
+                        ref.setBlock(c, r);
+                    }
+                    if (accepted(() -> cand.setBlock(c, r)) != legal) {
+                        return String.format("%s %s by the candidate only",
+                                             step, legal ? "rejected"
+                                             : "accepted");
+                    }
+                } else if (ref.gameOver()) {
+                    return null;
+                } else if (step.equals("-")) {
+                    boolean legal = !ref.canMove(ref.whoseMove());
+                    if (legal) {
+                        ref.makeMove(Move.pass());
+                    }
+                    if (accepted(() -> cand.makeMove(Move.pass())) != legal) {
+                        return String.format("pass %s by the candidate only",
+                                             legal ? "rejected" : "accepted");
+                    }
+                } else {
+                    Move move = Move.move(step.charAt(0), step.charAt(1),
+                                          step.charAt(3), step.charAt(4));
+                    boolean legal = ref.legalMove(move);
+                    if (cand.legalMove(move) != legal) {
+                        return String.format("%s is %slegal for the "
+                                             + "candidate only", step,
+                                             legal ? "il" : "");
+                    }
+                    if (legal) {
+                        ref.makeMove(move);
+                        cand.makeMove(move);
+                    }
+                }
+            } catch (RuntimeException | AssertionError excp) {
+                return String.format("%s: candidate threw %s", step, excp);
+            }
+            return compare();
+        }
+
+        /** Return true iff ACTION completes without a GameException. */
+        private static boolean accepted(Runnable action) {
+            try {
+                action.run();
+                return true;
+            } catch (GameException excp) {
+                return false;
+            }
+        }
+
+        /** Return a description of the first difference between the
+         *  states of the boards, or null if there is none. */
+        private String compare() {
+            ReferenceBoard ref = _reference;
+            Board cand = _candidate;
+            for (char c = 'a'; c <= 'g'; c += 1) {
+                for (char r = '1'; r <= '7'; r += 1) {
+                    if (ref.get(c, r) != cand.get(c, r)) {
+                        return differ("square " + c + r, ref.get(c, r),
+                                      cand.get(c, r));
+                    }
+                }
+            }
+            if (ref.whoseMove() != cand.whoseMove()) {
+                return differ("whoseMove", ref.whoseMove(),
+                              cand.whoseMove());
+            }
+            for (PieceColor color : new PieceColor[] { RED, BLUE }) {
+                if (ref.numPieces(color) != cand.numPieces(color)) {
+                    return differ("numPieces(" + color + ")",
+                                  ref.numPieces(color),
+                                  cand.numPieces(color));
+                }
+                if (ref.canMove(color) != cand.canMove(color)) {
+                    return differ("canMove(" + color + ")",
+                                  ref.canMove(color), cand.canMove(color));
+                }
+            }
+            if (ref.numMoves() != cand.numMoves()) {
+                return differ("numMoves", ref.numMoves(), cand.numMoves());
+            }
+            if (ref.numJumps() != cand.numJumps()) {
+                return differ("numJumps", ref.numJumps(), cand.numJumps());
+            }
+            if (ref.gameOver() != cand.gameOver()) {
+                return differ("gameOver", ref.gameOver(), cand.gameOver());
+            }
+            if (!ref.allMoves().equals(cand.allMoves())) {
+                return differ("allMoves", ref.allMoves(), cand.allMoves());
+            }
+            _scratch.setPosition(cand.positionString());
+            if (_scratch.key() != cand.key()) {
+                return String.format("key %x differs from %x, computed from"
+                                     + " scratch", cand.key(),
+                                     _scratch.key());
+            }
+            return null;
+        }
+
+        /** Return a message saying that the values of PROPERTY, REF on
+         *  the reference and CAND on the candidate, differ. */
+        private static String differ(String property, Object ref,
+                                     Object cand) {
+            return String.format("%s is %s, but %s on the candidate",
+                                 property, ref, cand);
+        }
+
+        /** The reference board. */
+        private final ReferenceBoard _reference = new ReferenceBoard();
+        /** The candidate board. */
+        private final Board _candidate;
+        /** Used to compute keys from scratch. */
+        private final Board _scratch = new Board();
+    }
+
+    /** Default number of steps to take. */
+    static final long DEFAULT_STEPS = 1_000_000;
+    /** Number of steps in a game. */
+    static final int GAME_STEPS = 1000;
+    /** Percentage of steps that undo moves. */
+    private static final int UNDO_PERCENT = 5;
+    /** Percentage of steps that try random, probably illegal, moves. */
+    private static final int PROBE_PERCENT = 10;
+    /** Largest number of moves undone at once. */
+    private static final int MAX_UNDOS = 8;
+    /** Largest number of blocks placed at the start of a game. */
+    private static final int MAX_BLOCKS = 4;
+    /** Odds against starting a new game when one ends, rather than
+     *  undoing moves. */
+    private static final int RESTART_ODDS = 4;
+
+    /** Makes the candidate boards. */
+    private final Supplier<Board> _candidates;
+    /** Steps taken in games that did not fail. */
+    private final AtomicLong _steps = new AtomicLong();
+    /** Games played that did not fail. */
+    private final AtomicLong _games = new AtomicLong();
+    /** The divergence in the game with the smallest seed, if any. */
+    private Failure _failure;
+}
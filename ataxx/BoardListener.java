@@ -0,0 +1,11 @@
+package ataxx;
+
+/** An object that is told of each change to the Boards it listens to.
+ *  @author Carson Trinh
+ */
+interface BoardListener {
+
+    /** Respond to EVENT, a change to event.board().  Called on the thread
+     *  that changed the board, after the change is complete. */
+    void boardChanged(BoardEvent event);
+}
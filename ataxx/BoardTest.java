@@ -3,6 +3,9 @@ package ataxx;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /** Tests of the Board class.
  *  @author
  */
@@ -51,4 +54,157 @@ public class BoardTest {
         assertEquals("second pass failed to reach same position", b2, b0);
     }
 
+    @Test
+    public void testUndoJumps() {
+        Board b = new Board();
+        b.setPosition("r-----b/-------/-------/-------/-------/-------/"
+                      + "b-----r r 5");
+        b.makeMove('a', '7', 'c', '7');
+        assertEquals(6, b.numJumps());
+        b.makeMove('a', '1', 'a', '2');
+        assertEquals(0, b.numJumps());
+        b.undo();
+        assertEquals(6, b.numJumps());
+        b.undo();
+        assertEquals(5, b.numJumps());
+    }
+
+    @Test
+    public void testBadPosition() {
+        Board b = new Board();
+        b.makeMove('a', '7', 'a', '6');
+        String before = b.positionString();
+        String[] bad = {
+            "rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/rrrrrrr/rrrrrr? b",
+            "r-----b/-------/-------/-------/-------/-------/b-----r r -1",
+            "r-----b/-------/-------/-------/-------/-------/b-----r r 26",
+            "r-----b/-------/-------/-------/-------/-------/b-----r r x",
+        };
+        for (String position : bad) {
+            try {
+                b.setPosition(position);
+                fail("accepted " + position);
+            } catch (GameException excp) {
+                assertEquals("board changed by " + position, before,
+                             b.positionString());
+                assertEquals(1, b.numMoves());
+            }
+        }
+        b.setPosition("r-----b/-------/-------/-------/-------/-------/"
+                      + "b-----r r 25");
+        assertEquals(25, b.numJumps());
+        assertTrue(b.gameOver());
+    }
+
+    /** A Board that miscounts long runs of jumps. */
+    static class MiscountingBoard extends Board {
+        @Override
+        int numJumps() {
+            return Math.min(super.numJumps(), 3);
+        }
+    }
+
+    @Test
+    public void testFuzz() {
+        BoardFuzzer fuzzer = new BoardFuzzer(Board::new);
+        assertNull(fuzzer.run(0, 20 * BoardFuzzer.GAME_STEPS, 2));
+        assertEquals(20, fuzzer.games());
+
+        fuzzer = new BoardFuzzer(MiscountingBoard::new);
+        BoardFuzzer.Failure failure = fuzzer.play(0);
+        assertNotNull(failure);
+        BoardFuzzer.Failure minimal = fuzzer.minimize(failure);
+        assertNotNull(fuzzer.check(minimal.steps()));
+        assertTrue("not minimized: " + minimal.steps(),
+                   minimal.steps().size() < failure.steps().size());
+        for (int i = 0; i < minimal.steps().size(); i += 1) {
+            List<String> fewer = new ArrayList<>(minimal.steps());
+            fewer.remove(i);
+            assertNull(fuzzer.check(fewer));
+        }
+    }
+
+    @Test
+    public void testKey() {
+        Board b0 = new Board();
+        long k0 = b0.key();
+        makeMoves(b0, GAME1);
+        Board b1 = new Board();
+        b1.setPosition(b0.positionString());
+        assertEquals("position string lost information",
+                     b0.toString(), b1.toString());
+        assertEquals("equal positions have different keys",
+                     b0.key(), b1.key());
+        for (int i = 0; i < GAME1.length; i += 1) {
+            b0.undo();
+        }
+        assertEquals("undo did not restore key", k0, b0.key());
+        assertNotEquals("different positions have equal keys",
+                        k0, b1.key());
+    }
+
+    @Test
+    public void testEvents() {
+        Board b = new Board();
+        List<BoardEvent> events = new ArrayList<>();
+        BoardListener listener = events::add;
+        b.addListener(listener);
+        b.makeMove('a', '7', 'b', '7');
+        assertEquals(1, events.size());
+        BoardEvent e = events.get(0);
+        assertEquals(BoardEvent.Kind.MOVE, e.kind());
+        assertEquals(Move.move('a', '7', 'b', '7'), e.move());
+        assertEquals(1, e.numChanges());
+        assertEquals('b', e.col(0));
+        assertEquals('7', e.row(0));
+        assertEquals(PieceColor.EMPTY, e.oldColor(0));
+        assertEquals(PieceColor.RED, e.newColor(0));
+        b.undo();
+        e = events.get(1);
+        assertEquals(BoardEvent.Kind.UNDO, e.kind());
+        assertEquals(PieceColor.EMPTY, e.newColor(0));
+        b.setBlock('c', '3');
+        e = events.get(2);
+        assertEquals(BoardEvent.Kind.BLOCK, e.kind());
+        assertEquals(4, e.numChanges());
+        b.setNotifying(false);
+        makeMoves(b, GAME1);
+        assertEquals(3, events.size());
+        b.setNotifying(true);
+        assertEquals(BoardEvent.Kind.RESET, events.get(3).kind());
+        b.removeListener(listener);
+        b.clear();
+        assertEquals(4, events.size());
+    }
+
+    @Test
+    public void testLayout() {
+        Board b = new Board();
+        assertEquals(Board.SIDE * Board.SIDE, b.squares().length);
+        int a7 = Board.index('a', '7'), d4 = Board.index('d', '4');
+        assertEquals('a', Board.col(a7));
+        assertEquals('7', Board.row(a7));
+        assertEquals(3, b.adjacent(a7).length);
+        assertEquals(8, b.targets(a7).length);
+        assertEquals(24, b.targets(d4).length);
+        assertTrue(b.canMove(PieceColor.RED));
+        b.setBlock('b', '6');
+        b.setBlock('a', '6');
+        b.setBlock('b', '7');
+        b.setBlock('c', '5');
+        b.setBlock('c', '6');
+        b.setBlock('c', '7');
+        b.setBlock('a', '5');
+        b.setBlock('b', '5');
+        assertEquals(Board.SIDE * Board.SIDE - 32, b.squares().length);
+        assertEquals(0, b.adjacent(a7).length);
+        assertEquals(0, b.targets(a7).length);
+        assertEquals(8, b.targets(d4).length);
+        assertFalse(b.canMove(PieceColor.RED));
+        assertTrue(b.gameOver());
+        b.clear();
+        assertEquals(8, b.targets(a7).length);
+        assertTrue(b.canMove(PieceColor.RED));
+    }
+
 }
@@ -0,0 +1,143 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/** Provides command input from a ReadableByteChannel, such as a file,
+ *  read in large blocks.  Lines are found, stripped of comments and
+ *  trimmed directly in the byte buffer, so that blank and comment lines
+ *  cost no allocation, and moves and pass commands are returned as
+ *  shared Strings rather than new ones.  Intended for replaying long
+ *  scripts; it never prompts.
+ *  @author Carson Trinh
+ */
+class ChannelSource implements CommandSource {
+
+    /** A new source that reads from INPUT, closing it at its end. */
+    ChannelSource(ReadableByteChannel input) {
+        _input = input;
+        _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        _buffer.flip();
+    }
+
+    @Override
+    public String getLine(String unused) {
+        try {
+            while (true) {
+                byte[] bytes = _buffer.array();
+                int pos = _buffer.position(), limit = _buffer.limit();
+                int end = pos, comment = -1;
+                while (end < limit && bytes[end] != '\n') {
+                    if (bytes[end] == '#' && comment == -1) {
+                        comment = end;
+                    }
+                    end += 1;
+                }
+                if (end == limit && !_eof) {
+                    fill();
+                    continue;
+                }
+                if (pos == limit) {
+                    close();
+                    return null;
+                }
+                _buffer.position(Math.min(end + 1, limit));
+                int start = pos;
+                if (comment != -1) {
+                    end = comment;
+                }
+                while (start < end && (bytes[start] & 0xFF) <= ' ') {
+                    start += 1;
+                }
+                while (end > start && (bytes[end - 1] & 0xFF) <= ' ') {
+                    end -= 1;
+                }
+                if (start < end) {
+                    return toLine(bytes, start, end);
+                }
+            }
+        } catch (IOException excp) {
+            close();
+            return null;
+        }
+    }
+
+    /** Read more input into _buffer, keeping its unread contents, and
+     *  enlarging it if it is full. */
+    private void fill() throws IOException {
+        _buffer.compact();
+        if (!_buffer.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(_buffer.capacity() * 2);
+            _buffer.flip();
+            larger.put(_buffer);
+            _buffer = larger;
+        }
+        if (_input.read(_buffer) < 0) {
+            _eof = true;
+        }
+        _buffer.flip();
+    }
+
+    /** Close my channel. */
+    private void close() {
+        _eof = true;
+        _buffer.limit(0);
+        try {
+            _input.close();
+        } catch (IOException excp) {
+            /* Ignore IOException */
+        }
+    }
+
+    /** Return the line in BYTES[START .. END-1], using a shared String if
+     *  it is a move or pass. */
+    private static String toLine(byte[] bytes, int start, int end) {
+        int len = end - start;
+        if (len == 1 && bytes[start] == '-') {
+            return "-";
+        } else if (len == MOVE_LENGTH && bytes[start + 2] == '-'
+                   && isCol(bytes[start]) && isRow(bytes[start + 1])
+                   && isCol(bytes[start + 3]) && isRow(bytes[start + 4])) {
+            Move move = Move.move((char) bytes[start], (char) bytes[start + 1],
+                                  (char) bytes[start + 3],
+                                  (char) bytes[start + 4]);
+            if (move != null) {
+                return MOVE_TEXT[move.id()];
+            }
+        }
+        return new String(bytes, start, len, StandardCharsets.UTF_8);
+    }
+
+    /** Return true iff B is a column letter. */
+    private static boolean isCol(byte b) {
+        return b >= 'a' && b <= 'g';
+    }
+
+    /** Return true iff B is a row number. */
+    private static boolean isRow(byte b) {
+        return b >= '1' && b <= '7';
+    }
+
+    /** Initial size of the input buffer (bytes). */
+    private static final int BUFFER_SIZE = 1 << 20;
+    /** Length of the text of a move. */
+    private static final int MOVE_LENGTH = 5;
+
+    /** The text of each Move, indexed by id. */
+    private static final String[] MOVE_TEXT = new String[Move.NUM_IDS];
+
+    static {
+        for (int id = 0; id < Move.NUM_IDS; id += 1) {
+            MOVE_TEXT[id] = Move.fromId(id).toString();
+        }
+    }
+
+    /** Input source. */
+    private final ReadableByteChannel _input;
+    /** Input read but not yet returned, between position and limit. */
+    private ByteBuffer _buffer;
+    /** True once _input is exhausted. */
+    private boolean _eof;
+}
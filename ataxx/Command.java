@@ -1,10 +1,5 @@
 package ataxx;
 
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
-import static ataxx.PieceColor.*;
-
 /** All things to do with parsing commands.
  *  @author Carson Trinh
  */
@@ -13,50 +8,62 @@ class Command {
     /** Command types.  PIECEMOVE indicates a move of the form
      *  c0r0-c1r1.  ERROR indicates a parse error in the command.
      *  All other commands are upper-case versions of what the
-     *  programmer writes. */
+     *  programmer writes.  The syntax of each is given beside it, as
+     *  a regular expression matching the whole (trimmed) command;
+     *  parenthesized groups are the operands. */
     static enum Type {
         /* Start-up state only. */
-        AUTO("(?i)auto\\s+(red|blue)"),
-        BLOCK("block\\s+([a-g][1-7])"),
-        MANUAL("(?i)manual\\s+(red|blue)"),
-        SEED("seed\\s+(\\d+)"),
+        /** (?i)auto\s+(red|blue) */
+        AUTO,
+        /** block\s+([a-g][1-7]) */
+        BLOCK,
+        /** (?i)manual\s+(red|blue) */
+        MANUAL,
+        /** seed\s+(\d+) */
+        SEED,
+        /** start */
         START,
         /* Regular moves (set-up or play) */
-        PASS("pass|-"),
-        PIECEMOVE("([a-g])([1-7])-([a-g])([1-7])"),
+        /** pass|- */
+        PASS,
+        /** ([a-g])([1-7])-([a-g])([1-7]) */
+        PIECEMOVE,
         /* Valid at any time. */
-        LOAD("load\\s+(.+)"),
-        QUIT, CLEAR, DUMP, HELP,
+        /** load\s+(.+) */
+        LOAD,
+        /** quit, clear, dump, help, bench */
+        QUIT, CLEAR, DUMP, HELP, BENCH,
+        /* Reviewing moves (set-up or after a game). */
+        /** goto\s+(\d+) */
+        GOTO,
+        /** undo, redo */
+        UNDO, REDO,
+        /** explore */
+        EXPLORE,
+        /** metrics */
+        METRICS,
+        /** savehash */
+        SAVEHASH,
         /* Special "commands" internally generated. */
         /** Syntax error in command. */
-        ERROR(".*"),
+        ERROR,
         /** End of input stream. */
         EOF;
-
-        /** PATTERN is a regular expression string giving the syntax of
-         *  a command of the given type.  It matches the entire command,
-         *  assuming no leading or trailing whitespace.  The groups in
-         *  the pattern capture the operands (if any). */
-        Type(String pattern) {
-            _pattern = Pattern.compile(pattern + "$");
-        }
-
-        /** A Type whose pattern is the lower-case version of its name
-         *  (with no arguments). */
-        Type() {
-            _pattern = Pattern.compile(this.toString().toLowerCase() + "$");
-        }
-
-        /** The Pattern descrbing syntactically correct versions of this
-         *  type of command. */
-        private final Pattern _pattern;
-
     }
 
     /** A new Command of type TYPE with OPERANDS as its operands. */
     Command(Type type, String... operands) {
         _type = type;
         _operands = operands;
+        _move = null;
+    }
+
+    /** A new command of type TYPE denoting MOVE, which is a pass if
+     *  TYPE is PASS. */
+    private Command(Type type, Move move) {
+        _type = type;
+        _operands = NO_OPERANDS;
+        _move = move;
     }
 
     /** Return the type of this Command. */
@@ -64,34 +71,289 @@ class Command {
         return _type;
     }
 
-    /** Returns this Command's operands. */
+    /** Returns this Command's operands.  For a PIECEMOVE, these are the
+     *  four coordinates c0, r0, c1, r1. */
     String[] operands() {
+        if (_type == Type.PIECEMOVE && _move != null) {
+            return new String[] {
+                String.valueOf(_move.col0()), String.valueOf(_move.row0()),
+                String.valueOf(_move.col1()), String.valueOf(_move.row1())
+            };
+        }
         return _operands;
     }
 
-    /** Parse COMMAND, returning the command and its operands.
-     *  COMMAND is assumed to be trimmed of all leading and
-     *  trailing whitespace.  */
+    /** Return the move denoted by this Command if it is a PASS or a
+     *  PIECEMOVE that is possible on some board (that is, does not go more
+     *  than two squares in any direction), and otherwise null. */
+    Move move() {
+        return _move;
+    }
+
+    /** Return the shared Command of TYPE, which takes no operands. */
+    static Command of(Type type) {
+        return SIMPLE[type.ordinal()];
+    }
+
+    /** Return the shared PIECEMOVE or PASS command for MOVE. */
+    static Command of(Move move) {
+        return MOVES[move.id()];
+    }
+
+    /** Return the text of this Command, which parses as an equal
+     *  Command. */
+    @Override
+    public String toString() {
+        if (_move != null) {
+            return _move.toString();
+        }
+        String name = NAMES[_type.ordinal()];
+        if (_type == Type.PIECEMOVE) {
+            return String.format("%s%s-%s%s", (Object[]) _operands);
+        } else if (_operands.length == 0) {
+            return name;
+        } else {
+            return name + " " + String.join(" ", _operands);
+        }
+    }
+
+    /** Parse COMMAND, returning the command and its operands.  Leading
+     *  and trailing whitespace in COMMAND is ignored.  Commands without
+     *  operands and moves are represented by shared Command objects, so
+     *  parsing them allocates nothing. */
     static Command parseCommand(String command) {
         if (command == null) {
-            return new Command(Type.EOF);
+            return SIMPLE[Type.EOF.ordinal()];
         }
-        command = command.trim();
-        for (Type type : Type.values()) {
-            Matcher mat = type._pattern.matcher(command);
-            if (mat.matches()) {
-                String[] operands = new String [mat.groupCount()];
-                for (int i = 1; i <= operands.length; i += 1) {
-                    operands[i - 1] = mat.group(i);
+        int start, end;
+        start = 0;
+        end = command.length();
+        while (start < end && command.charAt(start) <= ' ') {
+            start += 1;
+        }
+        while (end > start && command.charAt(end - 1) <= ' ') {
+            end -= 1;
+        }
+        if (start == end) {
+            return SIMPLE[Type.ERROR.ordinal()];
+        }
+
+        int wordEnd = start;
+        while (wordEnd < end && !isSpace(command.charAt(wordEnd))) {
+            wordEnd += 1;
+        }
+        int arg = wordEnd;
+        while (arg < end && isSpace(command.charAt(arg))) {
+            arg += 1;
+        }
+        boolean hasArg = arg > wordEnd && arg < end;
+
+        char first = command.charAt(start);
+        switch (first) {
+        case '-':
+            return end - start == 1 ? SIMPLE[Type.PASS.ordinal()] : error();
+        case 'a':
+            if (hasArg && isWord(command, start, wordEnd, "auto", true)) {
+                return player(Type.AUTO, command, arg, end);
+            }
+            break;
+        case 'A':
+            if (hasArg && isWord(command, start, wordEnd, "auto", true)) {
+                return player(Type.AUTO, command, arg, end);
+            }
+            return error();
+        case 'm':
+            if (isWord(command, start, end, "metrics", false)) {
+                return SIMPLE[Type.METRICS.ordinal()];
+            }
+            if (hasArg && isWord(command, start, wordEnd, "manual", true)) {
+                return player(Type.MANUAL, command, arg, end);
+            }
+            return error();
+        case 'M':
+            if (hasArg && isWord(command, start, wordEnd, "manual", true)) {
+                return player(Type.MANUAL, command, arg, end);
+            }
+            return error();
+        case 'b':
+            if (end - start == 5 && command.charAt(start + 1) == 'e') {
+                return simple(Type.BENCH, command, start, end);
+            }
+            if (hasArg && isWord(command, start, wordEnd, "block", false)) {
+                if (end - arg == 2 && isCol(command.charAt(arg))
+                    && isRow(command.charAt(arg + 1))) {
+                    return new Command(Type.BLOCK,
+                                       command.substring(arg, end));
                 }
-                return new Command(type, operands);
+                return error();
+            }
+            break;
+        case 's':
+            if (hasArg && isWord(command, start, wordEnd, "seed", false)) {
+                return number(Type.SEED, command, arg, end);
+            }
+            if (end - start == 8 && command.charAt(start + 1) == 'a') {
+                return simple(Type.SAVEHASH, command, start, end);
+            }
+            return simple(Type.START, command, start, end);
+        case 'p':
+            return simple(Type.PASS, command, start, end);
+        case 'l':
+            if (hasArg && isWord(command, start, wordEnd, "load", false)) {
+                return new Command(Type.LOAD, command.substring(arg, end));
             }
+            return error();
+        case 'q':
+            return simple(Type.QUIT, command, start, end);
+        case 'c':
+            if (end - start == 5 && command.charAt(start + 2) == 'e') {
+                return simple(Type.CLEAR, command, start, end);
+            }
+            break;
+        case 'd':
+            if (end - start == 4 && command.charAt(start + 1) == 'u') {
+                return simple(Type.DUMP, command, start, end);
+            }
+            break;
+        case 'h':
+            return simple(Type.HELP, command, start, end);
+        case 'g':
+            if (hasArg && isWord(command, start, wordEnd, "goto", false)) {
+                return number(Type.GOTO, command, arg, end);
+            }
+            break;
+        case 'u':
+            return simple(Type.UNDO, command, start, end);
+        case 'e':
+            if (isWord(command, start, end, "explore", false)) {
+                return SIMPLE[Type.EXPLORE.ordinal()];
+            }
+            break;
+        case 'r':
+            return simple(Type.REDO, command, start, end);
+        default:
+            break;
+        }
+        return pieceMove(command, start, end);
+    }
+
+    /** Return the PIECEMOVE command spelled by COMMAND[START .. END-1],
+     *  or an ERROR command if there is none. */
+    private static Command pieceMove(String command, int start, int end) {
+        if (end - start != 5 || command.charAt(start + 2) != '-') {
+            return error();
+        }
+        char c0 = command.charAt(start), r0 = command.charAt(start + 1),
+            c1 = command.charAt(start + 3), r1 = command.charAt(start + 4);
+        if (!isCol(c0) || !isRow(r0) || !isCol(c1) || !isRow(r1)) {
+            return error();
+        }
+        Move move = Move.move(c0, r0, c1, r1);
+        if (move == null) {
+            return new Command(Type.PIECEMOVE,
+                               String.valueOf(c0), String.valueOf(r0),
+                               String.valueOf(c1), String.valueOf(r1));
+        }
+        return MOVES[move.id()];
+    }
+
+    /** Return a command of type TYPE (AUTO or MANUAL) whose operand is the
+     *  player named by COMMAND[START .. END-1], or an ERROR command if
+     *  that is not a player's name. */
+    private static Command player(Type type, String command,
+                                  int start, int end) {
+        if (isWord(command, start, end, "red", true)
+            || isWord(command, start, end, "blue", true)) {
+            return new Command(type, command.substring(start, end));
+        }
+        return error();
+    }
+
+    /** Return a command of type TYPE whose operand is COMMAND[START ..
+     *  END-1] if that is a string of decimal digits, and otherwise an
+     *  ERROR command. */
+    private static Command number(Type type, String command,
+                                  int start, int end) {
+        for (int i = start; i < end; i += 1) {
+            if (command.charAt(i) < '0' || command.charAt(i) > '9') {
+                return error();
+            }
+        }
+        return new Command(type, command.substring(start, end));
+    }
+
+    /** Return the shared Command of type TYPE if COMMAND[START .. END-1] is
+     *  its name, and otherwise an ERROR command. */
+    private static Command simple(Type type, String command,
+                                  int start, int end) {
+        String name = type == Type.PASS ? "pass" : NAMES[type.ordinal()];
+        if (isWord(command, start, end, name, false)) {
+            return SIMPLE[type.ordinal()];
         }
-        throw new Error("Internal failure: error command did not match.");
+        return error();
+    }
+
+    /** Return the shared ERROR command. */
+    private static Command error() {
+        return SIMPLE[Type.ERROR.ordinal()];
+    }
+
+    /** Return true iff COMMAND[START .. END-1] is WORD, ignoring case
+     *  iff IGNORECASE. */
+    private static boolean isWord(String command, int start, int end,
+                                  String word, boolean ignoreCase) {
+        return end - start == word.length()
+            && command.regionMatches(ignoreCase, start, word, 0,
+                                     word.length());
+    }
+
+    /** Return true iff C is whitespace, as for \s in a regular
+     *  expression. */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+            || c == '\f' || c == '\r';
+    }
+
+    /** Return true iff C is a column letter. */
+    private static boolean isCol(char c) {
+        return c >= 'a' && c <= 'g';
+    }
+
+    /** Return true iff C is a row number. */
+    private static boolean isRow(char c) {
+        return c >= '1' && c <= '7';
     }
 
     /** The command name. */
     private final Type _type;
     /** Command arguments. */
     private final String[] _operands;
+    /** The move denoted by this command, if any. */
+    private final Move _move;
+
+    /** Operands of commands that have none. */
+    private static final String[] NO_OPERANDS = new String[0];
+
+    /** Lower-case names of the command types, indexed by ordinal. */
+    private static final String[] NAMES = new String[Type.values().length];
+
+    /** Shared commands of each type without operands, indexed by
+     *  ordinal. */
+    private static final Command[] SIMPLE =
+        new Command[Type.values().length];
+
+    /** Shared PIECEMOVE and PASS commands, indexed by Move id. */
+    private static final Command[] MOVES = new Command[Move.NUM_IDS];
+
+    static {
+        for (Type type : Type.values()) {
+            NAMES[type.ordinal()] = type.toString().toLowerCase();
+            SIMPLE[type.ordinal()] = new Command(type, NO_OPERANDS);
+        }
+        SIMPLE[Type.PASS.ordinal()] = new Command(Type.PASS, Move.pass());
+        MOVES[0] = SIMPLE[Type.PASS.ordinal()];
+        for (int id = 1; id < Move.NUM_IDS; id += 1) {
+            MOVES[id] = new Command(Type.PIECEMOVE, Move.fromId(id));
+        }
+    }
 }
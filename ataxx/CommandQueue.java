@@ -0,0 +1,132 @@
+package ataxx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/** A bounded queue of parsed Commands, supplied by any number of threads
+ *  (such as a GUI's event thread) and consumed by one (a Game's), which
+ *  serves as the Game's CommandSource.  Offering and taking Commands
+ *  takes no locks: producers claim a slot in a ring buffer by advancing
+ *  a shared tail counter, and the consumer, which alone advances the
+ *  head, parks only when the queue is empty and is unparked by the next
+ *  producer.
+ *  @author Carson Trinh
+ */
+class CommandQueue implements CommandSource {
+
+    /** A queue holding at most CAPACITY Commands, which must be a power
+     *  of 2. */
+    CommandQueue(int capacity) {
+        assert capacity > 0 && (capacity & (capacity - 1)) == 0;
+        _slots = new AtomicReferenceArray<>(capacity);
+        _mask = capacity - 1;
+    }
+
+    /** Add CMND to the end of the queue, returning true, or return false
+     *  if the queue is full or closed. */
+    boolean offer(Command cmnd) {
+        while (true) {
+            if (_closed) {
+                return false;
+            }
+            long tail = _tail.get();
+            if (tail - _head >= _slots.length()) {
+                return false;
+            }
+            if (_tail.compareAndSet(tail, tail + 1)) {
+                _slots.set((int) tail & _mask, cmnd);
+                Thread waiter = _waiter;
+                if (waiter != null) {
+                    LockSupport.unpark(waiter);
+                }
+                return true;
+            }
+        }
+    }
+
+    /** Add CMND to the end of the queue, waiting while it is full,
+     *  returning true, or return false if the queue is closed or the
+     *  calling thread is interrupted first. */
+    boolean put(Command cmnd) {
+        while (!offer(cmnd)) {
+            if (_closed || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(this, PUT_WAIT);
+        }
+        return true;
+    }
+
+    /** Close the queue: Commands already offered may still be taken,
+     *  after which the consumer receives an EOF command. */
+    void close() {
+        _closed = true;
+        Thread waiter = _waiter;
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /** Return the next Command, waiting for one if necessary, or an EOF
+     *  command if the queue is closed and empty.  Must only be called
+     *  from one thread at a time. */
+    @Override
+    public Command getCommand(String unused) {
+        while (true) {
+            Command cmnd = poll();
+            if (cmnd != null) {
+                return cmnd;
+            }
+            if (_closed && _tail.get() == _head) {
+                return Command.parseCommand(null);
+            }
+            _waiter = Thread.currentThread();
+            cmnd = poll();
+            if (cmnd == null && !_closed) {
+                LockSupport.park(this);
+            }
+            _waiter = null;
+            if (cmnd != null) {
+                return cmnd;
+            }
+        }
+    }
+
+    @Override
+    public String getLine(String prompt) {
+        Command cmnd = getCommand(prompt);
+        return cmnd.commandType() == Command.Type.EOF ? null
+            : cmnd.toString();
+    }
+
+    /** Remove and return the Command at the head of the queue, or return
+     *  null if there is none yet. */
+    private Command poll() {
+        int slot = (int) _head & _mask;
+        Command cmnd = _slots.get(slot);
+        if (cmnd != null) {
+            _slots.lazySet(slot, null);
+            _head += 1;
+        }
+        return cmnd;
+    }
+
+    /** Time between attempts by put to add to a full queue (nsec). */
+    private static final long PUT_WAIT = 1_000_000;
+
+    /** The ring buffer.  Slot K & _mask holds the Kth Command offered
+     *  until it is taken, and is otherwise null. */
+    private final AtomicReferenceArray<Command> _slots;
+    /** Mask giving the slot of a sequence number. */
+    private final int _mask;
+    /** Sequence number of the next Command to be taken.  Written only by
+     *  the consumer. */
+    private volatile long _head;
+    /** Sequence number of the next Command to be offered. */
+    private final AtomicLong _tail = new AtomicLong();
+    /** The consumer, while it is waiting for a Command, or null. */
+    private volatile Thread _waiter;
+    /** True once the queue is closed. */
+    private volatile boolean _closed;
+}
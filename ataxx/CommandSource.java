@@ -11,4 +11,24 @@ interface CommandSource {
      *  PROMPT suggests a prompt string that might be used, if
      *  appropriate to the input method. */
     String getLine(String prompt);
+
+    /** Return the next command from the input stream, or an EOF command
+     *  when input is exhausted.  PROMPT is as for getLine.  By default,
+     *  parses the next line that is not blank once comments are removed;
+     *  sources that already hold parsed Commands override this to avoid
+     *  formatting and re-parsing them. */
+    default Command getCommand(String prompt) {
+        while (true) {
+            String line = getLine(prompt);
+            if (line == null) {
+                return Command.parseCommand(null);
+            }
+            if (line.indexOf('#') != -1) {
+                line = line.substring(0, line.indexOf('#'));
+            }
+            if (!line.isBlank()) {
+                return Command.parseCommand(line);
+            }
+        }
+    }
 }
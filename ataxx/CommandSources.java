@@ -5,30 +5,20 @@ import java.util.Stack;
 /** Provides command input from a stack of CommandSource objects.
  *  @author P. N. Hilfinger
  */
-class CommandSources implements CommandSource {
+class CommandSources {
 
-    /** Read and return a line of input from the input stream,
-     *  removing comments and leading and trailing whitespace,
-     *  and skipping blank lines.  Returns null when input exhausted.
-     *  PROMPT suggests a prompt string that might be used, if
-     *  appropriate to the input method. */
-    public String getLine(String prompt) {
+    /** Return the next command from the most recent source that is not
+     *  exhausted, or an EOF command if all are.  PROMPT is as for
+     *  CommandSource.getLine. */
+    Command getCommand(String prompt) {
         while (!_inputs.isEmpty()) {
-            String line;
-            line = _inputs.peek().getLine(prompt);
-            if (line != null) {
-                if (line.indexOf('#') != -1) {
-                    line = line.substring(0, line.indexOf('#'));
-                }
-                line = line.trim();
-                if (line.length() > 0) {
-                    return line;
-                }
-            } else {
-                _inputs.pop();
+            Command cmnd = _inputs.peek().getCommand(prompt);
+            if (cmnd.commandType() != Command.Type.EOF) {
+                return cmnd;
             }
+            _inputs.pop();
         }
-        return null;
+        return Command.parseCommand(null);
     }
 
     /** Make SOURCE the latest input source from which subsequent input
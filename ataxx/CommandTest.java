@@ -76,12 +76,113 @@ public class CommandTest {
 
     @Test public void testMOVE() {
         check("a3-b3", PIECEMOVE, "a", "3", "b", "3");
+        check(" g7-e5\t", PIECEMOVE, "g", "7", "e", "5");
+        check("a1-g7", PIECEMOVE, "a", "1", "g", "7");
+        assertSame("wrong move", Move.move('a', '3', 'b', '3'),
+                   Command.parseCommand("a3-b3").move());
+        assertNull("impossible move", Command.parseCommand("a1-g7").move());
         checkError("a3b3");
         checkError("a3-b3 foo");
         checkError("3a-3b");
         checkError("h3-g3");
         checkError("a0-a1");
         checkError("a7-a8");
+        checkError("a7-a6-");
+        checkError("A7-a6");
+    }
+
+    @Test public void testOTHERS() {
+        check("load  foo bar", LOAD, "foo bar");
+        checkError("load");
+        check("dump", DUMP);
+        check("help", HELP);
+        checkError("dumpy");
+        checkError("Start");
+        check("manual Blue", MANUAL, "Blue");
+        checkError("manual\tgreen");
+        check("   ", ERROR);
+        check(null, EOF);
+    }
+
+    @Test public void testREVIEW() {
+        check("goto 12", GOTO, "12");
+        checkError("goto");
+        checkError("goto -1");
+        check("undo", UNDO);
+        check("redo ", REDO);
+        checkError("redoo");
+        check("g7-e5", PIECEMOVE, "g", "7", "e", "5");
+        check("explore", EXPLORE);
+        check("savehash", SAVEHASH);
+        check("e5-e3", PIECEMOVE, "e", "5", "e", "3");
+    }
+
+    @Test public void testBENCH() {
+        check("bench", BENCH);
+        check(" bench ", BENCH);
+        checkError("benchmark");
+        checkError("block");
+        check("b1-b3", PIECEMOVE, "b", "1", "b", "3");
+    }
+
+    @Test public void testMETRICS() {
+        check("metrics", METRICS);
+        check(" metrics ", METRICS);
+        checkError("metric");
+        check("manual red", MANUAL, "red");
+    }
+
+    @Test public void testText() {
+        String[] commands = {
+            "auto red", "seed 42", "block c3", "a7-b6", "-", "goto 3",
+            "undo", "load foo.inp", "start"
+        };
+        for (String text : commands) {
+            assertEquals(text, Command.parseCommand(text).toString());
+        }
+    }
+
+    @Test public void testQueue() throws InterruptedException {
+        CommandQueue queue = new CommandQueue(4);
+        final int n = 10000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; i += 1) {
+                Command cmnd = new Command(SEED, Integer.toString(i));
+                while (!queue.offer(cmnd)) {
+                    Thread.yield();
+                }
+            }
+            queue.close();
+        });
+        producer.start();
+        for (int i = 0; i < n; i += 1) {
+            Command cmnd = queue.getCommand(null);
+            assertEquals(SEED, cmnd.commandType());
+            assertEquals(Integer.toString(i), cmnd.operands()[0]);
+        }
+        assertEquals(EOF, queue.getCommand(null).commandType());
+        producer.join();
+        assertFalse("offered to closed queue",
+                    queue.offer(Command.of(QUIT)));
+    }
+
+    @Test public void testQueuePut() throws InterruptedException {
+        CommandQueue queue = new CommandQueue(2);
+        assertTrue(queue.offer(Command.of(UNDO)));
+        assertTrue(queue.offer(Command.of(REDO)));
+        assertFalse("offered to full queue", queue.offer(Command.of(HELP)));
+        boolean[] put = { false };
+        Thread producer = new Thread(() -> {
+            put[0] = queue.put(Command.of(QUIT));
+        });
+        producer.start();
+        assertEquals(UNDO, queue.getCommand(null).commandType());
+        assertEquals(REDO, queue.getCommand(null).commandType());
+        assertEquals(QUIT, queue.getCommand(null).commandType());
+        producer.join();
+        assertTrue(put[0]);
+        queue.close();
+        assertFalse("put to closed queue", queue.put(Command.of(QUIT)));
     }
 
 }
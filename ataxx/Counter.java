@@ -0,0 +1,23 @@
+package ataxx;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** A count of events, which may be incremented from any number of
+ *  threads without locking or allocation.
+ *  @author Carson Trinh
+ */
+class Counter implements CounterMXBean {
+
+    /** Count one event. */
+    void increment() {
+        _count.increment();
+    }
+
+    @Override
+    public long getCount() {
+        return _count.sum();
+    }
+
+    /** The count. */
+    private final LongAdder _count = new LongAdder();
+}
@@ -0,0 +1,10 @@
+package ataxx;
+
+/** The management interface of a Counter.
+ *  @author Carson Trinh
+ */
+public interface CounterMXBean {
+
+    /** Return the count. */
+    long getCount();
+}
@@ -0,0 +1,144 @@
+package ataxx;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/** Java Flight Recorder events for the engine, the board and the game,
+ *  so that standard JFR recordings can relate the engine's behavior to
+ *  GC pauses, safepoints and the like.  Each event is created, timed and
+ *  committed where it occurs.  A disabled event still costs an object
+ *  (and, the first time, its class), which the JIT cannot be relied on to
+ *  remove, so the search creates its events only once Flight Recorder
+ *  has been started (see recording()).  Duration events carry
+ *  thresholds, so that by default only slow operations are recorded.
+ *  @author Carson Trinh
+ */
+class Events {
+
+    /** Not instantiable. */
+    private Events() {
+    }
+
+    /** Return true iff Flight Recorder has been started in this process,
+     *  so that events may be recorded.  Until it has, code on the search
+     *  path skips creating its events. */
+    static boolean recording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    /** A search for an AI's move. */
+    @Name("ataxx.Search")
+    @Label("AI Search")
+    @Category({ "Ataxx", "Search" })
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static class Search extends Event {
+        /** The player searching. */
+        @Label("Player")
+        String player;
+        /** Depth searched to. */
+        @Label("Depth")
+        int depth;
+        /** Value of the position found, from Red's point of view. */
+        @Label("Score")
+        int score;
+        /** Positions visited. */
+        @Label("Nodes")
+        long nodes;
+        /** Move chosen. */
+        @Label("Move")
+        String move;
+    }
+
+    /** One iteration of an iterative-deepening search. */
+    @Name("ataxx.SearchIteration")
+    @Label("Search Iteration")
+    @Category({ "Ataxx", "Search" })
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static class SearchIteration extends Event {
+        /** Depth of the iteration. */
+        @Label("Depth")
+        int depth;
+        /** Value found, from Red's point of view. */
+        @Label("Score")
+        int score;
+        /** Positions visited by the whole search so far. */
+        @Label("Nodes")
+        long nodes;
+        /** Best move found. */
+        @Label("Best Move")
+        String move;
+    }
+
+    /** Clearing a board to the initial position. */
+    @Name("ataxx.BoardCleared")
+    @Label("Board Cleared")
+    @Category({ "Ataxx", "Board" })
+    @Enabled(false)
+    @StackTrace(false)
+    static class BoardCleared extends Event {
+    }
+
+    /** Placing a block and its reflections. */
+    @Name("ataxx.BlockPlaced")
+    @Label("Block Placed")
+    @Category({ "Ataxx", "Board" })
+    @StackTrace(false)
+    static class BlockPlaced extends Event {
+        /** The square given. */
+        @Label("Square")
+        String square;
+    }
+
+    /** Executing a command. */
+    @Name("ataxx.Command")
+    @Label("Command Executed")
+    @Category({ "Ataxx", "Game" })
+    @Threshold("1 ms")
+    @StackTrace(false)
+    static class CommandExecuted extends Event {
+        /** Type of the command. */
+        @Label("Type")
+        String type;
+    }
+
+    /** Making a move in a game. */
+    @Name("ataxx.Move")
+    @Label("Move Applied")
+    @Category({ "Ataxx", "Game" })
+    @StackTrace(false)
+    static class MoveApplied extends Event {
+        /** The move. */
+        @Label("Move")
+        String move;
+        /** The player who made it. */
+        @Label("Player")
+        String player;
+        /** Number of moves made in the game, including this one. */
+        @Label("Moves")
+        int moves;
+    }
+
+    /** The end of a game. */
+    @Name("ataxx.GameFinished")
+    @Label("Game Finished")
+    @Category({ "Ataxx", "Game" })
+    @Description("A game ended; winner is 'none' for a draw")
+    @StackTrace(false)
+    static class GameFinished extends Event {
+        /** The winner, or "none". */
+        @Label("Winner")
+        String winner;
+        /** Number of moves in the game. */
+        @Label("Moves")
+        int moves;
+    }
+}
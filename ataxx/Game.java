@@ -5,11 +5,18 @@ package ataxx;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.HashMap;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import static ataxx.PieceColor.*;
 import static ataxx.Game.State.*;
@@ -21,20 +28,32 @@ import static ataxx.GameException.error;
  */
 class Game {
 
-    /** States of play. */
+    /** States of play.  CLOSED indicates that the session has
+     *  ended. */
     static enum State {
-        SETUP, PLAYING, FINISHED;
+        SETUP, PLAYING, FINISHED, CLOSED;
     }
 
     /** A new Game, using BOARD to play on, reading initially from
      *  BASESOURCE and using REPORTER for error and informational messages. */
     Game(Board board, CommandSource baseSource, Reporter reporter) {
+        this(board, baseSource, reporter, null);
+    }
+
+    /** A new Game, using BOARD to play on, reading initially from
+     *  BASESOURCE and using REPORTER for error and informational messages.
+     *  Searches by AI players run on SEARCHPOOL, or on the thread calling
+     *  process if SEARCHPOOL is null. */
+    Game(Board board, CommandSource baseSource, Reporter reporter,
+         Executor searchPool) {
         _inputs.addSource(baseSource);
         _board = board;
         _reporter = reporter;
+        _searchPool = searchPool;
     }
 
-    /** Run a session of Ataxx gaming.  Use an AtaxxGUI iff USEGUI. */
+    /** Run a session of Ataxx gaming until a quit command or the end of
+     *  input.  Use an AtaxxGUI iff USEGUI. */
     void process(boolean useGUI) {
         Player red = null, blue = null;
 
@@ -49,6 +68,9 @@ class Game {
             while (_state == SETUP) {
                 doCommand();
             }
+            if (_state == CLOSED) {
+                return;
+            }
 
             _state = PLAYING;
             if (isRedAuto) {
@@ -62,7 +84,7 @@ class Game {
                 blue = new Manual(this, BLUE);
             }
             _board.clearStart();
-            while (_state != SETUP && !_board.gameOver()) {
+            while (_state == PLAYING && !_board.gameOver()) {
                 try {
                     Move move;
                     if (_board.whoseMove() == RED) {
@@ -71,7 +93,7 @@ class Game {
                         move = blue.myMove();
                     }
                     if (_state == PLAYING) {
-                        _board.makeMove(move);
+                        makeMove(move);
                     }
                 } catch (GameException excp) {
                     _reporter.errMsg(excp.getMessage());
@@ -82,20 +104,70 @@ class Game {
                 }
             }
 
-            if (_state != SETUP) {
-                reportWinner();
-            }
-
             if (_state == PLAYING) {
+                reportWinner();
+                archive();
                 _state = FINISHED;
             }
 
             while (_state == FINISHED) {
                 doCommand();
             }
+            if (_state == CLOSED) {
+                return;
+            }
         }
     }
 
+    /** Append a record of each game I finish to ARCHIVE, if it is not
+     *  null. */
+    void setArchive(GameArchiveWriter archive) {
+        _archive = archive;
+    }
+
+    /** Use DATABASE, if it is not null, to answer 'explore'
+     *  commands. */
+    void setDatabase(PositionIndex database) {
+        _database = database;
+    }
+
+    /** Let my AI players share search results through CACHE, if it is
+     *  not null, with those of other Games using it. */
+    void setSharedCache(SharedCache cache) {
+        _sharedCache = cache;
+    }
+
+    /** Treat my commands as coming from a remote client iff REMOTE, and
+     *  so refuse those that use the host's files ('load' and
+     *  'savehash'). */
+    void setRemote(boolean remote) {
+        _remote = remote;
+    }
+
+    /** Save my shared cache to FILE, if it is not null, on a 'savehash'
+     *  command. */
+    void setHashFile(Path file) {
+        _hashFile = file;
+    }
+
+    /** Return the cache through which my AI players share search
+     *  results, or null if there is none. */
+    SharedCache sharedCache() {
+        return _sharedCache;
+    }
+
+    /** Record measurements of the searches made by my AI players in
+     *  STATS, or stop recording them if STATS is null. */
+    void setSearchStats(SearchStats stats) {
+        _searchStats = stats;
+    }
+
+    /** Return the recorder of my players' searches, or null if there is
+     *  none. */
+    SearchStats searchStats() {
+        return _searchStats;
+    }
+
     /** Return a view of my game board that should not be modified by
      *  the caller. */
     Board board() {
@@ -105,14 +177,39 @@ class Game {
     /** Perform the next command from our input source. */
     void doCommand() {
         try {
-            Command cmnd =
-                Command.parseCommand(_inputs.getLine("ataxx: "));
-            _commands.get(cmnd.commandType()).accept(cmnd.operands());
+            Command cmnd = _inputs.getCommand("ataxx: ");
+            execute(cmnd);
         } catch (GameException excp) {
             _reporter.errMsg(excp.getMessage());
         }
     }
 
+    /** Perform CMND. */
+    private void execute(Command cmnd) {
+        Events.CommandExecuted event = null;
+        if (Events.recording()) {
+            event = new Events.CommandExecuted();
+            event.begin();
+        }
+        long start = System.nanoTime();
+        try {
+            if (cmnd.commandType() == PIECEMOVE) {
+                doMove(cmnd.move());
+            } else {
+                _commands.get(cmnd.commandType()).accept(cmnd.operands());
+            }
+        } finally {
+            Metrics.COMMANDS.record(System.nanoTime() - start);
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.type = cmnd.commandType().toString();
+                    event.commit();
+                }
+            }
+        }
+    }
+
     /** Read and execute commands until encountering a move or until
      *  the game leaves playing state due to one of the commands. Return
      *  the terminating move command, or null if the game first drops out
@@ -121,12 +218,12 @@ class Game {
     Command getMoveCmnd(String prompt) {
         while (_state == PLAYING) {
             try {
-                Command cmnd = Command.parseCommand(_inputs.getLine(prompt));
+                Command cmnd = _inputs.getCommand(prompt);
                 if (cmnd.commandType() == PIECEMOVE || cmnd.commandType()
                         == PASS) {
                     return cmnd;
                 }
-                _commands.get(cmnd.commandType()).accept(cmnd.operands());
+                execute(cmnd);
             } catch (GameException excp) {
                 _reporter.errMsg(excp.getMessage());
             } catch (AssertionError excp) {
@@ -136,6 +233,22 @@ class Game {
         return null;
     }
 
+    /** Return the result of TASK, a search on behalf of one of my
+     *  players, run on my search pool if I have one. */
+    <T> T search(Supplier<T> task) {
+        if (_searchPool == null) {
+            return task.get();
+        }
+        try {
+            return CompletableFuture.supplyAsync(task, _searchPool).join();
+        } catch (CompletionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw excp;
+        }
+    }
+
     /** Return random integer between 0 (inclusive) and MAX>0 (exclusive). */
     int nextRandom(int max) {
         return _randoms.nextInt(max);
@@ -170,7 +283,7 @@ class Game {
         InputStream helpIn =
             Game.class.getClassLoader().getResourceAsStream("ataxx/help.txt");
         if (helpIn == null) {
-            System.err.println("No help available.");
+            _reporter.errMsg("No help available.");
         } else {
             try {
                 BufferedReader r
@@ -180,7 +293,7 @@ class Game {
                     if (line == null) {
                         break;
                     }
-                    System.out.println(line);
+                    _reporter.outcomeMsg("%s", line);
                 }
                 r.close();
             } catch (IOException e) {
@@ -191,10 +304,11 @@ class Game {
 
     /** Perform the command 'load OPERANDS[0]'. */
     void doLoad(String[] operands) {
+        checkLocal("load");
         try {
-            FileReader reader = new FileReader(operands[0]);
-            _inputs.addSource(new ReaderSource(reader, false));
-        } catch (IOException e) {
+            FileChannel input = FileChannel.open(Paths.get(operands[0]));
+            _inputs.addSource(new ChannelSource(input));
+        } catch (IOException | InvalidPathException e) {
             throw error("Cannot open file %s", operands[0]);
         }
     }
@@ -209,9 +323,9 @@ class Game {
         }
     }
 
-    /** Exit the program. */
+    /** End this session, causing process to return. */
     void doQuit(String[] unused) {
-        System.exit(0);
+        _state = CLOSED;
     }
 
     /** Perform the command 'start'. */
@@ -220,16 +334,14 @@ class Game {
         _state = PLAYING;
     }
 
-    /** Perform the move OPERANDS[0]. */
-    void doMove(String[] operands) {
+    /** Perform MOVE, which is null if it is impossible. */
+    void doMove(Move move) {
         checkState("move", SETUP, PLAYING);
-        try {
-            _board.makeMove(operands[0].charAt(0), operands[1].charAt(0),
-                    operands[2].charAt(0), operands[3].charAt(0));
-        } catch (AssertionError excp) {
-            _reporter.errMsg("Cannot move this piece here.");
-        } catch (NullPointerException excp) {
+        if (move == null) {
+            Metrics.ILLEGAL_MOVES.increment();
             _reporter.errMsg("Cannot move this piece here.");
+        } else {
+            makeMove(move);
         }
     }
 
@@ -237,7 +349,7 @@ class Game {
     void doPass(String[] unused) {
         checkState("pass", SETUP, PLAYING);
         try {
-            _board.makeMove(Move.pass());
+            makeMove(Move.pass());
         } catch (AssertionError excp) {
             _reporter.errMsg("Pass not allowed.");
         }
@@ -245,11 +357,43 @@ class Game {
 
     /** Perform the command 'clear'. */
     void doClear(String[] unused) {
-        _board = new Board();
         _board.clear();
+        _line = new GameReplay();
         _state = SETUP;
     }
 
+    /** Perform the command 'goto OPERANDS[0]', setting the board to the
+     *  position after that many moves of the current line of play. */
+    void doGoto(String[] operands) {
+        checkState("goto", SETUP, FINISHED);
+        int ply;
+        try {
+            ply = Integer.parseInt(operands[0]);
+        } catch (NumberFormatException excp) {
+            throw error("No such move number: %s.", operands[0]);
+        }
+        _line.seek(_board, ply);
+    }
+
+    /** Perform the command 'undo', taking back the last move. */
+    void doUndo(String[] unused) {
+        checkState("undo", SETUP, FINISHED);
+        if (_line.ply() == 0) {
+            throw error("Nothing to undo.");
+        }
+        _line.seek(_board, _line.ply() - 1);
+    }
+
+    /** Perform the command 'redo', restoring the last move taken
+     *  back. */
+    void doRedo(String[] unused) {
+        checkState("redo", SETUP, FINISHED);
+        if (_line.ply() == _line.length()) {
+            throw error("Nothing to redo.");
+        }
+        _line.seek(_board, _line.ply() + 1);
+    }
+
     /** Perform the command 'dump'. */
     void doDump(String[] unused) {
         String msg = "===\n" + (board().toString(false)) + "===";
@@ -268,11 +412,66 @@ class Game {
         }
     }
 
+    /** Perform the command 'explore', reporting the archived games that
+     *  reached the current position and the results of the moves played
+     *  from it. */
+    void doExplore(String[] unused) {
+        if (_database == null) {
+            throw error("No game database.");
+        }
+        long key = _board.key();
+        int[] games = _database.games(key);
+        _reporter.outcomeMsg("Position reached in %d games.", games.length);
+        for (PositionIndex.MoveStats stats : _database.moves(key)) {
+            _reporter.outcomeMsg("%s %d: Red %d, Blue %d, drawn %d",
+                                 stats.move(), stats.games(),
+                                 stats.games(GameRecord.RED_WINS),
+                                 stats.games(GameRecord.BLUE_WINS),
+                                 stats.games(GameRecord.DRAW));
+        }
+    }
+
+    /** Perform the command 'bench', searching the benchmark positions (on
+     *  my search pool, like my players' searches) and reporting the
+     *  number of positions visited and the search speed. */
+    void doBench(String[] unused) {
+        search(() -> Bench.run(Bench.DEPTH, _reporter));
+    }
+
+    /** Perform the command 'metrics', reporting the latencies and counts
+     *  recorded by all games in this process. */
+    void doMetrics(String[] unused) {
+        Metrics.report(_reporter);
+    }
+
+    /** Perform the command 'savehash', saving the shared cache to the
+     *  hash file so that a later process may start with it. */
+    void doSaveHash(String[] unused) {
+        checkLocal("savehash");
+        if (_sharedCache == null || _hashFile == null) {
+            throw error("No shared cache file.");
+        }
+        try {
+            long start = System.nanoTime();
+            _sharedCache.save(_hashFile);
+            _reporter.outcomeMsg("Saved %d MB to %s in %.1f s.",
+                                 _sharedCache.getCapacityBytes() >> 20,
+                                 _hashFile,
+                                 (System.nanoTime() - start) * 1e-9);
+        } catch (IOException excp) {
+            throw error("Cannot save shared cache: %s", excp.getMessage());
+        }
+    }
+
     /** Execute the command 'block OPERANDS[0]'. */
     void doBlock(String[] operands) {
         checkState("block", SETUP);
+        if (_line.ply() > 0) {
+            throw error("Can only add blocks to the initial configuration.");
+        }
         try {
             _board.setBlock(operands[0]);
+            _line = new GameReplay();
         } catch (AssertionError excp) {
             _reporter.errMsg("Can't place block here.");
         }
@@ -285,16 +484,70 @@ class Game {
 
     /** Report the outcome of the current game. */
     void reportWinner() {
-        String msg;
-        msg = "";
+        PieceColor winner;
         if (_board.numPieces(RED) > _board.numPieces(BLUE)) {
-            msg += "Red wins.";
+            winner = RED;
         } else if (_board.numPieces(RED) < _board.numPieces(BLUE)) {
-            msg += "Blue wins.";
+            winner = BLUE;
         } else {
-            msg += "Draw.";
+            winner = null;
+        }
+        _reporter.gameOver(winner);
+        Metrics.GAMES_COMPLETED.increment();
+        if (Events.recording()) {
+            Events.GameFinished event = new Events.GameFinished();
+            if (event.shouldCommit()) {
+                event.winner = winner == null ? "none" : winner.toString();
+                event.moves = _board.numMoves();
+                event.commit();
+            }
+        }
+    }
+
+    /** Append a record of the finished game to my archive, if any,
+     *  writing it to the file at once so that it survives a crash. */
+    private void archive() {
+        if (_archive == null) {
+            return;
+        }
+        try {
+            _archive.write(GameRecord.of(_board, _line.moves(),
+                                         String.format("red=%s blue=%s",
+                                                       player(isRedAuto),
+                                                       player(isBlueAuto))));
+            _archive.flush();
+        } catch (IOException excp) {
+            _reporter.errMsg("Cannot write game record: %s",
+                             excp.getMessage());
+        }
+    }
+
+    /** Make MOVE on my board, adding it to the current line of play. */
+    private void makeMove(Move move) {
+        if (!_board.legalMove(move)) {
+            Metrics.ILLEGAL_MOVES.increment();
+            throw error("Illegal move.");
+        }
+        PieceColor player = _board.whoseMove();
+        _line.prepare(_board);
+        _board.makeMove(move);
+        _line.add(move);
+        _reporter.moveMade(player, move);
+        Metrics.MOVES.increment();
+        if (Events.recording()) {
+            Events.MoveApplied event = new Events.MoveApplied();
+            if (event.shouldCommit()) {
+                event.move = move.toString();
+                event.player = player.toString();
+                event.moves = _board.numMoves();
+                event.commit();
+            }
         }
-        _reporter.outcomeMsg(msg);
+    }
+
+    /** Return the kind of player that is an AI iff AUTO. */
+    private static String player(boolean auto) {
+        return auto ? "auto" : "manual";
     }
 
     /** Check that game is currently in one of the states STATES, assuming
@@ -319,9 +572,17 @@ class Game {
         throw error("'%s' command is not allowed now.", cmnd);
     }
 
+    /** Check that command CMND, which uses the host's files, is not
+     *  from a remote client. */
+    private void checkLocal(String cmnd) {
+        if (_remote) {
+            throw error("'%s' command is not allowed remotely.", cmnd);
+        }
+    }
+
     /** Mapping of command types to methods that process them. */
-    private final HashMap<Command.Type, Consumer<String[]>> _commands =
-        new HashMap<>();
+    private final EnumMap<Command.Type, Consumer<String[]>> _commands =
+        new EnumMap<>(Command.Type.class);
 
     {
         _commands.put(AUTO, this::doAuto);
@@ -331,13 +592,19 @@ class Game {
         _commands.put(HELP, this::doHelp);
         _commands.put(MANUAL, this::doManual);
         _commands.put(PASS, this::doPass);
-        _commands.put(PIECEMOVE, this::doMove);
         _commands.put(SEED, this::doSeed);
         _commands.put(START, this::doStart);
         _commands.put(LOAD, this::doLoad);
         _commands.put(QUIT, this::doQuit);
         _commands.put(ERROR, this::doError);
         _commands.put(EOF, this::doQuit);
+        _commands.put(GOTO, this::doGoto);
+        _commands.put(UNDO, this::doUndo);
+        _commands.put(REDO, this::doRedo);
+        _commands.put(EXPLORE, this::doExplore);
+        _commands.put(BENCH, this::doBench);
+        _commands.put(METRICS, this::doMetrics);
+        _commands.put(SAVEHASH, this::doSaveHash);
     }
 
     /** Input source. */
@@ -347,12 +614,28 @@ class Game {
     private Board _board;
     /** Current game state. */
     private State _state;
+    /** The moves of the current game, for undo, redo and goto. */
+    private GameReplay _line;
     /** Used to send messages to the user. */
     private Reporter _reporter;
+    /** Executor for AI searches, or null to search in place. */
+    private final Executor _searchPool;
     /** Source of pseudo-random numbers (used by AIs). */
     private Random _randoms = new Random();
     /** True if RED player should be an AI, else Manual. */
     private boolean isRedAuto;
     /** True if BLUE player should be an AI, else Manual. */
     private boolean isBlueAuto;
+    /** Archive of finished games, or null. */
+    private GameArchiveWriter _archive;
+    /** Index of archived games, or null. */
+    private PositionIndex _database;
+    /** Search results shared with other Games, or null. */
+    private SharedCache _sharedCache;
+    /** File to which 'savehash' saves _sharedCache, or null. */
+    private Path _hashFile;
+    /** True iff my commands come from a remote client. */
+    private boolean _remote;
+    /** Records my AI players' searches, if not null. */
+    private SearchStats _searchStats;
 }
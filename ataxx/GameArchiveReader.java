@@ -0,0 +1,149 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static ataxx.GameArchiveWriter.BLOCK_HEADER_SIZE;
+import static ataxx.GameArchiveWriter.MAGIC;
+
+/** Reads the GameRecords in a game archive written by GameArchiveWriter
+ *  in order, decompressing one block at a time.
+ *  @author Carson Trinh
+ */
+class GameArchiveReader implements Closeable {
+
+    /** A reader of the archive FILE. */
+    GameArchiveReader(Path file) throws IOException {
+        _input = FileChannel.open(file);
+        try {
+            GameArchiveWriter.checkMagic(_input);
+        } catch (IOException excp) {
+            _input.close();
+            throw excp;
+        }
+        _input.position(MAGIC.length);
+        _header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        _compressed = ByteBuffer.allocate(0);
+        _block = ByteBuffer.allocate(0);
+        _inflater = new Inflater();
+    }
+
+    /** Return the next record in the archive, or null if there are no
+     *  more. */
+    GameRecord read() throws IOException {
+        while (_remaining == 0) {
+            if (!readBlock()) {
+                return null;
+            }
+        }
+        _remaining -= 1;
+        try {
+            return GameRecord.decode(_block);
+        } catch (GameException excp) {
+            throw new IOException("corrupt game archive");
+        }
+    }
+
+    /** Set BOARD to the final position of the next game in the archive
+     *  without notifying its listeners, returning that game's record, or
+     *  return null, leaving BOARD unchanged, if there are no more. */
+    GameRecord replayNext(Board board) throws IOException {
+        GameRecord record = read();
+        if (record != null) {
+            try {
+                record.replay(board);
+            } catch (GameException excp) {
+                throw new IOException("corrupt game archive");
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _inflater.end();
+        _input.close();
+    }
+
+    /** Read and decompress the next block into _block, returning false if
+     *  there are no more. */
+    private boolean readBlock() throws IOException {
+        _header.clear();
+        if (!readFully(_header)) {
+            return false;
+        }
+        _header.flip();
+        int numRecords = _header.getInt(), rawLength = _header.getInt(),
+            length = _header.getInt();
+        if (numRecords < 0 || rawLength < 0 || length < 0
+            || length > _input.size() - _input.position()
+            || rawLength > MAX_EXPANSION * length
+            || numRecords > rawLength / MIN_RECORD_SIZE) {
+            throw new IOException("corrupt game archive");
+        }
+        if (_compressed.capacity() < length) {
+            _compressed = ByteBuffer.allocate(length);
+        }
+        if (_block.capacity() < rawLength) {
+            _block = ByteBuffer.allocate(rawLength);
+        }
+        _compressed.clear().limit(length);
+        if (!readFully(_compressed)) {
+            throw new IOException("truncated game archive");
+        }
+        _inflater.reset();
+        _inflater.setInput(_compressed.array(), 0, length);
+        try {
+            if (_inflater.inflate(_block.array(), 0, rawLength) != rawLength
+                || !_inflater.finished()) {
+                throw new IOException("corrupt game archive");
+            }
+        } catch (DataFormatException excp) {
+            throw new IOException("corrupt game archive");
+        }
+        _block.clear().limit(rawLength);
+        _remaining = numRecords;
+        return true;
+    }
+
+    /** Fill BUFFER from the archive, returning false if the archive ends
+     *  before anything is read, and throwing an exception if it ends
+     *  part way. */
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (_input.read(buffer) < 0) {
+                if (buffer.position() == start) {
+                    return false;
+                }
+                throw new IOException("truncated game archive");
+            }
+        }
+        return true;
+    }
+
+    /** Bound on the ratio of the sizes of a block before and after
+     *  deflation (1032 for the deflate format, rounded up). */
+    private static final long MAX_EXPANSION = 1100;
+    /** Least size of an encoded GameRecord: the block layout, number of
+     *  moves, outcome and metadata length (bytes). */
+    private static final int MIN_RECORD_SIZE = 5;
+
+    /** The archive file. */
+    private final FileChannel _input;
+    /** Holds block headers. */
+    private final ByteBuffer _header;
+    /** Holds the compressed data of the current block. */
+    private ByteBuffer _compressed;
+    /** The unread records of the current block. */
+    private ByteBuffer _block;
+    /** Number of unread records in the current block. */
+    private int _remaining;
+    /** Decompresses blocks. */
+    private final Inflater _inflater;
+}
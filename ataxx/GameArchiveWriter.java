@@ -0,0 +1,159 @@
+package ataxx;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/** Appends GameRecords to a game archive file.  An archive consists of
+ *  a header (the bytes of MAGIC) followed by any number of blocks, each
+ *  holding the encoded forms of a sequence of GameRecords compressed
+ *  with Deflater.  A block is a header of three big-endian ints (the
+ *  number of records, the length of the records uncompressed, and the
+ *  length of the compressed data) followed by the compressed data.
+ *  Blocks are independent, so new ones may be appended to an existing
+ *  archive, and a reader need only hold one block in memory.  A block
+ *  left incomplete by a process that died while writing it is removed
+ *  when the archive is next opened for writing.
+ *  @author Carson Trinh
+ */
+class GameArchiveWriter implements Closeable {
+
+    /** Identifies a game archive, including its format version. */
+    static final byte[] MAGIC = { 'A', 'T', 'X', 'G', 1 };
+    /** Size of the header of a block (bytes). */
+    static final int BLOCK_HEADER_SIZE = 3 * Integer.BYTES;
+
+    /** A writer that appends records to the archive FILE, creating it if
+     *  it does not exist and truncating an incomplete last block. */
+    GameArchiveWriter(Path file) throws IOException {
+        _output = FileChannel.open(file, StandardOpenOption.CREATE,
+                                   StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+        try {
+            if (_output.size() == 0) {
+                _output.write(ByteBuffer.wrap(MAGIC));
+            } else {
+                checkMagic(_output);
+                _output.truncate(completeLength(_output));
+            }
+            _output.position(_output.size());
+        } catch (IOException excp) {
+            _output.close();
+            throw excp;
+        }
+        _block = ByteBuffer.allocate(BLOCK_SIZE);
+        _compressed = new byte[BLOCK_SIZE];
+        _deflater = new Deflater();
+    }
+
+    /** Append RECORD to the archive. */
+    void write(GameRecord record) throws IOException {
+        int size = record.encodedSize();
+        if (size > _block.remaining()) {
+            flush();
+            if (size > _block.capacity()) {
+                _block = ByteBuffer.allocate(size);
+            }
+        }
+        record.encode(_block);
+        _numRecords += 1;
+    }
+
+    /** Write all records written so far to the archive file, ending the
+     *  current block. */
+    void flush() throws IOException {
+        if (_numRecords == 0) {
+            return;
+        }
+        _deflater.reset();
+        _deflater.setInput(_block.array(), 0, _block.position());
+        _deflater.finish();
+        int len = 0;
+        while (!_deflater.finished()) {
+            if (len == _compressed.length) {
+                _compressed = Arrays.copyOf(_compressed, 2 * len);
+            }
+            len += _deflater.deflate(_compressed, len,
+                                     _compressed.length - len);
+        }
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        header.putInt(_numRecords).putInt(_block.position()).putInt(len);
+        header.flip();
+        writeFully(header);
+        writeFully(ByteBuffer.wrap(_compressed, 0, len));
+        _block.clear();
+        _numRecords = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            _deflater.end();
+            _output.close();
+        }
+    }
+
+    /** Check that the archive read by INPUT starts with MAGIC. */
+    static void checkMagic(FileChannel input) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+        while (magic.hasRemaining()
+               && input.read(magic, magic.position()) > 0) {
+            continue;
+        }
+        if (!Arrays.equals(magic.array(), MAGIC)) {
+            throw new IOException("not a game archive");
+        }
+    }
+
+    /** Return the length of the complete blocks (including the header)
+     *  of the archive ARCHIVE. */
+    private static long completeLength(FileChannel archive)
+        throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_SIZE);
+        long end = MAGIC.length, size = archive.size();
+        while (size - end >= BLOCK_HEADER_SIZE) {
+            header.clear();
+            while (header.hasRemaining()
+                   && archive.read(header, end + header.position()) > 0) {
+                continue;
+            }
+            int length = header.getInt(2 * Integer.BYTES);
+            if (length < 0) {
+                throw new IOException("corrupt game archive");
+            }
+            if (length > size - end - BLOCK_HEADER_SIZE) {
+                break;
+            }
+            end += BLOCK_HEADER_SIZE + length;
+        }
+        return end;
+    }
+
+    /** Write all of DATA to the archive file. */
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            _output.write(data);
+        }
+    }
+
+    /** Uncompressed size of a block (bytes). */
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /** The archive file. */
+    private final FileChannel _output;
+    /** Encoded records of the current block. */
+    private ByteBuffer _block;
+    /** Number of records in the current block. */
+    private int _numRecords;
+    /** Holds the current block compressed. */
+    private byte[] _compressed;
+    /** Compresses blocks. */
+    private final Deflater _deflater;
+}
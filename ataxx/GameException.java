@@ -23,4 +23,7 @@ class GameException extends RuntimeException {
         return new GameException(String.format(msgFormat, args));
     }
 
+    /** Version of the serialized form. */
+    private static final long serialVersionUID = 1L;
+
 }
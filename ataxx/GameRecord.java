@@ -0,0 +1,245 @@
+package ataxx;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+import static ataxx.GameException.error;
+
+/** The record of one game played from the initial position, in a compact
+ *  binary form.  An encoded record consists of
+ *  <ul>
+ *  <li> the block layout: two bytes (big-endian) whose bit 4 * C + R is
+ *       set iff the square in column 'a' + C and row '1' + R (both less
+ *       than 4) is blocked, the other blocks being its reflections;
+ *  <li> the number of moves, as a varint (seven bits per byte, least
+ *       significant first, high bit set on all but the last byte);
+ *  <li> each move's id(), in two bytes (big-endian);
+ *  <li> the outcome: one byte, 0 if the game was not finished, 1 if Red
+ *       won, 2 if Blue won, and 3 if it was drawn;
+ *  <li> the metadata: its length in bytes as a varint, followed by the
+ *       metadata string in UTF-8.
+ *  </ul>
+ *  @author Carson Trinh
+ */
+class GameRecord {
+
+    /** Outcomes of games. */
+    static final int UNFINISHED = 0, RED_WINS = 1, BLUE_WINS = 2, DRAW = 3;
+
+    /** A record of a game with blocks BLOCKS (as in the encoded form), whose
+     *  moves have ids MOVES, whose outcome is OUTCOME, and that is
+     *  described by METADATA. */
+    GameRecord(int blocks, short[] moves, int outcome, String metadata) {
+        _blocks = blocks;
+        _moves = moves;
+        _outcome = outcome;
+        _metadata = metadata;
+    }
+
+    /** Return a record of the game played so far on BOARD, which must
+     *  have been played from the initial position, described by
+     *  METADATA. */
+    static GameRecord of(Board board, String metadata) {
+        return of(board, board.allMoves(), metadata);
+    }
+
+    /** Return a record of the game played from the initial position with
+     *  the blocks on BOARD by making PLAYED, which leads to the position on
+     *  BOARD, described by METADATA. */
+    static GameRecord of(Board board, List<Move> played, String metadata) {
+        int blocks = 0;
+        for (int c = 0; c < QUADRANT; c += 1) {
+            for (int r = 0; r < QUADRANT; r += 1) {
+                if (board.get((char) ('a' + c), (char) ('1' + r)) == BLOCKED) {
+                    blocks |= 1 << (QUADRANT * c + r);
+                }
+            }
+        }
+        short[] moves = new short[played.size()];
+        for (int i = 0; i < moves.length; i += 1) {
+            moves[i] = (short) played.get(i).id();
+        }
+        int outcome;
+        if (!board.gameOver()) {
+            outcome = UNFINISHED;
+        } else if (board.redPieces() > board.bluePieces()) {
+            outcome = RED_WINS;
+        } else if (board.redPieces() < board.bluePieces()) {
+            outcome = BLUE_WINS;
+        } else {
+            outcome = DRAW;
+        }
+        return new GameRecord(blocks, moves, outcome, metadata);
+    }
+
+    /** Return the block layout, as in the encoded form. */
+    int blocks() {
+        return _blocks;
+    }
+
+    /** Return the number of moves in the game. */
+    int numMoves() {
+        return _moves.length;
+    }
+
+    /** Return move #K of the game, numbering from 0. */
+    Move move(int k) {
+        return Move.fromId(_moves[k]);
+    }
+
+    /** Return the outcome of the game. */
+    int outcome() {
+        return _outcome;
+    }
+
+    /** Return the metadata describing the game. */
+    String metadata() {
+        return _metadata;
+    }
+
+    /** Set BOARD to the position after the first K moves of this game,
+     *  without notifying its listeners of the intermediate positions. */
+    void replay(Board board, int k) {
+        board.setNotifying(false);
+        try {
+            board.clear();
+            for (int c = 0; c < QUADRANT; c += 1) {
+                for (int r = 0; r < QUADRANT; r += 1) {
+                    if ((_blocks & (1 << (QUADRANT * c + r))) != 0) {
+                        board.setBlock((char) ('a' + c), (char) ('1' + r));
+                    }
+                }
+            }
+            for (int i = 0; i < k; i += 1) {
+                board.makeMove(move(i));
+            }
+        } finally {
+            board.setNotifying(true);
+        }
+    }
+
+    /** Set BOARD to the final position of this game, without notifying its
+     *  listeners of the intermediate positions. */
+    void replay(Board board) {
+        replay(board, numMoves());
+    }
+
+    /** Return the number of bytes in my encoded form. */
+    int encodedSize() {
+        return 2 + varintSize(_moves.length) + 2 * _moves.length + 1
+            + varintSize(metadataBytes().length) + metadataBytes().length;
+    }
+
+    /** Append my encoded form to OUT, which must have at least
+     *  encodedSize() bytes remaining. */
+    void encode(ByteBuffer out) {
+        byte[] metadata = metadataBytes();
+        out.putShort((short) _blocks);
+        putVarint(out, _moves.length);
+        for (short id : _moves) {
+            out.putShort(id);
+        }
+        out.put((byte) _outcome);
+        putVarint(out, metadata.length);
+        out.put(metadata);
+    }
+
+    /** Return the record whose encoded form starts at the position of IN,
+     *  advancing past it. */
+    static GameRecord decode(ByteBuffer in) {
+        try {
+            int blocks = in.getShort() & 0xFFFF;
+            short[] moves = new short[getLength(in, Short.BYTES)];
+            for (int i = 0; i < moves.length; i += 1) {
+                moves[i] = in.getShort();
+                if (moves[i] < 0 || moves[i] >= Move.NUM_IDS) {
+                    throw error("Corrupt game record.");
+                }
+            }
+            int outcome = in.get();
+            if (outcome < UNFINISHED || outcome > DRAW) {
+                throw error("Corrupt game record.");
+            }
+            byte[] metadata = new byte[getLength(in, 1)];
+            in.get(metadata);
+            return new GameRecord(blocks, moves, outcome,
+                                  new String(metadata,
+                                             StandardCharsets.UTF_8));
+        } catch (BufferUnderflowException excp) {
+            throw error("Corrupt game record.");
+        }
+    }
+
+    /** Return my metadata encoded in UTF-8. */
+    private byte[] metadataBytes() {
+        if (_metadataBytes == null) {
+            _metadataBytes = _metadata.getBytes(StandardCharsets.UTF_8);
+        }
+        return _metadataBytes;
+    }
+
+    /** Return the number of bytes in the varint encoding of N >= 0. */
+    private static int varintSize(int n) {
+        int size = 1;
+        while ((n >>>= VARINT_BITS) != 0) {
+            size += 1;
+        }
+        return size;
+    }
+
+    /** Append N >= 0 to OUT as a varint. */
+    private static void putVarint(ByteBuffer out, int n) {
+        while ((n & ~VARINT_MASK) != 0) {
+            out.put((byte) ((n & VARINT_MASK) | ~VARINT_MASK));
+            n >>>= VARINT_BITS;
+        }
+        out.put((byte) n);
+    }
+
+    /** Return the varint at the position of IN, advancing past it. */
+    private static int getVarint(ByteBuffer in) {
+        int n = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += VARINT_BITS) {
+            byte b = in.get();
+            n |= (b & VARINT_MASK) << shift;
+            if (b >= 0) {
+                return n;
+            }
+        }
+        throw error("Corrupt game record.");
+    }
+
+    /** Return the varint at the position of IN, advancing past it, which
+     *  is the number of items of SIZE bytes that follow in IN.  Throw a
+     *  GameException if IN does not have room for them, before anything
+     *  is allocated for them. */
+    private static int getLength(ByteBuffer in, int size) {
+        int n = getVarint(in);
+        if (n < 0 || n > in.remaining() / size) {
+            throw error("Corrupt game record.");
+        }
+        return n;
+    }
+
+    /** Number of rows and columns in the quadrant of the board that
+     *  determines the block layout. */
+    private static final int QUADRANT = 4;
+    /** Number of value bits in each byte of a varint. */
+    private static final int VARINT_BITS = 7;
+    /** Mask for the value bits of a varint byte. */
+    private static final int VARINT_MASK = (1 << VARINT_BITS) - 1;
+
+    /** Block layout. */
+    private final int _blocks;
+    /** Ids of the moves. */
+    private final short[] _moves;
+    /** Outcome of the game. */
+    private final int _outcome;
+    /** Description of the game. */
+    private final String _metadata;
+    /** _metadata in UTF-8, once needed. */
+    private byte[] _metadataBytes;
+}
@@ -0,0 +1,267 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Stack;
+
+/** Tests of GameRecord and game archives.
+ *  @author Carson Trinh
+ */
+public class GameRecordTest {
+
+    /** Return a board on which a game with random blocks and moves chosen
+     *  by RANDOM has been played, ending after at most LIMIT moves. */
+    private static Board randomGame(Random random, int limit) {
+        Board b = new Board();
+        for (int k = random.nextInt(3); k > 0; k -= 1) {
+            char c = (char) ('b' + random.nextInt(3)),
+                r = (char) ('2' + random.nextInt(3));
+            if (b.legalBlock(c, r)) {
+                b.setBlock(c, r);
+            }
+        }
+        Searcher searcher = new Searcher();
+        while (!b.gameOver() && b.numMoves() < limit) {
+            Stack<Move> moves = searcher.findPossibleMoves(b.whoseMove(), b);
+            b.makeMove(moves.get(random.nextInt(moves.size())));
+        }
+        return b;
+    }
+
+    @Test
+    public void testArchive() throws IOException {
+        Random random = new Random(32);
+        List<Board> games = new ArrayList<>();
+        Path file = Files.createTempFile("ataxx", ".atxg");
+        Files.delete(file);
+        try {
+            for (int w = 0; w < 2; w += 1) {
+                try (GameArchiveWriter out = new GameArchiveWriter(file)) {
+                    for (int i = 0; i < 20; i += 1) {
+                        Board b = randomGame(random, i < 10 ? 1000 : 30);
+                        games.add(b);
+                        out.write(GameRecord.of(b, "game " + games.size()));
+                        if (i == 7) {
+                            out.flush();
+                        }
+                    }
+                }
+            }
+            Board replayed = new Board();
+            int[] notified = { 0 };
+            replayed.addListener((event) -> notified[0] += 1);
+            try (GameArchiveReader in = new GameArchiveReader(file)) {
+                for (int i = 0; i < games.size(); i += 1) {
+                    Board b = games.get(i);
+                    GameRecord record = in.replayNext(replayed);
+                    assertNotNull("record missing", record);
+                    assertEquals("game " + (i + 1), record.metadata());
+                    assertEquals(b.positionString(),
+                                 replayed.positionString());
+                    assertEquals(b.allMoves(), replayed.allMoves());
+                    assertEquals(b.gameOver(),
+                                 record.outcome() != GameRecord.UNFINISHED);
+                }
+                assertNull("extra record", in.read());
+            }
+            assertEquals("listeners notified during replay",
+                         games.size(), notified[0]);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testTornArchive() throws IOException {
+        Random random = new Random(8);
+        Path file = Files.createTempFile("ataxx", ".atxg");
+        Files.delete(file);
+        try {
+            Board first = randomGame(random, 1000),
+                second = randomGame(random, 1000);
+            try (GameArchiveWriter out = new GameArchiveWriter(file)) {
+                out.write(GameRecord.of(first, "first"));
+                out.flush();
+            }
+            long complete = Files.size(file);
+            try (GameArchiveWriter out = new GameArchiveWriter(file)) {
+                out.write(GameRecord.of(second, "torn"));
+            }
+            byte[] data = Files.readAllBytes(file);
+            for (long cut : new long[] { complete + 5, data.length - 1 }) {
+                Files.write(file, Arrays.copyOf(data, (int) cut));
+                try (GameArchiveWriter out = new GameArchiveWriter(file)) {
+                    assertEquals("torn block kept", complete,
+                                 Files.size(file));
+                    out.write(GameRecord.of(second, "second"));
+                }
+                try (GameArchiveReader in = new GameArchiveReader(file)) {
+                    assertEquals("first", in.read().metadata());
+                    assertEquals("second", in.read().metadata());
+                    assertNull("extra record", in.read());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCorruptLengths() throws IOException {
+        byte[] huge = { -1, -1, -1, -1, 7 };
+        ByteBuffer moves = ByteBuffer.allocate(64);
+        moves.putShort((short) 0).put(huge).flip();
+        ByteBuffer metadata = ByteBuffer.allocate(64);
+        metadata.putShort((short) 0).put((byte) 0).put((byte) 0)
+            .put(huge).flip();
+        for (ByteBuffer data : new ByteBuffer[] { moves, metadata }) {
+            try {
+                GameRecord.decode(data);
+                fail("corrupt length accepted");
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        }
+
+        Path file = Files.createTempFile("ataxx", ".atxg");
+        Files.delete(file);
+        try {
+            try (GameArchiveWriter out = new GameArchiveWriter(file)) {
+                out.write(GameRecord.of(randomGame(new Random(5), 20), ""));
+            }
+            byte[] data = Files.readAllBytes(file);
+            int header = GameArchiveWriter.MAGIC.length;
+            for (int field = 1; field < 3; field += 1) {
+                byte[] corrupt = data.clone();
+                corrupt[header + field * Integer.BYTES] = 0x7F;
+                Files.write(file, corrupt);
+                try (GameArchiveReader in = new GameArchiveReader(file)) {
+                    in.read();
+                    fail("corrupt block header accepted");
+                } catch (IOException excp) {
+                    /* Expected. */
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        Random random = new Random(3);
+        Path archive = Files.createTempFile("ataxx", ".atxg"),
+            index = Files.createTempFile("ataxx", ".idx");
+        Files.delete(archive);
+        List<Board> games = new ArrayList<>();
+        try {
+            try (GameArchiveWriter out = new GameArchiveWriter(archive)) {
+                for (int i = 0; i < 50; i += 1) {
+                    Board b = randomGame(random, i % 2 == 0 ? 6 : 1000);
+                    games.add(b);
+                    out.write(GameRecord.of(b, ""));
+                }
+            }
+            long total = 0;
+            for (Board b : games) {
+                total += b.allMoves().size() + 1;
+            }
+            try (GameArchiveReader in = new GameArchiveReader(archive)) {
+                assertEquals(total, PositionIndex.build(in, index));
+            }
+            try (PositionIndex db = new PositionIndex(index)) {
+                assertEquals(total, db.size());
+                Board b = games.get(7);
+                int[] found = db.games(b.key());
+                assertTrue("final position not found",
+                           Arrays.binarySearch(found, 7) >= 0);
+
+                Board start = new Board();
+                List<Integer> expected = new ArrayList<>();
+                int played = 0;
+                for (int i = 0; i < games.size(); i += 1) {
+                    if (GameRecord.of(games.get(i), "").blocks() == 0) {
+                        expected.add(i);
+                        played += games.get(i).allMoves().isEmpty() ? 0 : 1;
+                    }
+                }
+                found = db.games(start.key());
+                assertEquals(expected.size(), found.length);
+                int counted = 0;
+                for (PositionIndex.MoveStats stats : db.moves(start.key())) {
+                    counted += stats.games();
+                }
+                assertEquals(played, counted);
+                assertEquals(0, db.games(0x123456789L).length);
+            }
+        } finally {
+            Files.deleteIfExists(archive);
+            Files.deleteIfExists(index);
+        }
+    }
+
+    @Test
+    public void testSeek() {
+        Board b = randomGame(new Random(14), 1000);
+        GameRecord record = GameRecord.of(b, "");
+        GameReplay line = new GameReplay(record);
+        assertEquals(record.numMoves(), line.length());
+        Board seeking = new Board(), replayed = new Board();
+        int[] plies = { line.length(), 0, 17, 16, 15, line.length() - 1, 1 };
+        for (int ply : plies) {
+            line.seek(seeking, ply);
+            record.replay(replayed, ply);
+            assertEquals("ply " + ply, replayed.positionString(),
+                         seeking.positionString());
+            assertEquals(ply, line.ply());
+        }
+        line.prepare(seeking);
+        Move move = new Searcher().findPossibleMoves(seeking.whoseMove(),
+                                                     seeking).get(0);
+        seeking.makeMove(move);
+        line.add(move);
+        assertEquals("line not truncated", 2, line.length());
+        line.seek(seeking, 0);
+        line.seek(seeking, 2);
+        assertEquals(move, seeking.allMoves().get(1));
+    }
+
+    @Test
+    public void testSeekToSnapshotPly() {
+        Board b = randomGame(new Random(3), 2 * GameReplay.INTERVAL);
+        GameRecord record = GameRecord.of(b, "");
+        assertEquals(2 * GameReplay.INTERVAL, record.numMoves());
+        GameReplay line = new GameReplay(record);
+        Board seeking = new Board(), replayed = new Board();
+        int[] plies = { line.length(), line.length() - 1, line.length(),
+                        GameReplay.INTERVAL, 0, line.length() };
+        for (int ply : plies) {
+            line.seek(seeking, ply);
+            record.replay(replayed, ply);
+            assertEquals("ply " + ply, replayed.positionString(),
+                         seeking.positionString());
+        }
+    }
+
+    @Test
+    public void testReplayPrefix() {
+        Board b = randomGame(new Random(7), 12);
+        GameRecord record = GameRecord.of(b, "");
+        Board replayed = new Board();
+        record.replay(replayed, 12);
+        assertEquals(b.positionString(), replayed.positionString());
+        record.replay(replayed, 11);
+        b.undo();
+        assertEquals(b.positionString(), replayed.positionString());
+    }
+
+}
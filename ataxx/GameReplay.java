@@ -0,0 +1,108 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ataxx.GameException.error;
+
+/** The line of play of a game, which allows a Board to be set quickly to
+ *  the position after any number of its moves (any ply).  Besides the
+ *  moves, it keeps a Board.Snapshot of every INTERVAL'th position, so
+ *  that seeking to a ply costs one restore and at most INTERVAL moves,
+ *  whether forward or backward.  (The snapshot at a multiple of INTERVAL
+ *  is taken only when a move from it is prepared, so a line ending
+ *  there is replayed from the one before.)  It also keeps a current ply,
+ *  which is where moves are added: adding a move before the end of the
+ *  line replaces the rest of the line.
+ *  @author Carson Trinh
+ */
+class GameReplay {
+
+    /** Number of plies between snapshots. */
+    static final int INTERVAL = 16;
+
+    /** An empty line, whose initial position is recorded when its first
+     *  move is prepared. */
+    GameReplay() {
+    }
+
+    /** The line of the game in RECORD, with its current ply at its
+     *  end. */
+    GameReplay(GameRecord record) {
+        Board board = new Board();
+        record.replay(board, 0);
+        for (int k = 0; k < record.numMoves(); k += 1) {
+            prepare(board);
+            Move move = record.move(k);
+            board.makeMove(move);
+            add(move);
+        }
+    }
+
+    /** Return the number of moves in the line. */
+    int length() {
+        return _moves.size();
+    }
+
+    /** Return the current ply. */
+    int ply() {
+        return _ply;
+    }
+
+    /** Return the moves up to the current ply. */
+    List<Move> moves() {
+        return _moves.subList(0, _ply);
+    }
+
+    /** Prepare to add a move at the current ply, whose position BOARD
+     *  now holds. */
+    void prepare(Board board) {
+        int k = _ply / INTERVAL;
+        if (_ply % INTERVAL == 0 && k == _snapshots.size()) {
+            _snapshots.add(board.snapshot());
+        }
+    }
+
+    /** Add MOVE at the current ply, which must have been prepared,
+     *  discarding the rest of the line, and advance the current ply. */
+    void add(Move move) {
+        if (_ply < _moves.size()) {
+            _moves.subList(_ply, _moves.size()).clear();
+            int keep = (_ply + INTERVAL) / INTERVAL;
+            _snapshots.subList(keep, _snapshots.size()).clear();
+        }
+        _moves.add(move);
+        _ply += 1;
+    }
+
+    /** Set BOARD to the position after the first PLY moves of the line,
+     *  making that the current ply.  BOARD's listeners are notified once,
+     *  of the final position. */
+    void seek(Board board, int ply) {
+        if (ply < 0 || ply > _moves.size()) {
+            throw error("No such move number: %d.", ply);
+        }
+        if (_snapshots.isEmpty()) {
+            _ply = ply;
+            return;
+        }
+        board.setNotifying(false);
+        try {
+            int k = Math.min(ply / INTERVAL, _snapshots.size() - 1);
+            board.restore(_snapshots.get(k));
+            for (int i = k * INTERVAL; i < ply; i += 1) {
+                board.makeMove(_moves.get(i));
+            }
+        } finally {
+            board.setNotifying(true);
+        }
+        _ply = ply;
+    }
+
+    /** Moves in the line. */
+    private final ArrayList<Move> _moves = new ArrayList<>();
+    /** Positions at plies 0, INTERVAL, 2 * INTERVAL, .... */
+    private final ArrayList<Board.Snapshot> _snapshots = new ArrayList<>();
+    /** The current ply. */
+    private int _ply;
+}
@@ -0,0 +1,130 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Tests of the Game class.
+ *  @author Carson Trinh
+ */
+public class GameTest {
+
+    /** A Reporter that records its messages. */
+    private static class Recorder implements Reporter {
+        @Override
+        public void errMsg(String format, Object... args) {
+            messages.add(String.format(format, args));
+        }
+
+        @Override
+        public void outcomeMsg(String format, Object... args) {
+            messages.add(String.format(format, args));
+        }
+
+        @Override
+        public void moveMsg(String format, Object... args) {
+            messages.add(String.format(format, args));
+        }
+
+        @Override
+        public void promptMsg(String prompt) {
+            messages.add(prompt);
+        }
+
+        /** Messages received so far. */
+        private final List<String> messages = new ArrayList<>();
+    }
+
+    /** Return the messages produced by a Game reading SCRIPT. */
+    private static List<String> play(String script) {
+        Recorder out = new Recorder();
+        Game game = new Game(new Board(),
+                             new ReaderSource(new StringReader(script), out),
+                             out);
+        game.process(false);
+        return out.messages;
+    }
+
+    @Test
+    public void testIsolation() {
+        List<String> first = play("block b2\nstart\na7-a6\nbogus\nquit\n");
+        List<String> second = play("help\nblock b2\nstart\na7-a6\n");
+        assertTrue("AI move not reported",
+                   first.get(3).matches("Blue moves .*\\."));
+        assertTrue("error not reported",
+                   first.contains("Command not understood"));
+        assertTrue("help not reported", second.contains("Commands:"));
+        assertEquals("games with the same moves differ",
+                     first.subList(0, 5),
+                     second.subList(second.size() - 5, second.size()));
+    }
+
+    @Test
+    public void testReview() {
+        List<String> out = play("manual blue\na7-a6\ng7-g6\na6-a5\ndump\n"
+                                + "undo\nundo\nredo\nredo\ndump\n"
+                                + "goto 1\ng7-f7\nredo\ngoto 0\ndump\n"
+                                + "goto 3\ngoto 2\nundo\nundo\nundo\n"
+                                + "start\nundo\n");
+        out.removeIf((msg) -> msg.endsWith(": "));
+        assertEquals("undo and redo changed position", out.get(0),
+                     out.get(1));
+        assertEquals("redo after new move", "Nothing to redo.", out.get(2));
+        assertTrue("goto 0 wrong", out.get(3).contains("  r - - - - - b"));
+        assertEquals("bad goto", "No such move number: 3.", out.get(4));
+        assertEquals("undo past start", "Nothing to undo.", out.get(5));
+        assertEquals("undo while playing",
+                     "'undo' command is not allowed now.", out.get(6));
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        Path script = Files.createTempFile("ataxx", ".inp");
+        try {
+            Files.write(script, ("# A script\r\n\n  block b2 # comment\r\n"
+                                 + "a7-a6\n\t-\ndump").getBytes());
+            List<String> out = play("load " + script + "\nquit\n");
+            assertEquals("pass not rejected", "Pass not allowed.",
+                         out.get(1));
+            assertTrue("block or move missing",
+                       out.get(2).contains("  r X - - - X -"));
+        } finally {
+            Files.delete(script);
+        }
+    }
+
+    /** Blocks leaving the players no moves. */
+    private static final String BLOCKED =
+        "block a2\nblock a3\nblock a4\nblock b1\nblock b2\nblock b3\n"
+        + "block b4\nblock c1\nblock c2\nblock c3\nblock c4\n";
+
+    @Test
+    public void testScripts() {
+        String script = "java -ea ataxx.Main\nblock b2\na7-a6\ndump\n"
+            + "@<===\n@<  r - - - - - b\n@<  r X - - - X -\n"
+            + "@<  - - - - - - -\n@<  - - - - - - -\n"
+            + "@<  - - - - - - -\n@<  - X - - - X -\n"
+            + "@<  b - - - - - r\n@<===\nquit\n";
+        ScriptRunner.Result result = ScriptRunner.run(script, false);
+        assertEquals(result.message(), "OK", result.type());
+        result = ScriptRunner.run(script.replace("r X -", "r X X"), false);
+        assertEquals("ERROR", result.type());
+        assertTrue(result.message(),
+                   result.message().startsWith("output mismatch"));
+
+        script = "java ataxx.Main\n" + BLOCKED + "auto red\nmanual blue\n"
+            + "start\n@send red... Draw\nquit\n----------\n"
+            + "java ataxx.Main\n" + BLOCKED + "start\n@recv red...\n"
+            + "quit\n";
+        result = ScriptRunner.run(script, true);
+        assertEquals(result.message() + result.log(), "OK", result.type());
+        assertTrue(result.log().contains("R> Draw."));
+    }
+
+}
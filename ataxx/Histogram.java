@@ -0,0 +1,121 @@
+package ataxx;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** A histogram of durations in nanoseconds, with fixed log-linear
+ *  buckets: values below 2**SUB_BITS have a bucket each, and each range
+ *  [2**E, 2**(E+1)) above that is divided into 2**SUB_BITS equal
+ *  buckets, so that a bucket's bounds are within an eighth of each
+ *  other.  Durations may be recorded from any number of threads without
+ *  locking or allocation.
+ *  @author Carson Trinh
+ */
+class Histogram implements HistogramMXBean {
+
+    /** Log base 2 of the number of buckets per power of 2. */
+    static final int SUB_BITS = 3;
+
+    /** Record a duration of NANOS nanoseconds (0 if negative). */
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        _counts.incrementAndGet(bucket(value));
+        _count.increment();
+        _sum.add(value);
+        long max = _max.get();
+        while (value > max && !_max.compareAndSet(max, value)) {
+            max = _max.get();
+        }
+    }
+
+    /** Return the smallest recorded duration (nsec) no less than that of
+     *  fraction P of the recorded durations, as the upper bound of its
+     *  bucket, but no more than the largest duration.  Returns 0 if
+     *  nothing is recorded. */
+    long percentile(double p) {
+        long[] counts = new long[NUM_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i += 1) {
+            counts[i] = _counts.get(i);
+            total += counts[i];
+        }
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < NUM_BUCKETS; i += 1) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(lowerBound(i + 1) - 1, _max.get());
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public long getCount() {
+        return _count.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = _count.sum();
+        return count == 0 ? 0 : _sum.sum() * 1e-6 / count;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentile(0.5) * 1e-6;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return percentile(0.9) * 1e-6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentile(0.99) * 1e-6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return _max.get() * 1e-6;
+    }
+
+    /** Return the index of the bucket containing VALUE >= 0. */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exp = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        return ((exp - SUB_BITS + 1) << SUB_BITS)
+            + (int) ((value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /** Return the smallest value in bucket I, or Long.MAX_VALUE if I is
+     *  past the last bucket. */
+    static long lowerBound(int i) {
+        if (i < SUB_BUCKETS) {
+            return i;
+        } else if (i >= NUM_BUCKETS) {
+            return Long.MAX_VALUE;
+        }
+        int exp = (i >> SUB_BITS) + SUB_BITS - 1;
+        return (long) (SUB_BUCKETS + (i & (SUB_BUCKETS - 1)))
+            << (exp - SUB_BITS);
+    }
+
+    /** Number of buckets per power of 2. */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /** Number of buckets, enough for any non-negative long. */
+    static final int NUM_BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    /** Number of values in each bucket. */
+    private final AtomicLongArray _counts = new AtomicLongArray(NUM_BUCKETS);
+    /** Number of values. */
+    private final LongAdder _count = new LongAdder();
+    /** Sum of the values. */
+    private final LongAdder _sum = new LongAdder();
+    /** Largest value. */
+    private final AtomicLong _max = new AtomicLong();
+}
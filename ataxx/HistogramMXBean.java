@@ -0,0 +1,26 @@
+package ataxx;
+
+/** The management interface of a Histogram of durations.  Percentiles
+ *  are accurate to within an eighth of their value.
+ *  @author Carson Trinh
+ */
+public interface HistogramMXBean {
+
+    /** Return the number of durations recorded. */
+    long getCount();
+
+    /** Return the mean duration (msec). */
+    double getMeanMillis();
+
+    /** Return the median duration (msec). */
+    double getP50Millis();
+
+    /** Return the 90th percentile duration (msec). */
+    double getP90Millis();
+
+    /** Return the 99th percentile duration (msec). */
+    double getP99Millis();
+
+    /** Return the longest duration (msec). */
+    double getMaxMillis();
+}
@@ -0,0 +1,128 @@
+package ataxx;
+
+import java.io.OutputStream;
+import java.util.Formatter;
+
+/** An AsyncReporter that writes each message as one line of JSON, for
+ *  consumption by other programs.  Each object has a "type" ("move",
+ *  "outcome", "info", or "error"), the message "text", and the time in
+ *  milliseconds since the reporter was created ("time_ms").  There is a
+ *  move for each move made in the game, by any player, giving the "side"
+ *  that moved, the "move" itself unless it was a pass, and the time since
+ *  the previous move ("elapsed_ms").  The outcome of a game gives the
+ *  "winner" ("red", "blue", or "none" for a draw).  Other outcome
+ *  messages, such as board dumps, have type "info".  Prompts, and the
+ *  players' own announcements of their moves, are not written.
+ *  @author Carson Trinh
+ */
+class JsonReporter extends AsyncReporter {
+
+    /** A Reporter that writes JSON lines to OUT. */
+    JsonReporter(OutputStream out) {
+        super(out);
+        _start = _lastMove = System.nanoTime();
+    }
+
+    @Override
+    public void moveMade(PieceColor side, Move move) {
+        report(MOVE_MADE, false,
+               move.isPass() ? "%s passes." : "%s moves %s.", side, move);
+    }
+
+    @Override
+    synchronized void render(Formatter out, StringBuilder text, int kind,
+                             String format, Object... args) {
+        if (kind == PROMPT || kind == MOVE) {
+            return;
+        }
+        long now = System.nanoTime();
+        out.format(format, args);
+        int len = text.length();
+
+        text.append("{\"type\":");
+        switch (kind) {
+        case ERROR:
+            text.append("\"error\"");
+            break;
+        case MOVE_MADE:
+            Move move = (Move) args[1];
+            text.append("\"move\",\"side\":");
+            appendColor(text, (PieceColor) args[0]);
+            if (!move.isPass()) {
+                text.append(",\"move\":\"").append(move).append('"');
+            }
+            text.append(",\"elapsed_ms\":");
+            appendMillis(text, now - _lastMove);
+            _lastMove = now;
+            break;
+        case GAME_OVER:
+            text.append("\"outcome\",\"winner\":");
+            appendColor(text, (PieceColor) args[0]);
+            break;
+        default:
+            text.append("\"info\"");
+            break;
+        }
+        text.append(",\"time_ms\":");
+        appendMillis(text, now - _start);
+        text.append(",\"text\":\"");
+        for (int i = 0; i < len; i += 1) {
+            appendEscaped(text, text.charAt(i));
+        }
+        text.append("\"}").append('\n');
+        text.delete(0, len);
+    }
+
+    /** Append COLOR, or "none" if it is null, to TEXT as a JSON string. */
+    private static void appendColor(StringBuilder text, PieceColor color) {
+        text.append('"')
+            .append(color == null ? "none" : color.name().toLowerCase())
+            .append('"');
+    }
+
+    /** Append NANOS, a time in nanoseconds, to TEXT in milliseconds with
+     *  three decimal places. */
+    private static void appendMillis(StringBuilder text, long nanos) {
+        long micros = nanos / 1000;
+        text.append(micros / 1000).append('.');
+        long frac = micros % 1000;
+        if (frac < 100) {
+            text.append('0');
+        }
+        if (frac < 10) {
+            text.append('0');
+        }
+        text.append(frac);
+    }
+
+    /** Append C to TEXT, escaped as in a JSON string. */
+    private static void appendEscaped(StringBuilder text, char c) {
+        switch (c) {
+        case '"':
+        case '\\':
+            text.append('\\').append(c);
+            break;
+        case '\n':
+            text.append("\\n");
+            break;
+        case '\r':
+            text.append("\\r");
+            break;
+        case '\t':
+            text.append("\\t");
+            break;
+        default:
+            if (c < ' ') {
+                text.append(String.format("\\u%04x", (int) c));
+            } else {
+                text.append(c);
+            }
+            break;
+        }
+    }
+
+    /** Time at which I was created (nanoseconds). */
+    private final long _start;
+    /** Time of the last move reported (nanoseconds). */
+    private long _lastMove;
+}
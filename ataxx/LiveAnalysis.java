@@ -0,0 +1,113 @@
+package ataxx;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/** Continuous analysis of the position on a Board in a background
+ *  thread.  Whenever the board changes, any analysis under way is
+ *  abandoned and the new position is analyzed to successively greater
+ *  depths.  The latest result is published as an immutable Analysis,
+ *  which a display may fetch at any time without waiting.
+ *  @author Carson Trinh
+ */
+class LiveAnalysis {
+
+    /** Analysis of the positions on MODEL to at most DEPTH, calling
+     *  ONUPDATE (in the analyzing thread or the thread changing MODEL)
+     *  whenever the result of current() changes.  It does not start
+     *  until start() is called. */
+    LiveAnalysis(Board model, int depth, Runnable onUpdate) {
+        _model = model;
+        _depth = depth;
+        _onUpdate = onUpdate;
+        _thread = new Thread(this::run, "analysis");
+        _thread.setDaemon(true);
+        _thread.setPriority(Thread.MIN_PRIORITY);
+    }
+
+    /** Start analyzing the current position and its successors. */
+    void start() {
+        _model.addListener(_listener);
+        _pending.set(_model.snapshot());
+        _thread.start();
+    }
+
+    /** Stop analyzing, and discard the current result.  The analysis may
+     *  not be restarted. */
+    void stop() {
+        _model.removeListener(_listener);
+        _stopped = true;
+        _abort.set(true);
+        _current.set(null);
+        LockSupport.unpark(_thread);
+    }
+
+    /** Return the latest analysis of the current position, or null if
+     *  there is none yet.  Because the board may change at any moment,
+     *  callers should check the key of the result against the board's. */
+    Analysis current() {
+        return _current.get();
+    }
+
+    /** Respond to EVENT, a change to my board, by abandoning the analysis
+     *  of the previous position and starting on the new one. */
+    private void positionChanged(BoardEvent event) {
+        _pending.set(event.board().snapshot());
+        _abort.set(true);
+        _current.set(null);
+        LockSupport.unpark(_thread);
+        _onUpdate.run();
+    }
+
+    /** Analyze positions as they arrive, until stopped. */
+    private void run() {
+        Searcher searcher = new Searcher();
+        Board board = new Board();
+        while (!_stopped) {
+            Board.Snapshot position = _pending.getAndSet(null);
+            if (position == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            AtomicBoolean abort = new AtomicBoolean();
+            _abort = abort;
+            if (_pending.get() != null || _stopped) {
+                continue;
+            }
+            board.restore(position);
+            if (board.gameOver()) {
+                continue;
+            }
+            searcher.analyze(board, _depth, abort, (analysis) -> {
+                if (!abort.get()) {
+                    _current.set(analysis);
+                    _onUpdate.run();
+                }
+            });
+        }
+    }
+
+    /** The board whose positions are analyzed. */
+    private final Board _model;
+    /** Listens to _model. */
+    private final BoardListener _listener = this::positionChanged;
+    /** Maximum depth of analysis. */
+    private final int _depth;
+    /** Called when current() changes. */
+    private final Runnable _onUpdate;
+    /** The analyzing thread. */
+    private final Thread _thread;
+    /** The position awaiting analysis, if any. */
+    private final AtomicReference<Board.Snapshot> _pending =
+        new AtomicReference<>();
+    /** The latest result. */
+    private final AtomicReference<Analysis> _current =
+        new AtomicReference<>();
+    /** Set to abandon the analysis under way.  Replaced for each
+     *  position, after which a position that is not yet pending will
+     *  find and set the new flag. */
+    private volatile AtomicBoolean _abort = new AtomicBoolean();
+    /** True once stopped. */
+    private volatile boolean _stopped;
+}
@@ -1,9 +1,14 @@
 package ataxx;
 
+import java.io.FileReader;
 import java.io.InputStreamReader;
 import java.io.IOException;
-import java.io.PipedReader;
-import java.io.PipedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.awt.HeadlessException;
 
 /** The main program for Ataxx.
@@ -11,59 +16,331 @@ import java.awt.HeadlessException;
  */
 public class Main {
 
-    /** Run Ataxx game.  Use display if ARGS[k] is '--display'. */
+    /** Run Ataxx game.  Use display if ARGS[k] is '--display'.  If
+     *  ARGS[k] is '--analyze', instead analyze the positions in the file
+     *  named by ARGS[k+1] (or the standard input if there is none),
+     *  searching to the depth given by an option '--depth=N'.  If ARGS[k]
+     *  is '--server', instead serve games to connections on the local port
+     *  given by an option '--port=N'.  In the text interface, report
+     *  in JSON lines if ARGS[k] is '--json'.  If ARGS[k] is
+     *  '--record=FILE', append each finished game to the game archive
+     *  FILE, and if it is '--database=FILE', answer 'explore' commands
+     *  from the position index FILE.  If ARGS[k] is '--index', instead
+     *  build the position index ARGS[k+2] of the archive ARGS[k+1].  If
+     *  ARGS[k] is '--bench', instead search the benchmark positions to the
+     *  depth given by '--depth=N' and report the speed of the search.
+     *  When playing or serving games, let the AIs share search results
+     *  through a cache of '--cache=MB' megabytes (by default, 0 when
+     *  playing and DEFAULT_CACHE when serving; 0 for none).  When
+     *  serving, also publish the metrics as MXBeans.  With
+     *  '--hash=FILE', start with the cache saved in FILE, if there is
+     *  one, and save the cache there on exit and on 'savehash' commands
+     *  (using a cache of DEFAULT_CACHE megabytes by default). */
     public static void main(String[] args) {
-        boolean useGUI;
-        useGUI = false;
+        boolean useGUI, analyze, serve, json, bench;
+        String analyzeFile, recordFile, databaseFile, hashFile;
+        String[] indexFiles;
+        int depth, port, cacheSize;
+        useGUI = analyze = serve = json = bench = false;
+        analyzeFile = recordFile = databaseFile = hashFile = null;
+        indexFiles = null;
+        depth = AI.MAX_DEPTH;
+        port = DEFAULT_PORT;
+        cacheSize = -1;
         for (int i = 0; i < args.length; i += 1) {
             switch (args[i]) {
             case "--display":
                 useGUI = true;
                 break;
+            case "--analyze":
+                analyze = true;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    i += 1;
+                    analyzeFile = args[i];
+                }
+                break;
+            case "--server":
+                serve = true;
+                break;
+            case "--json":
+                json = true;
+                break;
+            case "--bench":
+                bench = true;
+                break;
+            case "--index":
+                if (i + 2 >= args.length) {
+                    usage();
+                }
+                indexFiles = new String[] { args[i + 1], args[i + 2] };
+                i += 2;
+                break;
             default:
-                usage();
+                if (args[i].startsWith("--depth=")) {
+                    depth = parseDepth(args[i].substring("--depth=".length()));
+                } else if (args[i].startsWith("--port=")) {
+                    port = parsePort(args[i].substring("--port=".length()));
+                } else if (args[i].startsWith("--cache=")) {
+                    cacheSize =
+                        parseCacheSize(args[i].substring("--cache=".length()));
+                } else if (args[i].startsWith("--hash=")) {
+                    hashFile = args[i].substring("--hash=".length());
+                } else if (args[i].startsWith("--record=")) {
+                    recordFile = args[i].substring("--record=".length());
+                } else if (args[i].startsWith("--database=")) {
+                    databaseFile =
+                        args[i].substring("--database=".length());
+                } else {
+                    usage();
+                }
                 break;
             }
         }
 
+        if (analyze) {
+            analyze(analyzeFile, depth);
+            return;
+        }
+        if (bench) {
+            Bench.run(depth, new TextReporter());
+            return;
+        }
+        if (indexFiles != null) {
+            index(indexFiles[0], indexFiles[1]);
+            return;
+        }
+        if (cacheSize == -1) {
+            cacheSize = serve || hashFile != null ? DEFAULT_CACHE : 0;
+        }
+        Path hashPath = null;
+        SharedCache cache = null;
+        if (cacheSize > 0) {
+            if (hashFile == null) {
+                cache = new SharedCache((long) cacheSize << 20);
+            } else {
+                hashPath = Paths.get(hashFile);
+                cache = loadCache(hashPath, (long) cacheSize << 20);
+            }
+            Metrics.registerCache(cache);
+        }
+        if (serve) {
+            Metrics.registerMBeans();
+            serve(port, cache);
+            return;
+        }
+
         Game game;
         Board board = new Board();
+        AsyncReporter output;
 
         game = null;
+        output = null;
         if (useGUI) {
             try {
-                PipedWriter writer = new PipedWriter();
-                AtaxxGUI display = new AtaxxGUI("Ataxx", board, writer);
-                game = new Game(board,
-                                new ReaderSource(new PipedReader(writer,
-                                                                 BUFFER_LEN),
-                                                 false),
-                                display);
+                CommandQueue commands = new CommandQueue(QUEUE_CAPACITY);
+                AtaxxGUI display = new AtaxxGUI("Ataxx", board, commands);
+                game = new Game(board, commands, display);
                 display.display(true);
             } catch (HeadlessException excp) {
                 System.err.printf("Could not connect to display.%n");
                 System.exit(1);
-            } catch (IOException excp) {
-                System.err.printf("An internal error occurred.%n");
-                System.exit(1);
             }
         } else {
+            output = json ? new JsonReporter(System.out)
+                : new AsyncReporter(System.out);
             game = new Game(board,
                             new ReaderSource(new InputStreamReader(System.in),
-                                             true),
-                            new TextReporter());
+                                             output),
+                            output);
         }
+        GameArchiveWriter archive = null;
+        if (recordFile != null) {
+            try {
+                archive = new GameArchiveWriter(Paths.get(recordFile));
+                game.setArchive(archive);
+            } catch (IOException | InvalidPathException excp) {
+                System.err.printf("Cannot open archive %s: %s%n", recordFile,
+                                  excp.getMessage());
+                System.exit(1);
+            }
+        }
+        if (databaseFile != null) {
+            try {
+                game.setDatabase(new PositionIndex(Paths.get(databaseFile)));
+            } catch (IOException | InvalidPathException excp) {
+                System.err.printf("Cannot open database %s: %s%n",
+                                  databaseFile, excp.getMessage());
+                System.exit(1);
+            }
+        }
+        game.setSharedCache(cache);
+        game.setHashFile(hashPath);
         game.process(false);
+        if (output != null) {
+            output.close();
+        }
+        if (archive != null) {
+            try {
+                archive.close();
+            } catch (IOException excp) {
+                System.err.printf("Cannot write archive %s: %s%n",
+                                  recordFile, excp.getMessage());
+                System.exit(1);
+            }
+        }
+        System.exit(0);
+    }
+
+    /** Write an index of the positions in the game archive ARCHIVEFILE to
+     *  INDEXFILE, writing a summary to the standard error. */
+    static void index(String archiveFile, String indexFile) {
+        try (GameArchiveReader archive =
+             new GameArchiveReader(Paths.get(archiveFile))) {
+            long start = System.nanoTime();
+            long count = PositionIndex.build(archive, Paths.get(indexFile));
+            System.err.printf("Indexed %d positions in %.3f s.%n", count,
+                              (System.nanoTime() - start) * 1e-9);
+        } catch (IOException | InvalidPathException excp) {
+            System.err.printf("Indexing failed: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Serve games on PORT, sharing search results through CACHE (if
+     *  not null), until the server fails. */
+    static void serve(int port, SharedCache cache) {
+        try {
+            new Server(port, cache).run();
+        } catch (IOException excp) {
+            System.err.printf("Server failed: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Analyze the positions in the file named FILENAME, or in the
+     *  standard input if FILENAME is null, to DEPTH, writing results to
+     *  the standard output and a summary to the standard error. */
+    static void analyze(String fileName, int depth) {
+        try {
+            Reader input = fileName == null
+                ? new InputStreamReader(System.in) : new FileReader(fileName);
+            int threads = Runtime.getRuntime().availableProcessors();
+            Analyzer analyzer =
+                new Analyzer(input, new OutputStreamWriter(System.out),
+                             threads, depth);
+            long start = System.nanoTime();
+            long count = analyzer.run();
+            double secs = (System.nanoTime() - start) * 1e-9;
+            System.err.printf("Analyzed %d positions in %.3f s on %d threads"
+                              + " (%.1f positions/s).%n",
+                              count, secs, threads, count / secs);
+            input.close();
+        } catch (IOException excp) {
+            System.err.printf("Analysis failed: %s%n", excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Return a shared cache of at most BYTES bytes, holding the entries
+     *  saved in FILE if it exists, and arrange to save it to FILE when
+     *  the program exits.  If FILE cannot be loaded, report why and
+     *  start with an empty cache. */
+    static SharedCache loadCache(Path file, long bytes) {
+        SharedCache cache = null;
+        if (Files.exists(file)) {
+            try {
+                long start = System.nanoTime();
+                cache = SharedCache.load(file, bytes);
+                System.err.printf("Loaded shared cache %s in %.1f s.%n",
+                                  file, (System.nanoTime() - start) * 1e-9);
+            } catch (IOException | GameException excp) {
+                System.err.printf("Cannot load shared cache %s: %s%n",
+                                  file, excp.getMessage());
+            }
+        }
+        if (cache == null) {
+            cache = new SharedCache(bytes);
+        }
+        SharedCache saved = cache;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                saved.save(file);
+            } catch (IOException excp) {
+                System.err.printf("Cannot save shared cache %s: %s%n",
+                                  file, excp.getMessage());
+            }
+        }));
+        return cache;
+    }
+
+    /** Return the search depth denoted by S, giving a usage message and
+     *  exiting if it is not a positive integer. */
+    static int parseDepth(String s) {
+        try {
+            int depth = Integer.parseInt(s);
+            if (depth > 0) {
+                return depth;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to usage message. */
+        }
+        usage();
+        return 0;
+    }
+
+    /** Return the port number denoted by S, giving a usage message and
+     *  exiting if it is not valid. */
+    static int parsePort(String s) {
+        try {
+            int port = Integer.parseInt(s);
+            if (port > 0 && port < (1 << 16)) {
+                return port;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to usage message. */
+        }
+        usage();
+        return 0;
+    }
+
+    /** Return the cache size in megabytes denoted by S, giving a usage
+     *  message and exiting if it is not a non-negative integer. */
+    static int parseCacheSize(String s) {
+        try {
+            int size = Integer.parseInt(s);
+            if (size >= 0) {
+                return size;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to usage message. */
+        }
+        usage();
+        return 0;
     }
 
     /** Give usage message and exit. */
     static void usage() {
         System.err.println("Usage: java ataxx.Main [--display] [--timing]"
-                           + " [--strict]");
+                           + " [--strict] [--json] [--record=FILE]");
+        System.err.println("           [--database=FILE] [--cache=MB]"
+                           + " [--hash=FILE]");
+        System.err.println("       java ataxx.Main --analyze [FILE]"
+                           + " [--depth=N]");
+        System.err.println("       java ataxx.Main --server [--port=N]"
+                           + " [--cache=MB] [--hash=FILE]");
+        System.err.println("       java ataxx.Main --bench [--depth=N]");
+        System.err.println("       java ataxx.Main --index ARCHIVE INDEX");
         System.exit(1);
     }
 
-    /** Size of the buffer for reading commands from a GUI (bytes). */
-    private static final int BUFFER_LEN = 128;
+    /** Number of commands from a GUI that may await the game. */
+    private static final int QUEUE_CAPACITY = 256;
+
+    /** Default port for --server. */
+    private static final int DEFAULT_PORT = 7070;
+
+    /** Default size of the shared search cache for --server or --hash
+     *  (MB). */
+    private static final int DEFAULT_CACHE = 64;
 
 }
@@ -15,19 +15,11 @@ class Manual extends Player {
 
     @Override
     Move myMove() {
-        Move m = null;
         Command cmd = game().getMoveCmnd(myColor().toString() + ": ");
         if (cmd == null) {
             return null;
         }
-        String[] op = cmd.operands();
-        if (cmd.commandType() == Command.Type.PASS) {
-            m = Move.pass();
-        } else if (cmd.commandType() == Command.Type.PIECEMOVE) {
-            m = Move.move(op[0].charAt(0), op[1].charAt(0), op[2].charAt(0),
-                    op[3].charAt(0));
-        }
-        return m;
+        return cmd.move();
     }
 }
 
@@ -0,0 +1,67 @@
+package ataxx;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A Counter that also measures the recent rate of its events: the mean
+ *  number per second over the last WINDOW whole seconds.  Events are
+ *  counted in a ring of per-second slots, which are reused as time
+ *  passes, so that marking an event takes no lock or allocation.  Each
+ *  slot holds the second it counts and its count in one long, so that
+ *  restarting a slot for a new second and counting an event in it are a
+ *  single atomic update, and no event is lost to a concurrent restart.
+ *  @author Carson Trinh
+ */
+class Meter extends Counter implements MeterMXBean {
+
+    /** Number of whole seconds over which the rate is measured. */
+    static final int WINDOW = 10;
+
+    @Override
+    void increment() {
+        super.increment();
+        long second = second();
+        int slot = (int) (second % SLOTS);
+        while (true) {
+            long old = _slots.get(slot);
+            long next = (old >>> COUNT_BITS) >= second ? old + 1
+                : (second << COUNT_BITS) + 1;
+            if (_slots.compareAndSet(slot, old, next)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public double getRatePerSecond() {
+        long now = second();
+        long sum = 0;
+        for (int slot = 0; slot < SLOTS; slot += 1) {
+            long value = _slots.get(slot), stamp = value >>> COUNT_BITS;
+            if (stamp < now && stamp >= now - WINDOW) {
+                sum += value & COUNT_MASK;
+            }
+        }
+        return (double) sum / WINDOW;
+    }
+
+    /** Return the current time in whole seconds from an arbitrary
+     *  origin. */
+    private static long second() {
+        return System.nanoTime() / 1_000_000_000L - ORIGIN;
+    }
+
+    /** Number of per-second slots: the window plus the current second,
+     *  with room to spare. */
+    private static final int SLOTS = 2 * WINDOW;
+    /** Number of low-order bits of a slot holding its count. */
+    private static final int COUNT_BITS = 32;
+    /** Mask for the count of a slot. */
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    /** Origin of second(), keeping it positive. */
+    private static final long ORIGIN =
+        System.nanoTime() / 1_000_000_000L - 2 * SLOTS;
+
+    /** For each slot, the second it counts, shifted left by COUNT_BITS,
+     *  plus the number of events counted in that second. */
+    private final AtomicLongArray _slots = new AtomicLongArray(SLOTS);
+}
@@ -0,0 +1,10 @@
+package ataxx;
+
+/** The management interface of a Meter.
+ *  @author Carson Trinh
+ */
+public interface MeterMXBean extends CounterMXBean {
+
+    /** Return the recent rate of events per second. */
+    double getRatePerSecond();
+}
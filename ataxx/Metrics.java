@@ -0,0 +1,114 @@
+package ataxx;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static ataxx.PieceColor.*;
+
+/** The process-wide registry of metrics for hosting: latency histograms,
+ *  counters, meters and the shared search cache, used by all Games in
+ *  the process.  They may be read with the 'metrics' command and, once
+ *  registerMBeans is called, as MXBeans named ataxx:type=TYPE,name=NAME.
+ *  @author Carson Trinh
+ */
+class Metrics {
+
+    /** Not instantiable. */
+    private Metrics() {
+    }
+
+    /** All metrics, by name, in order of registration. */
+    private static final Map<String, Object> METRICS = new LinkedHashMap<>();
+
+    /** Time taken by Red's AI to choose a move. */
+    static final Histogram RED_AI_MOVES =
+        register("ai.move.red", new Histogram());
+    /** Time taken by Blue's AI to choose a move. */
+    static final Histogram BLUE_AI_MOVES =
+        register("ai.move.blue", new Histogram());
+    /** Time taken to execute commands. */
+    static final Histogram COMMANDS =
+        register("game.command", new Histogram());
+    /** Moves made in games. */
+    static final Meter MOVES = register("game.moves", new Meter());
+    /** Games played to the end. */
+    static final Counter GAMES_COMPLETED =
+        register("game.completed", new Counter());
+    /** Illegal moves rejected. */
+    static final Counter ILLEGAL_MOVES =
+        register("game.illegal_moves", new Counter());
+
+    /** Return the histogram of move times of PLAYER's AI. */
+    static Histogram aiMoves(PieceColor player) {
+        return player == RED ? RED_AI_MOVES : BLUE_AI_MOVES;
+    }
+
+    /** Report the current values of all metrics, one per message, using
+     *  REPORTER. */
+    static synchronized void report(Reporter reporter) {
+        for (Map.Entry<String, Object> entry : METRICS.entrySet()) {
+            Object metric = entry.getValue();
+            if (metric instanceof Histogram) {
+                Histogram h = (Histogram) metric;
+                reporter.outcomeMsg("%s: %d, mean %.1f ms, p50 %.1f ms, "
+                                    + "p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                                    entry.getKey(), h.getCount(),
+                                    h.getMeanMillis(), h.getP50Millis(),
+                                    h.getP90Millis(), h.getP99Millis(),
+                                    h.getMaxMillis());
+            } else if (metric instanceof Meter) {
+                Meter m = (Meter) metric;
+                reporter.outcomeMsg("%s: %d, %.1f/s", entry.getKey(),
+                                    m.getCount(), m.getRatePerSecond());
+            } else if (metric instanceof SharedCache) {
+                SharedCache c = (SharedCache) metric;
+                reporter.outcomeMsg("%s: %d MB, %d%% full, %d probes, "
+                                    + "%.1f%% hits, %d stores",
+                                    entry.getKey(),
+                                    c.getCapacityBytes() >> 20,
+                                    c.getUsedPercent(), c.getProbes(),
+                                    c.getHitRate(), c.getStores());
+            } else {
+                reporter.outcomeMsg("%s: %d", entry.getKey(),
+                                    ((Counter) metric).getCount());
+            }
+        }
+    }
+
+    /** Register all metrics with the platform MBean server, if they are
+     *  not already registered. */
+    static synchronized void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (Map.Entry<String, Object> entry : METRICS.entrySet()) {
+            Object metric = entry.getValue();
+            String type = metric.getClass().getSimpleName();
+            try {
+                ObjectName name =
+                    new ObjectName("ataxx:type=" + type + ",name="
+                                   + entry.getKey());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(metric, name);
+                }
+            } catch (JMException excp) {
+                System.err.printf("Cannot register metric %s: %s%n",
+                                  entry.getKey(), excp.getMessage());
+            }
+        }
+    }
+
+    /** Add CACHE, shared by the Searchers in this process, to the
+     *  registry as cache.shared. */
+    static void registerCache(SharedCache cache) {
+        register("cache.shared", cache);
+    }
+
+    /** Add METRIC to the registry under NAME, returning it. */
+    private static synchronized <T> T register(String name, T metric) {
+        METRICS.put(name, metric);
+        return metric;
+    }
+}
@@ -0,0 +1,99 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+/** Tests of the metrics.
+ *  @author Carson Trinh
+ */
+public class MetricsTest {
+
+    @Test
+    public void testBuckets() {
+        for (long v = 0; v < 100_000; v += 1) {
+            int b = Histogram.bucket(v);
+            assertTrue("bucket too high at " + v,
+                       Histogram.lowerBound(b) <= v);
+            assertTrue("bucket too low at " + v,
+                       v < Histogram.lowerBound(b + 1));
+        }
+        assertEquals(Histogram.NUM_BUCKETS - 1,
+                     Histogram.bucket(Long.MAX_VALUE));
+        long v = 1_234_567_890_123L;
+        long low = Histogram.lowerBound(Histogram.bucket(v)),
+            high = Histogram.lowerBound(Histogram.bucket(v) + 1);
+        assertTrue("bucket too wide", high - low <= low / 8);
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram h = new Histogram();
+        assertEquals(0, h.percentile(0.5));
+        for (long ms = 1; ms <= 100; ms += 1) {
+            h.record(ms * 1_000_000);
+        }
+        assertEquals(100, h.getCount());
+        assertEquals(50.5, h.getMeanMillis(), 1e-9);
+        assertEquals(100.0, h.getMaxMillis(), 1e-9);
+        assertEquals(50.0, h.getP50Millis(), 50.0 / 8);
+        assertEquals(90.0, h.getP90Millis(), 90.0 / 8);
+        assertEquals(100.0, h.getP99Millis(), 100.0 / 8);
+        assertTrue(h.getP99Millis() <= h.getMaxMillis());
+    }
+
+    @Test
+    public void testMeter() {
+        Meter m = new Meter();
+        for (int i = 0; i < 25; i += 1) {
+            m.increment();
+        }
+        assertEquals(25, m.getCount());
+        assertTrue(m.getRatePerSecond() >= 0);
+        assertTrue(m.getRatePerSecond() <= 25.0 / Meter.WINDOW);
+    }
+
+    @Test
+    public void testMeterThreads() throws InterruptedException {
+        Meter m = new Meter();
+        long end = System.nanoTime() + 1_100_000_000L;
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i += 1) {
+            threads[i] = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    m.increment();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Thread.sleep(1_100);
+        assertEquals("events lost across seconds", m.getCount(),
+                     m.getRatePerSecond() * Meter.WINDOW, 0.5);
+    }
+
+    @Test
+    public void testGame() {
+        long games = Metrics.GAMES_COMPLETED.getCount(),
+            illegal = Metrics.ILLEGAL_MOVES.getCount(),
+            moves = Metrics.MOVES.getCount(),
+            commands = Metrics.COMMANDS.getCount();
+        Reporter quiet =
+            new TextReporter(new PrintStream(OutputStream.nullOutputStream()));
+        String script = "manual blue\nstart\na7-a5\na7-a6\na1-a2\n"
+            + "a6-a4\nquit\n";
+        Game game = new Game(new Board(),
+                             new ReaderSource(new StringReader(script), null),
+                             quiet);
+        game.process(false);
+        assertEquals(moves + 2, Metrics.MOVES.getCount());
+        assertEquals(illegal + 2, Metrics.ILLEGAL_MOVES.getCount());
+        assertEquals(games, Metrics.GAMES_COMPLETED.getCount());
+        assertTrue(Metrics.COMMANDS.getCount() >= commands + 2);
+    }
+}
@@ -0,0 +1,285 @@
+package ataxx;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Stack;
+import java.util.regex.Pattern;
+
+/** Microbenchmarks of the operations the search and the command loop
+ *  spend their time in.  Each benchmark is warmed up, then timed over
+ *  several iterations of a fixed duration, reporting the mean time per
+ *  operation with its spread across iterations, and the bytes allocated
+ *  per operation and per second (by the measuring thread, as HotSpot
+ *  counts them).  Benchmarks run on a fixed set of positions taken from
+ *  random games with a fixed seed, so that results are comparable from
+ *  run to run.
+ *
+ *  Usage: java ataxx.MicroBench [--warmup=N] [--iterations=N]
+ *  [--time=MSEC] [PATTERN], where PATTERN, if present, selects the
+ *  benchmarks whose names it finds.
+ *  @author Carson Trinh
+ */
+public class MicroBench {
+
+    /** An operation to be timed. */
+    interface Op {
+        /** Perform the operation REPS times, returning a value that
+         *  depends on the results, so that they cannot be optimized
+         *  away. */
+        long run(int reps);
+    }
+
+    /** Run the benchmarks selected by ARGS, as described above. */
+    public static void main(String[] args) {
+        int warmup = DEFAULT_WARMUP, iterations = DEFAULT_ITERATIONS;
+        long time = DEFAULT_TIME;
+        Pattern select = Pattern.compile("");
+        for (String arg : args) {
+            if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(arg.substring(9));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring(13));
+            } else if (arg.startsWith("--time=")) {
+                time = Long.parseLong(arg.substring(7));
+            } else if (arg.startsWith("--")) {
+                System.err.printf("Unknown option: %s%n", arg);
+                System.exit(1);
+            } else {
+                select = Pattern.compile(arg);
+            }
+        }
+        System.out.printf("# %s %s, %d warmup, %d x %d ms%n",
+                          System.getProperty("java.vm.name"),
+                          System.getProperty("java.version"),
+                          warmup, iterations, time);
+        System.out.printf("%-24s %12s %9s %12s %10s%n", "Benchmark",
+                          "ns/op", "+-", "B/op", "MB/s");
+        for (Map.Entry<String, Op> bench : benchmarks().entrySet()) {
+            if (select.matcher(bench.getKey()).find()) {
+                measure(bench.getKey(), bench.getValue(), warmup,
+                        iterations, time);
+            }
+        }
+        if (_sink == 1) {
+            System.out.println();
+        }
+    }
+
+    /** Return the benchmarks, by name, in order. */
+    static Map<String, Op> benchmarks() {
+        Board[] positions = positions();
+        Board[] blocked = positions(BLOCKS);
+        Move[][] moves = new Move[positions.length][];
+        Searcher searcher = new Searcher();
+        for (int i = 0; i < positions.length; i += 1) {
+            moves[i] = searcher.findPossibleMoves(positions[i].whoseMove(),
+                                                  positions[i])
+                .toArray(new Move[0]);
+        }
+        String[] commands = {
+            "a7-b6", "c3-e5", "-", "start", "auto red", "seed 42",
+            "block c3", "dump", "  g1-f2  ", "manual blue"
+        };
+
+        Map<String, Op> result = new LinkedHashMap<>();
+        result.put("makeMove+undo", (reps) -> {
+            long sum = 0;
+            for (int n = 0; n < reps; n += 1) {
+                int i = n % positions.length;
+                Move[] legal = moves[i];
+                positions[i].makeMove(legal[n % legal.length]);
+                sum += positions[i].redPieces();
+                positions[i].undo();
+            }
+            return sum;
+        });
+        result.put("canMove", (reps) -> {
+            long sum = 0;
+            for (int n = 0; n < reps; n += 1) {
+                Board b = positions[n % positions.length];
+                sum += b.canMove(b.whoseMove()) ? 1 : 0;
+            }
+            return sum;
+        });
+        result.put("gameOver", (reps) -> {
+            long sum = 0;
+            for (int n = 0; n < reps; n += 1) {
+                sum += positions[n % positions.length].gameOver() ? 1 : 0;
+            }
+            return sum;
+        });
+        result.put("findPossibleMoves", (reps) -> {
+            long sum = 0;
+            for (int n = 0; n < reps; n += 1) {
+                Board b = positions[n % positions.length];
+                sum += searcher.findPossibleMoves(b.whoseMove(), b).size();
+            }
+            return sum;
+        });
+        result.put("canMove/blocked", (reps) -> {
+            long sum = 0;
+            for (int n = 0; n < reps; n += 1) {
+                Board b = blocked[n % blocked.length];
+                sum += b.canMove(b.whoseMove()) ? 1 : 0;
+            }
+            return sum;
+        });
+        result.put("findPossibleMoves/blocked", (reps) -> {
+            long sum = 0;
+            for (int n = 0; n < reps; n += 1) {
+                Board b = blocked[n % blocked.length];
+                sum += searcher.findPossibleMoves(b.whoseMove(), b).size();
+            }
+            return sum;
+        });
+        result.put("staticScore", (reps) -> {
+            long sum = 0;
+            for (int n = 0; n < reps; n += 1) {
+                sum += searcher.staticScore(positions[n % positions.length]);
+            }
+            return sum;
+        });
+        result.put("copyBoard", (reps) -> {
+            long sum = 0;
+            for (int n = 0; n < reps; n += 1) {
+                sum += new Board(positions[n % positions.length]).numMoves();
+            }
+            return sum;
+        });
+        result.put("parseCommand", (reps) -> {
+            long sum = 0;
+            for (int n = 0; n < reps; n += 1) {
+                Command cmnd =
+                    Command.parseCommand(commands[n % commands.length]);
+                sum += cmnd.commandType().ordinal();
+            }
+            return sum;
+        });
+        for (int depth = 2; depth <= AI.MAX_DEPTH; depth += 1) {
+            int d = depth;
+            result.put("findMove/depth=" + d, (reps) -> {
+                long sum = 0;
+                for (int n = 0; n < reps; n += 1) {
+                    searcher.table().clear();
+                    Board b = positions[n % positions.length];
+                    sum += searcher.findMove(b, d).id();
+                }
+                return sum;
+            });
+        }
+        return result;
+    }
+
+    /** Return the positions used by the benchmarks: every POSITION_STRIDE
+     *  positions of NUM_GAMES random games that are not over, played with
+     *  blocks at BLOCKS (and their reflections). */
+    static Board[] positions(String... blocks) {
+        Random random = new Random(SEED);
+        Searcher searcher = new Searcher();
+        List<Board> positions = new ArrayList<>();
+        for (int g = 0; g < NUM_GAMES; g += 1) {
+            Board b = new Board();
+            for (String block : blocks) {
+                b.setBlock(block);
+            }
+            while (!b.gameOver()) {
+                if (b.numMoves() % POSITION_STRIDE == 0) {
+                    Board position = new Board();
+                    position.setPosition(b.positionString());
+                    positions.add(position);
+                }
+                Stack<Move> moves =
+                    searcher.findPossibleMoves(b.whoseMove(), b);
+                b.makeMove(moves.get(random.nextInt(moves.size())));
+            }
+        }
+        return positions.toArray(new Board[0]);
+    }
+
+    /** Time OP, named NAME, for WARMUP iterations and then for ITERATIONS
+     *  that are reported, each lasting about TIME msec, and print the
+     *  results. */
+    private static void measure(String name, Op op, int warmup,
+                                int iterations, long time) {
+        int reps = 1;
+        double[] nanosPerOp = new double[iterations];
+        double bytes = 0, nanos = 0, ops = 0;
+        for (int i = -warmup; i < iterations; i += 1) {
+            long deadline = System.nanoTime() + time * 1_000_000;
+            long count = 0, elapsed = 0, allocated = 0;
+            while (System.nanoTime() < deadline) {
+                long bytes0 = allocatedBytes(), start = System.nanoTime();
+                _sink += op.run(reps);
+                long spent = System.nanoTime() - start;
+                allocated += allocatedBytes() - bytes0;
+                elapsed += spent;
+                count += reps;
+                if (spent < BATCH_NANOS) {
+                    reps *= 2;
+                }
+            }
+            if (i >= 0) {
+                nanosPerOp[i] = (double) elapsed / count;
+                bytes += allocated;
+                nanos += elapsed;
+                ops += count;
+            }
+        }
+        double mean = nanos / ops, spread = 0;
+        for (double x : nanosPerOp) {
+            spread = Math.max(spread, Math.abs(x - mean));
+        }
+        System.out.printf("%-24s %12.1f %9.1f %12.1f %10.1f%n", name, mean,
+                          spread, bytes / ops, bytes / nanos * 1e3);
+    }
+
+    /** Return the number of bytes allocated so far by this thread, or 0
+     *  if that cannot be determined. */
+    private static long allocatedBytes() {
+        if (THREADS != null) {
+            return THREADS.getThreadAllocatedBytes(Thread.currentThread()
+                                                   .getId());
+        }
+        return 0;
+    }
+
+    /** Default number of warmup iterations. */
+    private static final int DEFAULT_WARMUP = 3;
+    /** Default number of measured iterations. */
+    private static final int DEFAULT_ITERATIONS = 5;
+    /** Default length of an iteration (msec). */
+    private static final long DEFAULT_TIME = 1000;
+    /** Minimum time of a batch of repetitions between clock readings
+     *  (nsec). */
+    private static final long BATCH_NANOS = 10_000_000;
+    /** Seed for the random games supplying positions. */
+    private static final long SEED = 61;
+    /** Blocks for the benchmarks on a heavily blocked board: 13 squares
+     *  with their reflections. */
+    private static final String[] BLOCKS = { "b2", "c3", "d2", "b4", "d4" };
+    /** Number of random games supplying positions. */
+    private static final int NUM_GAMES = 8;
+    /** Number of moves between positions taken from a game. */
+    private static final int POSITION_STRIDE = 5;
+
+    /** Source of allocation counts, or null if unavailable. */
+    private static final com.sun.management.ThreadMXBean THREADS;
+
+    static {
+        java.lang.management.ThreadMXBean threads =
+            ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            THREADS = (com.sun.management.ThreadMXBean) threads;
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            THREADS = null;
+        }
+    }
+
+    /** Accumulates the results of benchmarks so that they are used. */
+    private static long _sink;
+}
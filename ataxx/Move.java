@@ -18,20 +18,23 @@ class Move {
      * are immutable, and for any possible move, there is exactly one
      * object of type Move. */
 
-    /** The move COL0 ROW0 - COL1 ROW1.  This must be a legal move. */
-    private Move(int col0, int row0, int col1, int row1) {
+    /** The move COL0 ROW0 - COL1 ROW1, whose id() is ID.  This must be a
+     *  legal move. */
+    private Move(int col0, int row0, int col1, int row1, int id) {
         _col0 = (char) (col0 + 'a' - 2);
         _row0 = (char) (row0 + '1' - 2);
         _col1 = (char) (col1 + 'a' - 2);
         _row1 = (char) (row1 + '1' - 2);
         _fromIndex = row0 * EXTENDED_SIDE + col0;
         _toIndex = row1 * EXTENDED_SIDE + col1;
+        _id = id;
     }
 
     /** A pass. */
     private Move() {
         _col0 = _col1 = _row0 = _row1 = 0;
         _fromIndex = _toIndex = -1;
+        _id = 0;
     }
 
     /** A factory method that returns a Move from COL0 ROW0 to COL1 ROW1,
@@ -53,6 +56,20 @@ class Move {
         return PASS;
     }
 
+    /** Return the Move whose id() is ID, or null if there is none. */
+    static Move fromId(int id) {
+        if (id < 0 || id >= NUM_IDS) {
+            return null;
+        }
+        return MOVES_BY_ID[id];
+    }
+
+    /** Return my dense numeric id: 0 for a pass, and a distinct value
+     *  between 1 and NUM_IDS - 1 for every other Move. */
+    int id() {
+        return _id;
+    }
+
     /** Return true iff I am a pass. */
     boolean isPass() {
         return this == PASS;
@@ -122,12 +139,19 @@ class Move {
     /** Size of side of a board plus 2-deep boundary. */
     static final int EXTENDED_SIDE = SIDE + 4;
 
+    /** Number of distinct Move ids: the pass, plus 24 destinations from
+     *  each square on the board. */
+    static final int NUM_IDS = 1 + SIDE * SIDE * 24;
+
     /** The pass. */
     static final Move PASS = new Move();
 
     /** Linearized indices. */
     private final int _fromIndex, _toIndex;
 
+    /** My id. */
+    private final int _id;
+
     /** From and two squares, or 0s if a pass. */
     private char _col0, _row0, _col1, _row1;
 
@@ -136,16 +160,23 @@ class Move {
     private static final Move[][][][] ALL_MOVES =
         new Move[EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE][EXTENDED_SIDE];
 
+    /** All Moves, indexed by id. */
+    private static final Move[] MOVES_BY_ID = new Move[NUM_IDS];
+
     /* A "static initializer".  These code sections are run when the class
      * is initialized and are intended to initialize static variables. */
     static {
+        int id = 0;
+        MOVES_BY_ID[id++] = PASS;
         for (int c = 2; c < SIDE + 2; c += 1) {
             for (int r = 2; r < SIDE + 2; r += 1) {
                 for (int dc = -2; dc <= 2; dc += 1) {
                     for (int dr = -2; dr <= 2; dr += 1) {
                         if (dc != 0 || dr != 0) {
                             ALL_MOVES[c][r][c + dc][r + dr] =
-                                new Move(c, r, c + dc, r + dr);
+                                new Move(c, r, c + dc, r + dr, id);
+                            MOVES_BY_ID[id++] =
+                                ALL_MOVES[c][r][c + dc][r + dr];
                         }
                     }
                 }
@@ -0,0 +1,258 @@
+package ataxx;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/** An end-to-end performance regression suite.  It plays a fixed corpus
+ *  of games through Games with AI players, in this process and without
+ *  output: the scripts of the integration tests in which an AI moves
+ *  (without their expected output), and several complete games between
+ *  two AIs.  For each scenario, it records the latency percentiles of
+ *  the AIs' searches, the positions they visit and the bytes they
+ *  allocate, appends the results to a CSV history file, and compares
+ *  them with the median of the scenario's latest results in the
+ *  history, failing if any metric has grown by more than its
+ *  threshold.
+ *
+ *  Usage: java ataxx.PerfSuite [--history=FILE] [--thresholds=FILE]
+ *  [--label=TEXT] [SCRIPT.inp ...].  The thresholds file is a properties
+ *  file giving, for each metric to check, the largest allowed ratio of
+ *  its value to the median of the latest 'window' results, as well as
+ *  'min_ms' and 'min_searches': latencies below min_ms, or from fewer
+ *  than min_searches searches, are too noisy to check.
+ *  @author Carson Trinh
+ */
+public class PerfSuite {
+
+    /** Names of the metrics recorded, as in the history's header. */
+    static final String[] METRICS = {
+        "searches", "p50_ms", "p90_ms", "p99_ms", "max_ms", "nodes",
+        "kb_per_search"
+    };
+
+    /** Complete games between two AIs, as command scripts, by name. */
+    static final String[][] GAMES = {
+        { "ai-open", "auto red\nstart\nquit\n" },
+        { "ai-center", "block d3\nauto red\nstart\nquit\n" },
+        { "ai-blocks", "block b2\nblock c4\nauto red\nstart\nquit\n" },
+    };
+
+    /** Run the suite as described above, according to ARGS.  Exits with
+     *  status 1 if there is a regression. */
+    public static void main(String[] args) throws IOException {
+        Path history = Paths.get("perf-history.csv"),
+            thresholds = Paths.get("perf-thresholds.properties");
+        String label = "";
+        List<Path> scripts = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--history=")) {
+                history = Paths.get(arg.substring("--history=".length()));
+            } else if (arg.startsWith("--thresholds=")) {
+                thresholds =
+                    Paths.get(arg.substring("--thresholds=".length()));
+            } else if (arg.startsWith("--label=")) {
+                label = arg.substring("--label=".length());
+            } else if (arg.startsWith("--")) {
+                System.err.printf("Unknown option: %s%n", arg);
+                System.exit(1);
+            } else {
+                scripts.add(Paths.get(arg));
+            }
+        }
+
+        Map<String, double[]> results = new LinkedHashMap<>();
+        for (Path script : scripts) {
+            double[] result = run(new StringReader(testScript(script)));
+            if (result[0] > 0) {
+                results.put(script.getFileName().toString(), result);
+            }
+        }
+        for (String[] game : GAMES) {
+            results.put(game[0], run(new StringReader(game[1])));
+        }
+
+        Properties limits = new Properties();
+        if (Files.exists(thresholds)) {
+            try (Reader in = Files.newBufferedReader(thresholds)) {
+                limits.load(in);
+            }
+        }
+        Map<String, List<double[]>> past = readHistory(history);
+        System.out.printf("%-16s", "scenario");
+        for (String metric : METRICS) {
+            System.out.printf(" %13s", metric);
+        }
+        System.out.println();
+        int regressions = 0;
+        for (Map.Entry<String, double[]> result : results.entrySet()) {
+            System.out.printf("%-16s", result.getKey());
+            for (double value : result.getValue()) {
+                System.out.printf(" %13.2f", value);
+            }
+            System.out.println();
+            regressions += check(result.getKey(), result.getValue(),
+                                 past.get(result.getKey()), limits);
+        }
+        appendHistory(history, label, results);
+        if (regressions > 0) {
+            System.out.printf("%d regression(s).%n", regressions);
+            System.exit(1);
+        }
+    }
+
+    /** Play the commands read from SCRIPT, returning the values of
+     *  METRICS for the searches made. */
+    static double[] run(Reader script) {
+        SearchStats stats = new SearchStats();
+        Reporter quiet =
+            new TextReporter(new PrintStream(OutputStream.nullOutputStream()));
+        Game game = new Game(new Board(), new ReaderSource(script, null),
+                             quiet);
+        game.setSearchStats(stats);
+        game.process(false);
+        int n = stats.count();
+        return new double[] {
+            n, stats.percentile(0.5) * 1e-6, stats.percentile(0.9) * 1e-6,
+            stats.percentile(0.99) * 1e-6, stats.percentile(1.0) * 1e-6,
+            stats.nodes(), n == 0 ? 0 : stats.bytes() / 1024.0 / n
+        };
+    }
+
+    /** Return the commands sent to the first program in the integration
+     *  test SCRIPT, without the test's directives and expected output. */
+    static String testScript(Path script) throws IOException {
+        StringBuilder commands = new StringBuilder();
+        boolean started = false;
+        for (String line : Files.readAllLines(script)) {
+            if (line.startsWith("java ")) {
+                if (started) {
+                    break;
+                }
+                started = true;
+            } else if (started && !line.startsWith("@")
+                       && !line.startsWith("#")) {
+                commands.append(line).append('\n');
+            }
+        }
+        return commands.toString();
+    }
+
+    /** Return the number of metrics of the scenario named NAME with
+     *  values VALUES that exceed the limits in LIMITS relative to the
+     *  scenario's earlier results PAST (null if none). */
+    private static int check(String name, double[] values,
+                             List<double[]> past, Properties limits) {
+        if (past == null || past.isEmpty()) {
+            return 0;
+        }
+        int window = Integer.parseInt(limits.getProperty("window", "5"));
+        double minMillis =
+            Double.parseDouble(limits.getProperty("min_ms", "0"));
+        int minSearches =
+            Integer.parseInt(limits.getProperty("min_searches", "0"));
+        List<double[]> recent =
+            past.subList(Math.max(0, past.size() - window), past.size());
+        int regressions = 0;
+        for (int m = 0; m < METRICS.length; m += 1) {
+            String limit = limits.getProperty(METRICS[m]);
+            if (limit == null) {
+                continue;
+            }
+            double[] earlier = new double[recent.size()];
+            for (int i = 0; i < earlier.length; i += 1) {
+                earlier[i] = recent.get(i)[m];
+            }
+            Arrays.sort(earlier);
+            double median = earlier[earlier.length / 2];
+            if (METRICS[m].endsWith("_ms")
+                && (values[m] < minMillis || values[0] < minSearches)) {
+                continue;
+            }
+            if (values[m] > median * Double.parseDouble(limit)) {
+                System.out.printf("REGRESSION: %s %s = %.2f, median of last"
+                                  + " %d runs = %.2f, limit x%s%n", name,
+                                  METRICS[m], values[m], earlier.length,
+                                  median, limit);
+                regressions += 1;
+            }
+        }
+        return regressions;
+    }
+
+    /** Return the results in the CSV history file FILE (if it exists),
+     *  by scenario, oldest first. */
+    private static Map<String, List<double[]>> readHistory(Path file)
+        throws IOException {
+        Map<String, List<double[]>> past = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return past;
+        }
+        List<String> lines = Files.readAllLines(file);
+        for (String line : lines.subList(Math.min(1, lines.size()),
+                                          lines.size())) {
+            String[] fields = line.split(",", -1);
+            if (fields.length != HISTORY_PREFIX + METRICS.length) {
+                continue;
+            }
+            double[] values = new double[METRICS.length];
+            try {
+                for (int m = 0; m < METRICS.length; m += 1) {
+                    values[m] =
+                        Double.parseDouble(fields[HISTORY_PREFIX + m]);
+                }
+            } catch (NumberFormatException excp) {
+                continue;
+            }
+            past.computeIfAbsent(fields[2], (k) -> new ArrayList<>())
+                .add(values);
+        }
+        return past;
+    }
+
+    /** Append RESULTS, by scenario, to the CSV history FILE, labeled with
+     *  LABEL, creating it with a header if it does not exist. */
+    private static void appendHistory(Path file, String label,
+                                      Map<String, double[]> results)
+        throws IOException {
+        boolean isNew = !Files.exists(file);
+        try (BufferedWriter out =
+             Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                     StandardOpenOption.CREATE,
+                                     StandardOpenOption.APPEND)) {
+            if (isNew) {
+                out.write("time,label,scenario," + String.join(",", METRICS));
+                out.newLine();
+            }
+            String time = java.time.Instant.now().toString();
+            for (Map.Entry<String, double[]> result : results.entrySet()) {
+                StringBuilder line = new StringBuilder();
+                line.append(time).append(',')
+                    .append(label.replace(',', ' ')).append(',')
+                    .append(result.getKey());
+                for (double value : result.getValue()) {
+                    line.append(String.format(",%.3f", value));
+                }
+                out.write(line.toString());
+                out.newLine();
+            }
+        }
+    }
+
+    /** Number of fields preceding the metrics in a line of history. */
+    private static final int HISTORY_PREFIX = 3;
+}
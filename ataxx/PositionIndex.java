@@ -0,0 +1,428 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** An on-disk index of the positions reached in the games of a game
+ *  archive, keyed by Board.key().  The index records, for each position
+ *  (ply) of each game, the game's number (its position in the archive,
+ *  from 0), the ply, the game's outcome, and the move made from the
+ *  position, if any.  The index file is memory-mapped and searched in
+ *  place, so it need not fit in the heap.
+ *
+ *  An index file consists of a header (MAGIC, padded to 8 bytes, and the
+ *  number of entries as a long), a table of BUCKETS + 1 ints, and the
+ *  entries.  Each entry is a key and a payload, both longs, and entries
+ *  are sorted by key (as unsigned values) and then by game number.  The
+ *  table gives, for each value B of the top BUCKET_BITS bits of a key,
+ *  the number of entries whose keys have smaller top bits, so that a
+ *  lookup need only search the entries between table[B] and table[B+1].
+ *  @author Carson Trinh
+ */
+class PositionIndex implements Closeable {
+
+    /** Identifies an index file, including its format version. */
+    static final byte[] MAGIC = { 'A', 'T', 'X', 'I', 1 };
+
+    /** Statistics of the games in which one move was played from a
+     *  position. */
+    static class MoveStats {
+
+        /** Statistics for MOVE, initially with no games. */
+        MoveStats(Move move) {
+            _move = move;
+        }
+
+        /** Return the move. */
+        Move move() {
+            return _move;
+        }
+
+        /** Return the number of games in which the move was played. */
+        int games() {
+            int n = 0;
+            for (int count : _outcomes) {
+                n += count;
+            }
+            return n;
+        }
+
+        /** Return the number of those games with OUTCOME, as for
+         *  GameRecord.outcome(). */
+        int games(int outcome) {
+            return _outcomes[outcome];
+        }
+
+        /** The move. */
+        private final Move _move;
+        /** Numbers of games, indexed by outcome. */
+        private final int[] _outcomes = new int[GameRecord.DRAW + 1];
+    }
+
+    /** Open the index file FILE for lookups. */
+    PositionIndex(Path file) throws IOException {
+        try (FileChannel input = FileChannel.open(file)) {
+            MappedByteBuffer header =
+                input.map(FileChannel.MapMode.READ_ONLY, 0, DATA_OFFSET);
+            for (int i = 0; i < MAGIC.length; i += 1) {
+                if (header.get(i) != MAGIC[i]) {
+                    throw new IOException("not a position index");
+                }
+            }
+            _size = header.getLong(HEADER_SIZE - Long.BYTES);
+            if (input.size() != DATA_OFFSET + _size * ENTRY_SIZE) {
+                throw new IOException("truncated position index");
+            }
+            _table = header;
+            int numSegments = (int) ((_size + SEGMENT_ENTRIES - 1)
+                                     / SEGMENT_ENTRIES);
+            _segments = new MappedByteBuffer[numSegments];
+            for (int s = 0; s < numSegments; s += 1) {
+                long first = (long) s * SEGMENT_ENTRIES;
+                long len = Math.min(SEGMENT_ENTRIES, _size - first);
+                _segments[s] =
+                    input.map(FileChannel.MapMode.READ_ONLY,
+                              DATA_OFFSET + first * ENTRY_SIZE,
+                              len * ENTRY_SIZE);
+            }
+        }
+    }
+
+    /** Return the number of positions in the index. */
+    long size() {
+        return _size;
+    }
+
+    /** Return the numbers of the games that reached a position whose key
+     *  is KEY, in increasing order, each once. */
+    int[] games(long key) {
+        long first = find(key), end = end(key, first);
+        int[] result = new int[(int) (end - first)];
+        int n = 0;
+        for (long i = first; i < end; i += 1) {
+            int game = game(payload(i));
+            if (n == 0 || result[n - 1] != game) {
+                result[n] = game;
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Return statistics for each move played from positions whose key is
+     *  KEY, in decreasing order of the number of games. */
+    List<MoveStats> moves(long key) {
+        MoveStats[] byId = new MoveStats[Move.NUM_IDS];
+        List<MoveStats> result = new ArrayList<>();
+        for (long i = find(key), end = end(key, i); i < end; i += 1) {
+            long payload = payload(i);
+            Move move = move(payload);
+            if (move == null) {
+                continue;
+            }
+            if (byId[move.id()] == null) {
+                byId[move.id()] = new MoveStats(move);
+                result.add(byId[move.id()]);
+            }
+            byId[move.id()]._outcomes[outcome(payload)] += 1;
+        }
+        result.sort((x, y) -> y.games() - x.games());
+        return result;
+    }
+
+    @Override
+    public void close() {
+        _segments = new MappedByteBuffer[0];
+        _size = 0;
+    }
+
+    /** Return the index of the first entry whose key is KEY, or of the
+     *  first with a greater key if there is none. */
+    private long find(long key) {
+        int bucket = bucketOf(key);
+        long lo = bucket(bucket), hi = bucket(bucket + 1);
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(key(mid), key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Return the index of the first entry at or after FIRST whose key is
+     *  not KEY. */
+    private long end(long key, long first) {
+        long end = first;
+        while (end < _size && key(end) == key) {
+            end += 1;
+        }
+        return end;
+    }
+
+    /** Return the number of entries whose keys' top bits are less than
+     *  BUCKET. */
+    private long bucket(int bucket) {
+        return Integer.toUnsignedLong(_table.getInt(HEADER_SIZE
+                                                    + bucket * Integer.BYTES));
+    }
+
+    /** Return the bucket of KEY. */
+    private static int bucketOf(long key) {
+        return (int) (key >>> (Long.SIZE - BUCKET_BITS));
+    }
+
+    /** Return the key of entry I. */
+    private long key(long i) {
+        return _segments[(int) (i / SEGMENT_ENTRIES)]
+            .getLong((int) (i % SEGMENT_ENTRIES) * ENTRY_SIZE);
+    }
+
+    /** Return the payload of entry I. */
+    private long payload(long i) {
+        return _segments[(int) (i / SEGMENT_ENTRIES)]
+            .getLong((int) (i % SEGMENT_ENTRIES) * ENTRY_SIZE + Long.BYTES);
+    }
+
+    /** Return the payload of an entry for ply PLY of game GAME, whose
+     *  outcome is OUTCOME, and in which MOVE (null if none) was made from
+     *  the position. */
+    static long payload(int game, int ply, int outcome, Move move) {
+        return ((long) game << 32) | ((long) ply << 16) | (outcome << 12)
+            | (move == null ? 0 : move.id() + 1);
+    }
+
+    /** Return the game number in PAYLOAD. */
+    static int game(long payload) {
+        return (int) (payload >>> 32);
+    }
+
+    /** Return the ply in PAYLOAD. */
+    static int ply(long payload) {
+        return (int) (payload >>> 16) & 0xFFFF;
+    }
+
+    /** Return the outcome in PAYLOAD. */
+    static int outcome(long payload) {
+        return (int) (payload >>> 12) & 0x3;
+    }
+
+    /** Return the move in PAYLOAD, or null if there is none. */
+    static Move move(long payload) {
+        int id = (int) payload & 0xFFF;
+        return id == 0 ? null : Move.fromId(id - 1);
+    }
+
+    /** Write an index of the positions in the games read from ARCHIVE to
+     *  FILE, returning the number of positions.  Positions are sorted in
+     *  runs of RUN_ENTRIES, which are written to temporary files next to
+     *  FILE and then merged. */
+    static long build(GameArchiveReader archive, Path file)
+        throws IOException {
+        long[] keys = new long[RUN_ENTRIES], payloads = new long[RUN_ENTRIES];
+        long[] counts = new long[BUCKETS];
+        List<Path> runs = new ArrayList<>();
+        Board board = new Board();
+        long total = 0;
+        int n = 0;
+        try {
+            GameRecord record;
+            for (int game = 0; (record = archive.read()) != null; game += 1) {
+                if (total + record.numMoves() + 1 > MAX_ENTRIES) {
+                    throw new IOException("too many positions to index");
+                }
+                record.replay(board, 0);
+                for (int ply = 0; ply <= record.numMoves(); ply += 1) {
+                    Move move =
+                        ply < record.numMoves() ? record.move(ply) : null;
+                    if (n == RUN_ENTRIES) {
+                        runs.add(writeRun(file, keys, payloads, n));
+                        n = 0;
+                    }
+                    keys[n] = board.key();
+                    payloads[n] = payload(game, ply, record.outcome(), move);
+                    counts[bucketOf(keys[n])] += 1;
+                    n += 1;
+                    total += 1;
+                    if (move != null) {
+                        board.makeMove(move);
+                    }
+                }
+            }
+            runs.add(writeRun(file, keys, payloads, n));
+            keys = payloads = null;
+            merge(runs, counts, total, file);
+        } catch (GameException excp) {
+            throw new IOException("corrupt game archive");
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+        return total;
+    }
+
+    /** Sort the first N entries in KEYS and PAYLOADS and write them to a
+     *  new temporary file next to FILE, returning its name. */
+    private static Path writeRun(Path file, long[] keys, long[] payloads,
+                                 int n) throws IOException {
+        sort(keys, payloads, n);
+        Path dir = file.toAbsolutePath().getParent();
+        Path run = Files.createTempFile(dir, "ataxx", ".run");
+        try (DataOutputStream out =
+             new DataOutputStream(new BufferedOutputStream(
+                 Files.newOutputStream(run), IO_BUFFER_SIZE))) {
+            for (int i = 0; i < n; i += 1) {
+                out.writeLong(keys[i]);
+                out.writeLong(payloads[i]);
+            }
+        }
+        return run;
+    }
+
+    /** Sort the first N entries of KEYS, and the corresponding PAYLOADS,
+     *  by key (as unsigned values).  The sort is stable, so that entries
+     *  with equal keys stay in order of game. */
+    private static void sort(long[] keys, long[] payloads, int n) {
+        long[] keys1 = new long[n], payloads1 = new long[n];
+        int[] counts = new int[RADIX + 1];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i += 1) {
+                counts[((int) (keys[i] >>> shift) & (RADIX - 1)) + 1] += 1;
+            }
+            for (int d = 0; d < RADIX; d += 1) {
+                counts[d + 1] += counts[d];
+            }
+            for (int i = 0; i < n; i += 1) {
+                int k = counts[(int) (keys[i] >>> shift) & (RADIX - 1)]++;
+                keys1[k] = keys[i];
+                payloads1[k] = payloads[i];
+            }
+            System.arraycopy(keys1, 0, keys, 0, n);
+            System.arraycopy(payloads1, 0, payloads, 0, n);
+        }
+    }
+
+    /** Merge the sorted RUNS, containing TOTAL entries of which COUNTS[B]
+     *  are in bucket B, into the index FILE. */
+    private static void merge(List<Path> runs, long[] counts, long total,
+                              Path file) throws IOException {
+        List<Run> inputs = new ArrayList<>();
+        try (DataOutputStream out =
+             new DataOutputStream(new BufferedOutputStream(
+                 Files.newOutputStream(file), IO_BUFFER_SIZE))) {
+            out.write(MAGIC);
+            out.write(new byte[HEADER_SIZE - Long.BYTES - MAGIC.length]);
+            out.writeLong(total);
+            long start = 0;
+            for (int b = 0; b <= BUCKETS; b += 1) {
+                out.writeInt((int) start);
+                if (b < BUCKETS) {
+                    start += counts[b];
+                }
+            }
+            PriorityQueue<Run> queue = new PriorityQueue<>();
+            for (int r = 0; r < runs.size(); r += 1) {
+                Run run = new Run(runs.get(r), r);
+                inputs.add(run);
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                out.writeLong(run._key);
+                out.writeLong(run._payload);
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+        } finally {
+            for (Run run : inputs) {
+                run._input.close();
+            }
+        }
+    }
+
+    /** A sorted run being merged. */
+    private static class Run implements Comparable<Run> {
+
+        /** The run in FILE, which is run number ORDER. */
+        Run(Path file, int order) throws IOException {
+            _input = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file), IO_BUFFER_SIZE));
+            _order = order;
+        }
+
+        /** Read my next entry, returning false if there is none. */
+        boolean advance() throws IOException {
+            try {
+                _key = _input.readLong();
+                _payload = _input.readLong();
+                return true;
+            } catch (EOFException excp) {
+                return false;
+            }
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            int c = Long.compareUnsigned(_key, other._key);
+            return c != 0 ? c : Integer.compare(_order, other._order);
+        }
+
+        /** Input. */
+        private final DataInputStream _input;
+        /** Position in the order of runs. */
+        private final int _order;
+        /** Current entry. */
+        private long _key, _payload;
+    }
+
+    /** Number of bits of a key that select its bucket. */
+    private static final int BUCKET_BITS = 16;
+    /** Number of buckets. */
+    private static final int BUCKETS = 1 << BUCKET_BITS;
+    /** Size of the header (bytes). */
+    private static final int HEADER_SIZE = 2 * Long.BYTES;
+    /** Position of the first entry in an index file. */
+    private static final long DATA_OFFSET =
+        HEADER_SIZE + (BUCKETS + 1) * Integer.BYTES;
+    /** Size of an entry (bytes). */
+    private static final int ENTRY_SIZE = 2 * Long.BYTES;
+    /** Number of entries mapped by each segment. */
+    private static final long SEGMENT_ENTRIES = 1 << 26;
+    /** Maximum number of entries, as limited by the bucket table. */
+    private static final long MAX_ENTRIES = 0xFFFFFFFFL;
+    /** Number of entries sorted in memory at once while building. */
+    private static final int RUN_ENTRIES = 1 << 21;
+    /** Number of bits sorted in each pass of the radix sort. */
+    private static final int RADIX_BITS = 8;
+    /** Radix of the radix sort. */
+    private static final int RADIX = 1 << RADIX_BITS;
+    /** Size of the buffers for reading and writing runs (bytes). */
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    /** Number of entries. */
+    private long _size;
+    /** Header, including the bucket table. */
+    private final MappedByteBuffer _table;
+    /** The entries, SEGMENT_ENTRIES per segment. */
+    private MappedByteBuffer[] _segments;
+}
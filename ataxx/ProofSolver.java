@@ -0,0 +1,531 @@
+package ataxx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static ataxx.GameException.error;
+import static ataxx.PieceColor.*;
+import static ataxx.ProofTable.INFINITY;
+
+/** A solver that proves the outcome of a position with best play by both
+ *  sides, with no depth limit, by depth-first proof-number search (df-pn)
+ *  over a Board.  A position is won for a side if it can force a game
+ *  ending with more pieces than its opponent, and drawn if it can avoid
+ *  a loss but not force a win; the solver answers these two questions by
+ *  two proofs in turn.  Since every move either adds a piece or counts
+ *  toward the limit on consecutive jumps, positions (with their jump
+ *  counts) never repeat, and proofs need no special handling of cycles.
+ *
+ *  Proof and disproof numbers are kept in a bounded ProofTable, which
+ *  discards the cheapest entries when it fills.  Because the search can
+ *  be restarted from its root using only the table, the solver can save
+ *  its table to a checkpoint file from time to time, and a solver
+ *  resumed from the file continues where it left off.
+ *
+ *  Usage: java ataxx.ProofSolver [--side=r|b] [--table=LOG]
+ *  [--checkpoint=FILE] [--interval=SECS] [--report=SECS] [--nodes=N]
+ *  POSITION solves POSITION (in the notation of Board.setPosition) for
+ *  SIDE (by default the player to move) with a table of 2**LOG entries,
+ *  checkpointing to FILE every SECS seconds, reporting progress as it
+ *  goes, and giving up after N expansions, and
+ *  java ataxx.ProofSolver --resume=FILE [options] continues the job
+ *  checkpointed in FILE.
+ *  @author Carson Trinh
+ */
+public class ProofSolver {
+
+    /** Outcomes for the side solved for. */
+    static final int LOSS = 0, DRAW = 1, WIN = 2, UNKNOWN = -1;
+
+    /** Log base 2 of the default table size. */
+    static final int DEFAULT_TABLE_SIZE = 22;
+
+    /** Solve a position according to ARGS, as described above. */
+    public static void main(String[] args) throws IOException {
+        PieceColor side = null;
+        int logSize = DEFAULT_TABLE_SIZE;
+        long interval = DEFAULT_CHECKPOINT_INTERVAL,
+            report = DEFAULT_REPORT_INTERVAL, limit = Long.MAX_VALUE;
+        Path checkpoint = null, resume = null;
+        List<String> position = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--side=") && value.matches("[rb]")) {
+                    side = value.equals("r") ? RED : BLUE;
+                } else if (arg.startsWith("--table=")) {
+                    logSize = Integer.parseInt(value);
+                } else if (arg.startsWith("--checkpoint=")) {
+                    checkpoint = Paths.get(value);
+                } else if (arg.startsWith("--interval=")) {
+                    interval = Long.parseLong(value) * 1000;
+                } else if (arg.startsWith("--report=")) {
+                    report = Long.parseLong(value) * 1000;
+                } else if (arg.startsWith("--nodes=")) {
+                    limit = Long.parseLong(value);
+                } else if (arg.startsWith("--resume=")) {
+                    resume = Paths.get(value);
+                } else if (arg.startsWith("--")) {
+                    usage();
+                } else {
+                    position.add(arg);
+                }
+            }
+        } catch (NumberFormatException excp) {
+            usage();
+        }
+        if ((resume == null) == position.isEmpty()) {
+            usage();
+        }
+        try {
+            ProofSolver solver;
+            if (resume != null) {
+                solver = resume(resume);
+                checkpoint = checkpoint == null ? resume : checkpoint;
+            } else {
+                Board board = new Board();
+                board.setPosition(String.join(" ", position));
+                solver = new ProofSolver(board,
+                                         side == null ? board.whoseMove()
+                                         : side, logSize);
+            }
+            if (checkpoint != null) {
+                solver.setCheckpoint(checkpoint, interval);
+            }
+            solver.setNodeLimit(limit);
+            solver.setProgress((phase, nodes, proof, disproof, used) ->
+                System.out.printf("%s %d nodes, proof %s, disproof %s, "
+                                  + "table %d%% full%n",
+                                  phase == 0 ? "win" : "draw", nodes,
+                                  number(proof), number(disproof), used),
+                report);
+            long start = System.nanoTime();
+            int result = solver.solve();
+            if (result == UNKNOWN) {
+                System.out.printf("%s: unsolved after %d nodes%n",
+                                  solver.position(), solver.nodes());
+                return;
+            }
+            System.out.printf("%s: %s%s (%d nodes, %.1f s)%n",
+                              solver.position(),
+                              result == DRAW ? "draw"
+                              : (result == WIN ? solver.side()
+                                 : solver.side().opposite()) + " wins",
+                              solver.bestMove() == null ? ""
+                              : ", best move " + solver.bestMove(),
+                              solver.nodes(),
+                              (System.nanoTime() - start) * 1e-9);
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Receives progress reports from a ProofSolver. */
+    interface Progress {
+        /** Report that the solver has expanded NODES positions, and that
+         *  the current root proof and disproof numbers for the side
+         *  solved for are PROOF and DISPROOF, in PHASE 0 (proving a win)
+         *  or 1 (proving a draw), with its table USED percent full. */
+        void report(int phase, long nodes, int proof, int disproof,
+                    int used);
+    }
+
+    /** A solver for the position on BOARD, from the point of view of
+     *  SIDE, using a table of 2**LOGSIZE entries.  BOARD is copied, and
+     *  is not used afterwards. */
+    ProofSolver(Board board, PieceColor side, int logSize) {
+        this(board.positionString(), side, new ProofTable(logSize));
+    }
+
+    /** A solver for POSITION from the point of view of SIDE, using
+     *  TABLE. */
+    private ProofSolver(String position, PieceColor side, ProofTable table) {
+        if (side != RED && side != BLUE) {
+            throw error("Can only solve for red or blue.");
+        }
+        _board = new Board();
+        _board.setPosition(position);
+        _position = position;
+        _rootMover = _board.whoseMove();
+        _side = side;
+        _table = table;
+    }
+
+    /** Save my state to FILE every INTERVAL milliseconds while solving,
+     *  and when done. */
+    void setCheckpoint(Path file, long interval) {
+        _checkpointFile = file;
+        _checkpointInterval = interval;
+    }
+
+    /** Send progress reports to PROGRESS every INTERVAL milliseconds
+     *  while solving. */
+    void setProgress(Progress progress, long interval) {
+        _progress = progress;
+        _reportInterval = interval;
+    }
+
+    /** Stop solving once about LIMIT positions in all have been
+     *  expanded, including those expanded before any resumption. */
+    void setNodeLimit(long limit) {
+        _nodeLimit = limit;
+    }
+
+    /** Return the outcome of my position for my side: WIN, DRAW or
+     *  LOSS, or UNKNOWN if the node limit was reached first, in which
+     *  case solving may be continued by calling solve again (or by
+     *  resuming from the checkpoint, which is saved first). */
+    int solve() throws IOException {
+        long now = System.currentTimeMillis();
+        _nextCheckpoint = now + _checkpointInterval;
+        _nextReport = now + _reportInterval;
+        while (_result == UNKNOWN) {
+            try {
+                mid(INFINITY, INFINITY);
+            } catch (Stopped excp) {
+                _board.setPosition(_position);
+                if (_checkpointFile != null) {
+                    checkpoint();
+                }
+                return UNKNOWN;
+            }
+            long entry = _table.probe(key());
+            boolean mine = _rootMover == _side;
+            if (mine ? ProofTable.phi(entry) == 0
+                : ProofTable.delta(entry) == 0) {
+                _result = _phase == 0 ? WIN : DRAW;
+                _bestMove = mine ? provingMove() : null;
+            } else if (_phase == 1) {
+                _result = LOSS;
+            } else {
+                _phase = 1;
+            }
+            if (_checkpointFile != null) {
+                checkpoint();
+            }
+        }
+        return _result;
+    }
+
+    /** Return the position being solved. */
+    String position() {
+        return _position;
+    }
+
+    /** Return the side for which the position is being solved. */
+    PieceColor side() {
+        return _side;
+    }
+
+    /** Return the outcome found by solve, or UNKNOWN if it has not
+     *  finished. */
+    int result() {
+        return _result;
+    }
+
+    /** Return, if my side is to move and does not lose, a move that
+     *  secures the outcome found by solve; otherwise null. */
+    Move bestMove() {
+        return _bestMove;
+    }
+
+    /** Return the number of positions expanded so far. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return my table. */
+    ProofTable table() {
+        return _table;
+    }
+
+    /** Save my state to my checkpoint file, replacing its previous
+     *  contents only once the new state is completely written. */
+    void checkpoint() throws IOException {
+        Path temp = _checkpointFile.resolveSibling(_checkpointFile
+                                                   .getFileName() + ".tmp");
+        try (DataOutputStream out =
+             new DataOutputStream(new BufferedOutputStream(
+                 Files.newOutputStream(temp), IO_BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(_position);
+            out.writeBoolean(_side == RED);
+            out.writeInt(_phase);
+            out.writeInt(_result);
+            out.writeShort(_bestMove == null ? -1 : _bestMove.id());
+            out.writeLong(_nodes);
+            _table.write(out);
+        }
+        Files.move(temp, _checkpointFile,
+                   StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Return the solver whose state was saved in FILE by checkpoint. */
+    static ProofSolver resume(Path file) throws IOException {
+        try (DataInputStream in =
+             new DataInputStream(new BufferedInputStream(
+                 Files.newInputStream(file), IO_BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw error("Not a solver checkpoint: %s.", file);
+            }
+            String position = in.readUTF();
+            PieceColor side = in.readBoolean() ? RED : BLUE;
+            int phase = in.readInt(), result = in.readInt();
+            int move = in.readShort();
+            long nodes = in.readLong();
+            ProofSolver solver =
+                new ProofSolver(position, side, ProofTable.read(in));
+            solver._phase = phase;
+            solver._result = result;
+            solver._bestMove = move < 0 ? null : Move.fromId(move);
+            solver._nodes = nodes;
+            return solver;
+        }
+    }
+
+    /** Expand the current position on _board until its proof number (for
+     *  the player to move) reaches THPHI or its disproof number reaches
+     *  THDELTA, and record the resulting numbers in _table. */
+    private void mid(int thPhi, int thDelta) throws IOException {
+        _nodes += 1;
+        if ((_nodes & (CHECK_INTERVAL - 1)) == 0) {
+            check();
+        }
+        long key = key(), nodes0 = _nodes;
+        if (_board.gameOver()) {
+            boolean won = moverWins();
+            _table.store(key, won ? 0 : INFINITY, won ? INFINITY : 0, 1);
+            return;
+        }
+        Move[] moves = moves();
+        long[] keys = new long[moves.length];
+        for (int i = 0; i < moves.length; i += 1) {
+            _board.makeMove(moves[i]);
+            keys[i] = key();
+            _board.undo();
+        }
+        if (_board.numMoves() == 0) {
+            _rootKeys = keys;
+        }
+        int phi, delta;
+        while (true) {
+            int best = 0;
+            long sumPhi = 0;
+            int delta1 = INFINITY, delta2 = INFINITY;
+            for (int i = 0; i < keys.length; i += 1) {
+                long entry = _table.probe(keys[i]);
+                sumPhi += ProofTable.phi(entry);
+                int d = ProofTable.delta(entry);
+                if (d < delta1) {
+                    delta2 = delta1;
+                    delta1 = d;
+                    best = i;
+                } else if (d < delta2) {
+                    delta2 = d;
+                }
+            }
+            phi = delta1;
+            delta = (int) Math.min(sumPhi, INFINITY);
+            if (phi >= thPhi || delta >= thDelta) {
+                break;
+            }
+            int childPhi = ProofTable.phi(_table.probe(keys[best]));
+            _board.makeMove(moves[best]);
+            mid((int) Math.min((long) thDelta - delta + childPhi, INFINITY),
+                (int) Math.min(thPhi, (long) delta2 + delta2 / EPSILON + 1));
+            _board.undo();
+        }
+        _table.store(key, phi, delta, _nodes - nodes0 + 1);
+    }
+
+    /** Return the key under which the current position is recorded,
+     *  which reflects the jump count and the question being answered as
+     *  well as the position. */
+    private long key() {
+        return _board.key() ^ _board.numJumps() * JUMP_KEY
+            ^ _phase * PHASE_KEY;
+    }
+
+    /** Return true iff the player to move in the current position, in
+     *  which the game is over, has the outcome sought for _side (in the
+     *  current phase) if it is _side, and prevents it otherwise. */
+    private boolean moverWins() {
+        int diff = _board.numPieces(_side) - _board.numPieces(_side.opposite());
+        boolean sought = _phase == 0 ? diff > 0 : diff >= 0;
+        return sought == (_board.whoseMove() == _side);
+    }
+
+    /** Return the moves available in the current position, in which the
+     *  game is not over: a pass if the player to move cannot move, and
+     *  otherwise one extend to each empty square that can be reached by
+     *  one (since they all lead to the same position), followed by all
+     *  jumps. */
+    private Move[] moves() {
+        PieceColor who = _board.whoseMove();
+        List<Move> extends_ = new ArrayList<>(), jumps = new ArrayList<>();
+        for (int sq : _board.squares()) {
+            if (_board.get(sq) != EMPTY) {
+                continue;
+            }
+            char c = Board.col(sq), r = Board.row(sq);
+            Move extend = null;
+            for (int sq0 : _board.targets(sq)) {
+                if (_board.get(sq0) != who) {
+                    continue;
+                }
+                Move move = Move.move(Board.col(sq0), Board.row(sq0), c, r);
+                if (move.isJump()) {
+                    jumps.add(move);
+                } else if (extend == null) {
+                    extend = move;
+                }
+            }
+            if (extend != null) {
+                extends_.add(extend);
+            }
+        }
+        extends_.addAll(jumps);
+        if (extends_.isEmpty()) {
+            extends_.add(Move.pass());
+        }
+        return extends_.toArray(new Move[0]);
+    }
+
+    /** Return a move from the current position, which is proved for the
+     *  player to move, to a disproved position. */
+    private Move provingMove() {
+        for (Move move : moves()) {
+            _board.makeMove(move);
+            long entry = _table.probe(key());
+            _board.undo();
+            if (ProofTable.delta(entry) == 0) {
+                return move;
+            }
+        }
+        return null;
+    }
+
+    /** Report progress and save a checkpoint, if they are due. */
+    private void check() throws IOException {
+        long now = System.currentTimeMillis();
+        if (_progress != null && now >= _nextReport) {
+            _nextReport = now + _reportInterval;
+            long sumPhi = 0;
+            int minDelta = INFINITY;
+            for (long key : _rootKeys) {
+                long entry = _table.probe(key);
+                sumPhi += ProofTable.phi(entry);
+                minDelta = Math.min(minDelta, ProofTable.delta(entry));
+            }
+            int phi = minDelta, delta = (int) Math.min(sumPhi, INFINITY);
+            boolean mine = _rootMover == _side;
+            _progress.report(_phase, _nodes, mine ? phi : delta,
+                             mine ? delta : phi,
+                             (int) (100L * _table.used() / _table.size()));
+        }
+        if (_checkpointFile != null && now >= _nextCheckpoint) {
+            _nextCheckpoint = now + _checkpointInterval;
+            checkpoint();
+        }
+        if (_nodes >= _nodeLimit) {
+            throw Stopped.INSTANCE;
+        }
+    }
+
+    /** Return N as a proof number, or "inf". */
+    private static String number(int n) {
+        return n == INFINITY ? "inf" : Integer.toString(n);
+    }
+
+    /** Print a usage message and exit. */
+    private static void usage() {
+        System.err.println("Usage: java ataxx.ProofSolver [--side=r|b] "
+                           + "[--table=LOG] [--checkpoint=FILE]");
+        System.err.println("           [--interval=SECS] [--report=SECS] "
+                           + "[--nodes=N] POSITION");
+        System.err.println("       java ataxx.ProofSolver --resume=FILE "
+                           + "[options]");
+        System.exit(1);
+    }
+
+    /** Thrown to abandon a search that has reached its node limit. */
+    private static class Stopped extends RuntimeException {
+        /** The only instance, which carries no stack trace. */
+        static final Stopped INSTANCE = new Stopped();
+
+        /** The exception without a stack trace. */
+        private Stopped() {
+            super(null, null, false, false);
+        }
+
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Identifies checkpoint files. */
+    private static final int MAGIC = 0x41545031;
+    /** Reciprocal of the margin by which a child's search may exceed
+     *  its sibling's numbers before switching to the sibling (the "1 +
+     *  epsilon" trick), which avoids repeatedly switching back and forth
+     *  between children with nearly equal numbers. */
+    private static final int EPSILON = 4;
+    /** Number of expansions between checks for reports and
+     *  checkpoints. */
+    private static final int CHECK_INTERVAL = 1 << 12;
+    /** Default milliseconds between checkpoints. */
+    private static final long DEFAULT_CHECKPOINT_INTERVAL = 600_000;
+    /** Default milliseconds between progress reports. */
+    private static final long DEFAULT_REPORT_INTERVAL = 10_000;
+    /** Size of checkpoint file buffers. */
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+    /** Multiplier mixing the jump count into table keys. */
+    private static final long JUMP_KEY = 0x9E3779B97F4A7C15L;
+    /** Key distinguishing the second phase's entries from the first's. */
+    private static final long PHASE_KEY = 0xC2B2AE3D27D4EB4FL;
+
+    /** The position being solved. */
+    private final String _position;
+    /** The side for which it is solved. */
+    private final PieceColor _side;
+    /** The player to move in _position. */
+    private final PieceColor _rootMover;
+    /** The board on which the search is made, starting at _position. */
+    private final Board _board;
+    /** Proof and disproof numbers. */
+    private final ProofTable _table;
+    /** 0 while proving a win for _side, 1 while proving a draw. */
+    private int _phase;
+    /** The outcome, once found. */
+    private int _result = UNKNOWN;
+    /** The move securing the outcome, if any. */
+    private Move _bestMove;
+    /** Number of positions expanded. */
+    private long _nodes;
+    /** Keys of the positions after each move from the root. */
+    private long[] _rootKeys = new long[0];
+    /** File to which checkpoints are written, or null. */
+    private Path _checkpointFile;
+    /** Milliseconds between checkpoints. */
+    private long _checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    /** Time (in milliseconds) of the next checkpoint. */
+    private long _nextCheckpoint;
+    /** Destination of progress reports, or null. */
+    private Progress _progress;
+    /** Milliseconds between progress reports. */
+    private long _reportInterval = DEFAULT_REPORT_INTERVAL;
+    /** Time (in milliseconds) of the next progress report. */
+    private long _nextReport;
+    /** Number of expansions after which to stop. */
+    private long _nodeLimit = Long.MAX_VALUE;
+}
@@ -0,0 +1,137 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static ataxx.PieceColor.*;
+import static ataxx.ProofSolver.*;
+
+/** Tests of the proof-number solver.
+ *  @author Carson Trinh
+ */
+public class ProofSolverTest {
+
+    /** A position with four empty squares, won for red. */
+    private static final String ENDGAME =
+        "rrrrbbb/rrrrbbb/rrr-bbb/rrr--bb/rrrbbbb/rrrbbbb/rrrbbbb r";
+
+    /** Return the outcome of the position on BOARD for red with best
+     *  play, found by exhaustive search, using and adding to the outcomes
+     *  in KNOWN. */
+    private static int exhaustive(Board board, Map<Long, Integer> known) {
+        long key = board.key() * 31 + board.numJumps();
+        Integer memo = known.get(key);
+        if (memo != null) {
+            return memo;
+        }
+        int result;
+        if (board.gameOver()) {
+            int diff = board.redPieces() - board.bluePieces();
+            result = diff > 0 ? WIN : diff < 0 ? LOSS : DRAW;
+        } else {
+            boolean red = board.whoseMove() == RED;
+            result = red ? LOSS : WIN;
+            for (int id = 0; id < Move.NUM_IDS; id += 1) {
+                Move move = Move.fromId(id);
+                if (move.isPass() == board.canMove(board.whoseMove())
+                    || !board.legalMove(move)) {
+                    continue;
+                }
+                board.makeMove(move);
+                int value = exhaustive(board, known);
+                board.undo();
+                result = red ? Math.max(result, value)
+                    : Math.min(result, value);
+            }
+        }
+        known.put(key, result);
+        return result;
+    }
+
+    @Test
+    public void testSmallPositions() throws IOException {
+        Random random = new Random(61);
+        String squares = "-rbX";
+        for (int trial = 0; trial < 12; trial += 1) {
+            StringBuilder position = new StringBuilder();
+            for (int r = 7; r >= 1; r -= 1) {
+                for (int c = 0; c < 7; c += 1) {
+                    position.append(r <= 3 && c < 3
+                                    ? squares.charAt(random.nextInt(4))
+                                    : 'X');
+                }
+                position.append(r == 1 ? ' ' : '/');
+            }
+            position.append(random.nextBoolean() ? 'r' : 'b');
+            Board board = new Board();
+            board.setPosition(position.toString());
+            int red = exhaustive(board, new HashMap<>());
+            for (PieceColor side : new PieceColor[] { RED, BLUE }) {
+                ProofSolver solver = new ProofSolver(board, side, 12);
+                int expected = side == RED ? red : WIN + LOSS - red;
+                assertEquals(position + " for " + side, expected,
+                             solver.solve());
+                Move best = solver.bestMove();
+                if (best != null) {
+                    board.makeMove(best);
+                    assertEquals(position + " after " + best, red,
+                                 exhaustive(board, new HashMap<>()));
+                    board.undo();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCheckpoint() throws IOException {
+        Board board = new Board();
+        board.setPosition(ENDGAME);
+        Path file = Files.createTempFile("ataxx", ".ckpt");
+        try {
+            ProofSolver solver = new ProofSolver(board, RED, 16);
+            solver.setCheckpoint(file, Long.MAX_VALUE);
+            solver.setNodeLimit(1);
+            assertEquals(UNKNOWN, solver.solve());
+            long nodes = solver.nodes();
+            assertTrue(nodes > 0);
+
+            ProofSolver resumed = ProofSolver.resume(file);
+            assertEquals(RED, resumed.side());
+            assertEquals(nodes, resumed.nodes());
+            assertEquals(solver.table().used(), resumed.table().used());
+            resumed.setCheckpoint(file, Long.MAX_VALUE);
+            assertEquals(WIN, resumed.solve());
+            assertTrue(resumed.nodes() > nodes);
+            assertTrue(board.legalMove(resumed.bestMove()));
+            assertEquals(WIN, ProofSolver.resume(file).result());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testCollect() {
+        ProofTable table = new ProofTable(6);
+        for (long key = 1; key <= 40; key += 1) {
+            table.store(key * 4, 1, 2, key);
+        }
+        assertEquals(40, table.used());
+        assertEquals(ProofTable.pack(1, 2), table.probe(4));
+        assertEquals(0, table.collections());
+        for (long key = 41; table.collections() == 0; key += 1) {
+            table.store(key * 4, 2, 3, 1000);
+        }
+        assertTrue(table.used() <= 49 / 2);
+        assertEquals(ProofTable.UNKNOWN, table.probe(4));
+        assertEquals(ProofTable.pack(1, 2), table.probe(40 * 4));
+        assertEquals(ProofTable.pack(2, 3), table.probe(41 * 4));
+    }
+
+}
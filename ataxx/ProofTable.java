@@ -0,0 +1,196 @@
+package ataxx;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static ataxx.GameException.error;
+
+/** A fixed-size table of proof and disproof numbers for ProofSolver,
+ *  indexed by position key.  Each entry packs the two numbers into one
+ *  long, stored alongside its key and the work (number of positions
+ *  expanded) spent on it so far.  Slots are grouped in buckets of
+ *  BUCKET_SIZE; when a bucket is full, the entry with the least work is
+ *  replaced, and when the table as a whole fills up, the entries for the
+ *  smallest subtrees are discarded (garbage-collected) in one sweep, since
+ *  they are the cheapest to recompute.
+ *  @author Carson Trinh
+ */
+class ProofTable {
+
+    /** A proof or disproof number that cannot be reached: the position
+     *  is disproved or proved, respectively. */
+    static final int INFINITY = Integer.MAX_VALUE;
+
+    /** The entry for a position not in the table. */
+    static final long UNKNOWN = pack(1, 1);
+
+    /** A new, empty table with 2**LOGSIZE entries. */
+    ProofTable(int logSize) {
+        if (logSize < LOG_BUCKET_SIZE || logSize > MAX_LOG_SIZE) {
+            throw error("Table size must be between %d and %d.",
+                        LOG_BUCKET_SIZE, MAX_LOG_SIZE);
+        }
+        _logSize = logSize;
+        _keys = new long[1 << logSize];
+        _entries = new long[1 << logSize];
+        _work = new long[1 << logSize];
+        _mask = (1 << logSize) - BUCKET_SIZE;
+    }
+
+    /** Return the packed entry stored for KEY, or UNKNOWN if there is
+     *  none. */
+    long probe(long key) {
+        int b = (int) key & _mask;
+        for (int i = b; i < b + BUCKET_SIZE; i += 1) {
+            if (_work[i] != 0 && _keys[i] == key) {
+                return _entries[i];
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /** Record that the position with KEY has proof number PHI and
+     *  disproof number DELTA, after WORK more expansions of it. */
+    void store(long key, int phi, int delta, long work) {
+        int b = (int) key & _mask;
+        int slot = -1;
+        for (int i = b; i < b + BUCKET_SIZE; i += 1) {
+            if (_work[i] != 0 && _keys[i] == key) {
+                _entries[i] = pack(phi, delta);
+                _work[i] += work;
+                return;
+            } else if (slot == -1 || _work[i] < _work[slot]) {
+                slot = i;
+            }
+        }
+        if (_work[slot] == 0) {
+            _used += 1;
+        }
+        _keys[slot] = key;
+        _entries[slot] = pack(phi, delta);
+        _work[slot] = Math.max(1, work);
+        if (_used > _keys.length / 4 * 3) {
+            collect();
+        }
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_work, 0);
+        _used = 0;
+    }
+
+    /** Return my number of slots. */
+    int size() {
+        return _keys.length;
+    }
+
+    /** Return my number of entries. */
+    int used() {
+        return _used;
+    }
+
+    /** Return the number of garbage collections so far. */
+    int collections() {
+        return _collections;
+    }
+
+    /** Discard at least half my entries, choosing those with the least
+     *  work: all those with less work than the least power of two that
+     *  exceeds the work of half the entries. */
+    void collect() {
+        int[] counts = new int[Long.SIZE + 1];
+        for (long w : _work) {
+            if (w != 0) {
+                counts[Long.SIZE - Long.numberOfLeadingZeros(w)] += 1;
+            }
+        }
+        int limit = 1, removed = counts[1];
+        while (removed < _used / 2) {
+            limit += 1;
+            removed += counts[limit];
+        }
+        for (int i = 0; i < _work.length; i += 1) {
+            if (_work[i] != 0
+                && Long.SIZE - Long.numberOfLeadingZeros(_work[i]) <= limit) {
+                _work[i] = 0;
+                _used -= 1;
+            }
+        }
+        _collections += 1;
+    }
+
+    /** Write my contents to OUT, in the form read by read. */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(_logSize);
+        out.writeInt(_used);
+        out.writeInt(_collections);
+        for (int i = 0; i < _keys.length; i += 1) {
+            if (_work[i] != 0) {
+                out.writeInt(i);
+                out.writeLong(_keys[i]);
+                out.writeLong(_entries[i]);
+                out.writeLong(_work[i]);
+            }
+        }
+    }
+
+    /** Return the table written to IN by write. */
+    static ProofTable read(DataInputStream in) throws IOException {
+        ProofTable table = new ProofTable(in.readInt());
+        int used = in.readInt();
+        table._collections = in.readInt();
+        for (int k = 0; k < used; k += 1) {
+            int i = in.readInt();
+            if (i < 0 || i >= table._keys.length) {
+                throw error("Corrupt proof table.");
+            }
+            table._keys[i] = in.readLong();
+            table._entries[i] = in.readLong();
+            table._work[i] = in.readLong();
+        }
+        table._used = used;
+        return table;
+    }
+
+    /** Return an entry holding proof number PHI and disproof number
+     *  DELTA. */
+    static long pack(int phi, int delta) {
+        return (phi & 0xFFFFFFFFL) | ((long) delta) << 32;
+    }
+
+    /** Return the proof number recorded in ENTRY. */
+    static int phi(long entry) {
+        return (int) entry;
+    }
+
+    /** Return the disproof number recorded in ENTRY. */
+    static int delta(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    /** Log base 2 of the number of slots in a bucket. */
+    private static final int LOG_BUCKET_SIZE = 2;
+    /** Number of slots searched for a key. */
+    private static final int BUCKET_SIZE = 1 << LOG_BUCKET_SIZE;
+    /** Largest log size of a table. */
+    private static final int MAX_LOG_SIZE = 30;
+
+    /** Log base 2 of my number of slots. */
+    private final int _logSize;
+    /** Position keys.  A key belongs to the bucket selected by its
+     *  low-order bits. */
+    private final long[] _keys;
+    /** Packed entries corresponding to _keys. */
+    private final long[] _entries;
+    /** Work done on each entry, or 0 for an empty slot. */
+    private final long[] _work;
+    /** Mask selecting the first slot of a bucket from a key. */
+    private final int _mask;
+    /** Number of entries. */
+    private int _used;
+    /** Number of garbage collections. */
+    private int _collections;
+}
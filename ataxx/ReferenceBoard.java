@@ -0,0 +1,222 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static ataxx.PieceColor.*;
+
+/** A deliberately simple implementation of the rules of Ataxx, written
+ *  for clarity rather than speed, against which Board is checked by
+ *  BoardFuzzer.  The board is a plain 7x7 array, every count is
+ *  recomputed from it when asked for, and undo restores a complete copy
+ *  of the state saved before each move.
+ *  @author Carson Trinh
+ */
+class ReferenceBoard {
+
+    /** A new board at the start of the game. */
+    ReferenceBoard() {
+        clear();
+    }
+
+    /** Clear me to my starting state, with pieces in their initial
+     *  positions and no blocks. */
+    void clear() {
+        _squares = new PieceColor[Board.SIDE][Board.SIDE];
+        for (PieceColor[] column : _squares) {
+            Arrays.fill(column, EMPTY);
+        }
+        put('a', '7', RED);
+        put('g', '1', RED);
+        put('a', '1', BLUE);
+        put('g', '7', BLUE);
+        _whoseMove = RED;
+        _numMoves = _numJumps = 0;
+        _history.clear();
+        _moves.clear();
+    }
+
+    /** Return the contents of square CR, which must be on the board. */
+    PieceColor get(char c, char r) {
+        return _squares[c - 'a'][r - '1'];
+    }
+
+    /** Return the player to move. */
+    PieceColor whoseMove() {
+        return _whoseMove;
+    }
+
+    /** Return the number of moves and passes since the last clear. */
+    int numMoves() {
+        return _numMoves;
+    }
+
+    /** Return the number of consecutive jumps since the last extend. */
+    int numJumps() {
+        return _numJumps;
+    }
+
+    /** Return the number of COLOR pieces on the board. */
+    int numPieces(PieceColor color) {
+        int n = 0;
+        for (char c = 'a'; c <= 'g'; c += 1) {
+            for (char r = '1'; r <= '7'; r += 1) {
+                n += get(c, r) == color ? 1 : 0;
+            }
+        }
+        return n;
+    }
+
+    /** Return the moves made since the last clear. */
+    List<Move> allMoves() {
+        return new ArrayList<>(_moves);
+    }
+
+    /** Return true iff the piece move MOVE (not a pass) is legal: it
+     *  moves one of the current player's pieces one or two squares in
+     *  any direction to an empty square. */
+    boolean legalMove(Move move) {
+        char c0 = move.col0(), r0 = move.row0(),
+            c1 = move.col1(), r1 = move.row1();
+        int dist = Math.max(Math.abs(c1 - c0), Math.abs(r1 - r0));
+        return onBoard(c1, r1) && get(c0, r0) == _whoseMove
+            && get(c1, r1) == EMPTY && dist >= 1 && dist <= 2;
+    }
+
+    /** Return true iff WHO has a piece that can move. */
+    boolean canMove(PieceColor who) {
+        return !legalMoves(who).isEmpty();
+    }
+
+    /** Return all the piece moves available to WHO. */
+    List<Move> legalMoves(PieceColor who) {
+        List<Move> result = new ArrayList<>();
+        for (char c0 = 'a'; c0 <= 'g'; c0 += 1) {
+            for (char r0 = '1'; r0 <= '7'; r0 += 1) {
+                if (get(c0, r0) != who) {
+                    continue;
+                }
+                for (int dc = -2; dc <= 2; dc += 1) {
+                    for (int dr = -2; dr <= 2; dr += 1) {
+                        char c1 = (char) (c0 + dc), r1 = (char) (r0 + dr);
+                        if ((dc != 0 || dr != 0) && onBoard(c1, r1)
+                            && get(c1, r1) == EMPTY) {
+                            result.add(Move.move(c0, r0, c1, r1));
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Return true iff the game is over: a player has no pieces, neither
+     *  player can move, or there have been JUMP_LIMIT jumps in a row. */
+    boolean gameOver() {
+        return numPieces(RED) == 0 || numPieces(BLUE) == 0
+            || _numJumps >= Board.JUMP_LIMIT
+            || !(canMove(RED) || canMove(BLUE));
+    }
+
+    /** Make MOVE, which must be legal: a pass if the player to move
+     *  cannot move, and otherwise a legal piece move. */
+    void makeMove(Move move) {
+        _history.add(new Object[] { copySquares(), _whoseMove, _numMoves,
+                                    _numJumps });
+        _moves.add(move);
+        if (!move.isPass()) {
+            char c1 = move.col1(), r1 = move.row1();
+            if (Math.max(Math.abs(c1 - move.col0()),
+                         Math.abs(r1 - move.row0())) == 2) {
+                put(move.col0(), move.row0(), EMPTY);
+                _numJumps += 1;
+            } else {
+                _numJumps = 0;
+            }
+            put(c1, r1, _whoseMove);
+            for (char c = (char) (c1 - 1); c <= c1 + 1; c += 1) {
+                for (char r = (char) (r1 - 1); r <= r1 + 1; r += 1) {
+                    if (onBoard(c, r) && get(c, r) == _whoseMove.opposite()) {
+                        put(c, r, _whoseMove);
+                    }
+                }
+            }
+        }
+        _numMoves += 1;
+        _whoseMove = _whoseMove.opposite();
+    }
+
+    /** Undo the last move, restoring the state before it.  Requires that
+     *  there is one. */
+    void undo() {
+        Object[] saved = _history.remove(_history.size() - 1);
+        _moves.remove(_moves.size() - 1);
+        _squares = (PieceColor[][]) saved[0];
+        _whoseMove = (PieceColor) saved[1];
+        _numMoves = (Integer) saved[2];
+        _numJumps = (Integer) saved[3];
+    }
+
+    /** Return true iff a block may be placed at CR: it and its
+     *  reflections across the middle row and column are all empty or
+     *  blocked, and no moves have been made. */
+    boolean legalBlock(char c, char r) {
+        if (!_moves.isEmpty()) {
+            return false;
+        }
+        for (char[] sq : reflections(c, r)) {
+            PieceColor v = get(sq[0], sq[1]);
+            if (v != EMPTY && v != BLOCKED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Place blocks at CR and its reflections, which must be legal. */
+    void setBlock(char c, char r) {
+        for (char[] sq : reflections(c, r)) {
+            put(sq[0], sq[1], BLOCKED);
+        }
+    }
+
+    /** Return CR and its reflections across the middle row and column. */
+    private static char[][] reflections(char c, char r) {
+        char cP = (char) ('a' + 'g' - c), rP = (char) ('1' + '7' - r);
+        return new char[][] { { c, r }, { c, rP }, { cP, r }, { cP, rP } };
+    }
+
+    /** Return true iff CR is on the board. */
+    private static boolean onBoard(char c, char r) {
+        return c >= 'a' && c <= 'g' && r >= '1' && r <= '7';
+    }
+
+    /** Set square CR to V. */
+    private void put(char c, char r, PieceColor v) {
+        _squares[c - 'a'][r - '1'] = v;
+    }
+
+    /** Return a copy of _squares. */
+    private PieceColor[][] copySquares() {
+        PieceColor[][] copy = new PieceColor[Board.SIDE][];
+        for (int i = 0; i < Board.SIDE; i += 1) {
+            copy[i] = _squares[i].clone();
+        }
+        return copy;
+    }
+
+    /** Contents of the squares, by column and row. */
+    private PieceColor[][] _squares;
+    /** Player to move. */
+    private PieceColor _whoseMove;
+    /** Moves and passes since the last clear. */
+    private int _numMoves;
+    /** Consecutive jumps. */
+    private int _numJumps;
+    /** For each move since the last clear, the squares, player to move,
+     *  numMoves() and numJumps() before it. */
+    private final List<Object[]> _history = new ArrayList<>();
+    /** The moves since the last clear. */
+    private final List<Move> _moves = new ArrayList<>();
+}
@@ -17,4 +17,25 @@ interface Reporter {
      *  formed from FORMAT and OPERANDS as for String.format. */
     void moveMsg(String format, Object... operands);
 
+    /** Display PROMPT, a request for the next line of input, if this
+     *  Reporter's user is able to respond to it. */
+    void promptMsg(String prompt);
+
+    /** Note that SIDE has made MOVE, which may be a pass, in the game
+     *  being played, however it was chosen.  By default, does nothing,
+     *  since moves are announced as needed with moveMsg. */
+    default void moveMade(PieceColor side, Move move) {
+    }
+
+    /** Announce the end of the game being played, which WINNER has won,
+     *  or which is drawn if WINNER is null.  By default, reports this
+     *  with outcomeMsg. */
+    default void gameOver(PieceColor winner) {
+        if (winner == null) {
+            outcomeMsg("Draw.");
+        } else {
+            outcomeMsg("%s wins.", winner);
+        }
+    }
+
 }
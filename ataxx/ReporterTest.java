@@ -0,0 +1,108 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+/** Tests of the buffered Reporters.
+ *  @author Carson Trinh
+ */
+public class ReporterTest {
+
+    /** Return the output of a game reading SCRIPT and reporting through
+     *  REPORTER, which writes to OUT. */
+    private static String play(String script, Reporter reporter,
+                               ByteArrayOutputStream out) {
+        new Game(new Board(), new ReaderSource(new StringReader(script),
+                                               reporter),
+                 reporter).process(false);
+        if (reporter instanceof AsyncReporter) {
+            ((AsyncReporter) reporter).close();
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testAsyncText() {
+        String script = "block b2\nstart\na7-a6\nbogus\ndump\nquit\n";
+        ByteArrayOutputStream text = new ByteArrayOutputStream(),
+            async = new ByteArrayOutputStream();
+        String expected =
+            play(script, new TextReporter(new PrintStream(text)), text);
+        assertEquals("buffered output differs", expected,
+                     play(script, new AsyncReporter(async), async));
+    }
+
+    @Test
+    public void testAsyncFailure() throws InterruptedException {
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("closed");
+            }
+        };
+        AsyncReporter reporter = new AsyncReporter(failing);
+        Thread reporting = new Thread(() -> {
+            for (int i = 0; i < 2000; i += 1) {
+                reporter.outcomeMsg("message %d", i);
+            }
+            reporter.close();
+        });
+        reporting.setDaemon(true);
+        reporting.start();
+        reporting.join(TIMEOUT);
+        assertFalse("reporter blocked after failure", reporting.isAlive());
+    }
+
+    @Test
+    public void testJson() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonReporter reporter = new JsonReporter(out);
+        reporter.promptMsg("> ");
+        reporter.moveMsg("%s moves %s.", PieceColor.BLUE,
+                         Move.move('g', '7', 'e', '5'));
+        reporter.moveMade(PieceColor.BLUE, Move.move('g', '7', 'e', '5'));
+        reporter.errMsg("Say \"%s\"", "hi");
+        reporter.gameOver(PieceColor.RED);
+        reporter.gameOver(null);
+        reporter.outcomeMsg("%s: %s", PieceColor.RED, Move.pass());
+        reporter.moveMade(PieceColor.RED, Move.pass());
+        reporter.close();
+        String[] lines =
+            new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(6, lines.length);
+        assertTrue(lines[0], lines[0].matches(
+            "\\{\"type\":\"move\",\"side\":\"blue\",\"move\":\"g7-e5\","
+            + "\"elapsed_ms\":[0-9.]+,\"time_ms\":[0-9.]+,"
+            + "\"text\":\"Blue moves g7-e5.\"\\}"));
+        assertTrue(lines[1],
+                   lines[1].endsWith("\"text\":\"Say \\\"hi\\\"\"}"));
+        assertTrue(lines[2], lines[2].startsWith(
+            "{\"type\":\"outcome\",\"winner\":\"red\""));
+        assertTrue(lines[3], lines[3].startsWith(
+            "{\"type\":\"outcome\",\"winner\":\"none\""));
+        assertTrue(lines[3], lines[3].endsWith("\"text\":\"Draw.\"}"));
+        assertTrue(lines[4], lines[4].startsWith("{\"type\":\"info\""));
+        assertTrue(lines[5], lines[5].matches(
+            "\\{\"type\":\"move\",\"side\":\"red\",\"elapsed_ms\":.*"
+            + "\"text\":\"Red passes.\"\\}"));
+
+        out.reset();
+        String[] game = play("manual blue\nstart\na7-a6\nb2\ng7-f6\n",
+                             new JsonReporter(out), out).split("\n");
+        assertTrue(game[0], game[0].startsWith(
+            "{\"type\":\"move\",\"side\":\"red\",\"move\":\"a7-a6\""));
+        assertTrue(game[1], game[1].startsWith("{\"type\":\"error\""));
+        assertTrue(game[2], game[2].startsWith(
+            "{\"type\":\"move\",\"side\":\"blue\",\"move\":\"g7-f6\""));
+    }
+
+    /** Time allowed for reporting to finish (msec). */
+    private static final long TIMEOUT = 10_000;
+}
@@ -0,0 +1,766 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Runs integration test scripts in the format of testing/*.inp, as
+ *  testing/test-ataxx.py does, but with each program played by a Game in
+ *  this process instead of a separate JVM, and with many scripts at once.
+ *
+ *  A script starts with the command running the program ("java -ea
+ *  ataxx.Main", without options), followed by lines sent to it as input
+ *  and directives: '@<TEXT' expects a line of output equal to TEXT,
+ *  '@?PATTERN' one matching the regular expression PATTERN, '@time N'
+ *  allows N seconds for each output, '@red... [PATTERN]' and '@blue...
+ *  [PATTERN]' expect moves alternating from that player to the end of
+ *  the game (whose announcement must match PATTERN, if present), and
+ *  '@send C... [PATTERN]' and '@recv C...  [PATTERN]' exchange moves
+ *  with a second program, starting with player C's, when the script has
+ *  two sections separated by a line of dashes.  As with the Python
+ *  tester, only output lines announcing moves and outcomes and board
+ *  dumps are checked, everything up to the last ':' on a line is taken
+ *  to be a prompt, and runs of spaces count as one.
+ *
+ *  Usage: java ataxx.ScriptRunner [--jobs=N] [--verbose] SCRIPT ....
+ *  Runs N scripts at a time (by default, one per processor), printing
+ *  the result of each in order, and exits with status 1 if any fails.
+ *  With --verbose, prints a log of each program's input and output.
+ *  @author Carson Trinh
+ */
+public class ScriptRunner {
+
+    /** The result of running a script. */
+    static class Result {
+        /** A result of type TYPE ("OK", "FAIL" for a problem with the
+         *  script, or "ERROR" for one with the program), described by
+         *  MESSAGE (null if OK), and LOG of the programs' input and
+         *  output (empty unless logging). */
+        Result(String type, String message, String log) {
+            _type = type;
+            _message = message;
+            _log = log;
+        }
+
+        /** Return my type. */
+        String type() {
+            return _type;
+        }
+
+        /** Return my description. */
+        String message() {
+            return _message;
+        }
+
+        /** Return the log of the programs run. */
+        String log() {
+            return _log;
+        }
+
+        /** Type of result. */
+        private final String _type;
+        /** Description, if not OK. */
+        private final String _message;
+        /** Log. */
+        private final String _log;
+    }
+
+    /** Run the scripts named by ARGS, as described above. */
+    public static void main(String[] args) {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        boolean verbose = false;
+        List<Path> scripts = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--jobs=")) {
+                jobs = Integer.parseInt(arg.substring("--jobs=".length()));
+            } else if (arg.equals("--verbose") || arg.equals("-v")) {
+                verbose = true;
+            } else if (arg.startsWith("-")) {
+                System.err.println("Usage: java ataxx.ScriptRunner "
+                                   + "[--jobs=N] [--verbose] SCRIPT ...");
+                System.exit(1);
+            } else {
+                scripts.add(Paths.get(arg));
+            }
+        }
+
+        boolean logging = verbose;
+        ExecutorService pool = Executors.newFixedThreadPool(jobs, (r) -> {
+            Thread thread = new Thread(r, "script-runner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Result>> results = new ArrayList<>();
+        for (Path script : scripts) {
+            results.add(pool.submit(() -> {
+                try {
+                    return run(Files.readString(script), logging);
+                } catch (IOException excp) {
+                    return new Result("FAIL", excp.toString(), "");
+                }
+            }));
+        }
+        int errors = 0, problems = 0;
+        for (int i = 0; i < scripts.size(); i += 1) {
+            Result result;
+            try {
+                result = results.get(i).get();
+            } catch (InterruptedException | ExecutionException excp) {
+                result = new Result("FAIL", excp.toString(), "");
+            }
+            System.err.print(result.log());
+            if (result.type().equals("OK")) {
+                System.err.printf("%s: OK%n", scripts.get(i).getFileName());
+            } else {
+                System.err.printf("%s: %s (%s)%n", scripts.get(i).getFileName(),
+                                  result.type(), result.message());
+                if (result.type().equals("ERROR")) {
+                    errors += 1;
+                } else {
+                    problems += 1;
+                }
+            }
+        }
+        pool.shutdown();
+        System.err.printf("%nSummary:%n   %3d tests%n   %3d passed%n"
+                          + "   %3d errors%n   %3d problematic tests%n",
+                          scripts.size(), scripts.size() - errors - problems,
+                          errors, problems);
+        System.exit(errors + problems == 0 ? 0 : 1);
+    }
+
+    /** Return the result of running the script TEXT, logging the
+     *  programs' input and output iff LOGGING. */
+    static Result run(String text, boolean logging) {
+        BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+        List<Program> programs = new ArrayList<>();
+        Matcher sections = SECTIONS.matcher(text);
+        if (sections.matches()) {
+            List<String> first = lines(sections.group(1));
+            programs.add(new Program("Prog1", first, 0, logging));
+            programs.add(new Program("Prog2", lines(sections.group(2)),
+                                     first.size() + 1, logging));
+            programs.get(0).connect(programs.get(1));
+        } else {
+            programs.add(new Program("Prog1", lines(text), 0, logging));
+        }
+        long totalLimit = DEFAULT_TOTAL_TIME;
+        Matcher total = TOTAL_TIME.matcher(text);
+        if (total.find()) {
+            totalLimit = Long.parseLong(total.group(1));
+        }
+
+        for (Program program : programs) {
+            program.start(outcomes);
+        }
+        List<Outcome> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < programs.size(); i += 1) {
+                Outcome outcome =
+                    outcomes.poll(i == 0 ? totalLimit : CLEANUP_TIME,
+                                  TimeUnit.SECONDS);
+                if (outcome == null) {
+                    for (Program program : programs) {
+                        program.stop();
+                    }
+                    return new Result("ERROR", i == 0
+                                      ? "test time exceeded " + totalLimit
+                                      + " seconds"
+                                      : "other program fails to finish",
+                                      logs(programs));
+                }
+                results.add(outcome);
+            }
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            return new Result("ERROR", "interrupted", logs(programs));
+        }
+        Collections.sort(results, (x, y) -> x._title.compareTo(y._title));
+
+        String type = "OK";
+        List<String> messages = new ArrayList<>();
+        for (Outcome outcome : results) {
+            if (outcome._type.equals("OK")) {
+                messages.add("");
+            } else {
+                messages.add(String.format("%s near line %d",
+                                           outcome._message, outcome._line));
+                if (outcome._type.equals("FAIL") || type.equals("OK")) {
+                    type = outcome._type;
+                }
+            }
+        }
+        return new Result(type, type.equals("OK") ? null
+                          : String.join("/", messages), logs(programs));
+    }
+
+    /** Return the lines of TEXT, without trailing blank lines. */
+    private static List<String> lines(String text) {
+        text = text.stripTrailing();
+        if (text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.asList(text.split("\n"));
+    }
+
+    /** Return the logs of PROGRAMS. */
+    private static String logs(List<Program> programs) {
+        StringBuilder result = new StringBuilder();
+        for (Program program : programs) {
+            result.append(program.log());
+        }
+        return result.toString();
+    }
+
+    /** Return TEXT without a '#' comment, with tabs and runs of spaces
+     *  replaced by single spaces and no leading or trailing space. */
+    private static String clean(String text) {
+        text = text.replace('\t', ' ').strip();
+        if (text.startsWith("#")) {
+            return "";
+        }
+        return SPACES.matcher(text).replaceAll(" ");
+    }
+
+    /** Return TEXT with tabs and runs of spaces replaced by single spaces
+     *  and no trailing space, as output is compared. */
+    private static String normalize(String text) {
+        return SPACES.matcher(text.replace('\t', ' ').stripTrailing())
+            .replaceAll(" ");
+    }
+
+    /** How a program's script ended. */
+    private static class Outcome {
+        /** The outcome of the program TITLE: TYPE ("OK", "FAIL" or
+         *  "ERROR"), with MESSAGE, near script line LINE. */
+        Outcome(String title, String type, String message, int line) {
+            _title = title;
+            _type = type;
+            _message = message;
+            _line = line;
+        }
+
+        /** Program title. */
+        private final String _title;
+        /** Type of outcome. */
+        private final String _type;
+        /** Description, if not OK. */
+        private final String _message;
+        /** Line number in the script. */
+        private final int _line;
+    }
+
+    /** Signals a problem running a script: a failure of the program if
+     *  ERROR, and otherwise of the script. */
+    private static class ScriptException extends RuntimeException {
+        /** A problem described by MESSAGE, with the program iff ERROR. */
+        ScriptException(boolean error, String message) {
+            super(message);
+            _error = error;
+        }
+
+        /** True iff the program, rather than the script, is at fault. */
+        private final boolean _error;
+
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** A Game in this process, run according to one section of a
+     *  script. */
+    private static class Program {
+
+        /** A program named TITLE that runs SCRIPT, the lines of a script
+         *  section starting after line SCRIPTSTART, logging iff
+         *  LOGGING. */
+        Program(String title, List<String> script, int scriptStart,
+                boolean logging) {
+            _title = title;
+            _script = script;
+            _scriptStart = scriptStart;
+            _log = logging ? new StringBuilder() : null;
+        }
+
+        /** Connect me to OTHER, so that we may exchange moves. */
+        void connect(Program other) {
+            _otherInput = new ArrayBlockingQueue<>(OTHER_CAPACITY);
+            other._otherInput = new ArrayBlockingQueue<>(OTHER_CAPACITY);
+            _otherOutput = other._otherInput;
+            other._otherOutput = _otherInput;
+        }
+
+        /** Start running my script in a new thread, adding my outcome to
+         *  OUTCOMES when done. */
+        void start(BlockingQueue<Outcome> outcomes) {
+            Thread runner = new Thread(() -> outcomes.add(runScript()),
+                                       _title + "-runner");
+            runner.setDaemon(true);
+            runner.start();
+        }
+
+        /** Stop my game, if it is running. */
+        void stop() {
+            _input.close();
+        }
+
+        /** Return my log, if logging, and otherwise the empty string. */
+        String log() {
+            if (_log == null) {
+                return "";
+            }
+            synchronized (_log) {
+                return String.format("%n-----%nLog for %s%n-----%n%s-----%n",
+                                     _title, _log);
+            }
+        }
+
+        /** Run my script, returning its outcome. */
+        private Outcome runScript() {
+            try {
+                String command = nextCommand();
+                if (command == null) {
+                    throw new ScriptException(false, "No command found");
+                }
+                if (!PROGRAM.matcher(command).matches()) {
+                    throw new ScriptException(false, "cannot run "
+                                              + command + " in-process");
+                }
+                startGame();
+                for (command = nextCommand(); command != null;
+                     command = nextCommand()) {
+                    execute(command);
+                }
+                finish();
+                log("T %s OK", _title);
+                return new Outcome(_title, "OK", null, 0);
+            } catch (ScriptException excp) {
+                stop();
+                log("T %s %s", _title, excp.getMessage());
+                return new Outcome(_title, excp._error ? "ERROR" : "FAIL",
+                                   excp.getMessage(), _k + _scriptStart);
+            } catch (RuntimeException excp) {
+                stop();
+                return new Outcome(_title, "FAIL", excp.toString(),
+                                   _k + _scriptStart);
+            }
+        }
+
+        /** Start my Game in a new thread. */
+        private void startGame() {
+            _game = new Thread(() -> {
+                try {
+                    new Game(new Board(), _input, new Output()).process(false);
+                } catch (RuntimeException | Error excp) {
+                    _crash = excp;
+                } finally {
+                    _output.add(EOF);
+                }
+            }, _title + "-game");
+            _game.setDaemon(true);
+            _game.start();
+        }
+
+        /** Perform the script line COMMAND. */
+        private void execute(String command) {
+            Matcher m;
+            if ((m = TIME.matcher(command)).lookingAt()) {
+                try {
+                    _opLimit = (long) (Double.parseDouble(m.group(1)) * 1000);
+                } catch (NumberFormatException excp) {
+                    throw new ScriptException(false, "bad number");
+                }
+            } else if (command.startsWith("@total-time")) {
+                return;
+            } else if ((m = CHECK.matcher(command)).lookingAt()) {
+                checkOutput(m.group(1).equals("?"), m.group(2));
+            } else if ((m = PLAY.matcher(command)).lookingAt()) {
+                playSelf(m.group(1), pattern(m.group(2)));
+            } else if ((m = EXCHANGE.matcher(command)).lookingAt()) {
+                exchangeMoves(m.group(1).equals("send"), m.group(2),
+                              pattern(m.group(3)));
+            } else if (command.startsWith("@")) {
+                throw new ScriptException(false, "bad command in script");
+            } else {
+                send(command);
+            }
+        }
+
+        /** Check that the next line of output equals TEXT or, if REGEX,
+         *  matches the pattern TEXT. */
+        private void checkOutput(boolean regex, String text) {
+            Pattern pattern = regex ? pattern(text) : null;
+            String line = get(_opLimit);
+            if (line == EOF) {
+                throw error("premature end of output");
+            } else if (line == null) {
+                throw error("timed out waiting for output");
+            } else if (line.contains("Exception")) {
+                throw error("uncaught exception occurred: %s", line);
+            }
+            if (regex ? pattern == null || pattern.matcher(line).lookingAt()
+                : line.equals(text)) {
+                return;
+            }
+            throw error("output mismatch (%s / %s)", line, text);
+        }
+
+        /** Check that my program plays both sides from player WHO to the
+         *  end of the game, whose announcement matches END if it is not
+         *  null. */
+        private void playSelf(String who, Pattern end) {
+            String line;
+            while (true) {
+                line = getMove(who, get(_opLimit), "my");
+                if (moveOf(who, line) == null) {
+                    break;
+                }
+                who = opposite(who);
+            }
+            checkEnd(line, end);
+        }
+
+        /** Exchange moves with the other program to the end of the game,
+         *  whose announcement must match END if it is not null, starting
+         *  with player FIRST's move, which is mine iff SENDFIRST. */
+        private void exchangeMoves(boolean sendFirst, String first,
+                                   Pattern end) {
+            String second = opposite(first);
+            String mine = sendFirst ? first : second,
+                theirs = sendFirst ? second : first;
+            boolean send = sendFirst;
+            String line = null;
+            while (true) {
+                if (send) {
+                    line = getMove(mine, get(_opLimit), "my");
+                    sendOther(line, false);
+                    if (moveOf(mine, line) == null) {
+                        String other = getMove(theirs, getOther(), "other's");
+                        if (!line.equals(other)) {
+                            throw error("game outcomes don't agree");
+                        }
+                        break;
+                    }
+                }
+                send = true;
+                String other = getMove(theirs, getOther(), "other's");
+                String move = moveOf(theirs, other);
+                if (move == null) {
+                    line = getMove(mine, get(_opLimit), "my");
+                    sendOther(line, false);
+                    if (!line.equals(other)) {
+                        throw error("game outcomes don't agree");
+                    }
+                    break;
+                }
+                send(move);
+            }
+            checkEnd(line, end);
+        }
+
+        /** Check that the announcement LINE of the end of a game matches
+         *  END, if it is not null. */
+        private void checkEnd(String line, Pattern end) {
+            if (end != null && !end.matcher(line).lookingAt()) {
+                throw error("outcome does not match end pattern");
+            }
+        }
+
+        /** Return LINE, a line of output received from WHOSE program that
+         *  should announce a move by WHO or the end of the game, checking
+         *  that it is neither EOF nor null (for a timeout). */
+        private String getMove(String who, String line, String whose) {
+            if (line == EOF) {
+                throw error("game output truncated");
+            } else if (line == null) {
+                throw error("timed out waiting for %s %s move", whose, who);
+            }
+            moveOf(who, line);
+            return line;
+        }
+
+        /** Return the move announced by LINE for WHO ("red" or "blue"):
+         *  "-" for a pass, or null if LINE announces the end of the
+         *  game. */
+        private String moveOf(String who, String line) {
+            Matcher m =
+                (who.equals("red") ? RED_MOVE : BLUE_MOVE).matcher(line);
+            if (!m.matches()) {
+                throw error("invalid move for %s (%s)", who, line);
+            } else if (m.group(1) != null) {
+                return null;
+            } else if (m.group(2) != null) {
+                return "-";
+            } else {
+                return m.group(3);
+            }
+        }
+
+        /** Finish my script: end my program's input, and check that it
+         *  terminates without further output. */
+        private void finish() {
+            _input.close();
+            sendOther(EOF, true);
+            String line = get(_opLimit);
+            if (line == null) {
+                throw error("program did not terminate properly");
+            } else if (line != EOF) {
+                throw error("program produced extra output");
+            }
+            try {
+                _game.join(_opLimit);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+            }
+            if (_game.isAlive()) {
+                throw error("program did not terminate properly");
+            } else if (_crash != null) {
+                throw error("program terminated with error: %s", _crash);
+            }
+        }
+
+        /** Send LINE to my program as input. */
+        private void send(String line) {
+            log("> %s", line);
+            Command cmnd = Command.parseCommand(line);
+            long deadline = System.currentTimeMillis() + _opLimit;
+            while (!_input.offer(cmnd)) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw error("program blocked on input");
+                }
+                Thread.yield();
+            }
+        }
+
+        /** Return the next line of output from my program, waiting at
+         *  most LIMIT msec.  Returns EOF at the end of output, and null if
+         *  there is none in time. */
+        private String get(long limit) {
+            if (_eof) {
+                return EOF;
+            }
+            String line;
+            try {
+                line = _output.poll(limit, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            _eof = line == EOF;
+            log("< %s", line == null ? "<timeout>" : line);
+            return line;
+        }
+
+        /** Send MSG (possibly EOF) to the other program, unless it is
+         *  not taking messages, which is an error unless IGNORE. */
+        private void sendOther(String msg, boolean ignore) {
+            if (_otherOutput != null && _otherOutput.offer(msg)) {
+                log("R> %s", msg);
+                return;
+            }
+            if (!ignore) {
+                throw error("other program blocked");
+            }
+        }
+
+        /** Return the next message from the other program: EOF if it has
+         *  ended, or null if there is none in time. */
+        private String getOther() {
+            if (_otherInput == null) {
+                throw error("no other program");
+            }
+            try {
+                String msg = _otherInput.poll(_opLimit,
+                                              TimeUnit.MILLISECONDS);
+                log("R< %s", msg);
+                return msg;
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        /** Return the next nonblank line of my script, without comments
+         *  and extra spaces, or null if there are no more. */
+        private String nextCommand() {
+            while (_k < _script.size()) {
+                String command = clean(_script.get(_k));
+                _k += 1;
+                log("* %s", command);
+                if (!command.isEmpty()) {
+                    return command;
+                }
+            }
+            log("* <EOF>");
+            return null;
+        }
+
+        /** Return the pattern PATTERN, or null if it is blank. */
+        private static Pattern pattern(String pattern) {
+            if (pattern == null || pattern.isBlank()) {
+                return null;
+            }
+            try {
+                return Pattern.compile(pattern);
+            } catch (IllegalArgumentException excp) {
+                throw new ScriptException(false, "bad test pattern: "
+                                          + pattern);
+            }
+        }
+
+        /** Return an exception reporting a problem with my program,
+         *  described by String.format(FORMAT, ARGS). */
+        private static ScriptException error(String format, Object... args) {
+            return new ScriptException(true, String.format(format, args));
+        }
+
+        /** Return the other of the players "red" and "blue" from WHO. */
+        private static String opposite(String who) {
+            return who.equals("red") ? "blue" : "red";
+        }
+
+        /** Add String.format(FORMAT, ARGS) to my log, if logging. */
+        private void log(String format, Object... args) {
+            if (_log != null) {
+                synchronized (_log) {
+                    _log.append(String.format(format, args).stripTrailing())
+                        .append('\n');
+                }
+            }
+        }
+
+        /** Reports my Game's messages as lines of output, keeping only
+         *  those that the tests check: board dumps and announcements of
+         *  moves and outcomes. */
+        private class Output implements Reporter {
+            @Override
+            public void errMsg(String format, Object... args) {
+                put(String.format(format, args));
+            }
+
+            @Override
+            public void outcomeMsg(String format, Object... args) {
+                put(String.format(format, args));
+            }
+
+            @Override
+            public void moveMsg(String format, Object... args) {
+                put(String.format(format, args));
+            }
+
+            @Override
+            public void promptMsg(String prompt) {
+            }
+
+            /** Add the lines of TEXT that are checked to my output. */
+            private void put(String text) {
+                for (String line : text.split("\n")) {
+                    if (_inDump) {
+                        _inDump = !DUMP_EDGE.matcher(line).lookingAt();
+                        _output.add(normalize(line));
+                        continue;
+                    }
+                    line = normalize(PROMPT.matcher(line).replaceFirst(""));
+                    if (DUMP_EDGE.matcher(line).lookingAt()) {
+                        _inDump = true;
+                        _output.add(line);
+                    } else if (CHECKED.matcher(line).find()) {
+                        _output.add(line);
+                    }
+                }
+            }
+
+            /** True while reporting the lines of a board dump. */
+            private boolean _inDump;
+        }
+
+        /** Title for messages. */
+        private final String _title;
+        /** My section of the script. */
+        private final List<String> _script;
+        /** Line number of the script preceding my section. */
+        private final int _scriptStart;
+        /** Number of lines of _script read. */
+        private int _k;
+        /** Time allowed for each output (msec). */
+        private long _opLimit = DEFAULT_OP_LIMIT;
+        /** My program's input. */
+        private final CommandQueue _input = new CommandQueue(INPUT_CAPACITY);
+        /** My program's checked output, ending with EOF. */
+        private final BlockingQueue<String> _output =
+            new LinkedBlockingQueue<>();
+        /** True once EOF has been read from _output. */
+        private boolean _eof;
+        /** Messages from the other program, if any. */
+        private BlockingQueue<String> _otherInput;
+        /** Messages to the other program, if any. */
+        private BlockingQueue<String> _otherOutput;
+        /** Thread running my program. */
+        private Thread _game;
+        /** The exception that ended my program, if any. */
+        private volatile Throwable _crash;
+        /** Log of my input and output, or null if not logging. */
+        private final StringBuilder _log;
+    }
+
+    /** Marks the end of output or of messages from another program. */
+    private static final String EOF = new String("<EOF>");
+
+    /** Default time allowed for each output (msec). */
+    static final long DEFAULT_OP_LIMIT = 10_000;
+    /** Default time allowed for a script (sec). */
+    static final long DEFAULT_TOTAL_TIME = 120;
+    /** Time allowed for the second program to finish after the first
+     *  (sec). */
+    static final long CLEANUP_TIME = 2;
+    /** Capacity of a program's input queue. */
+    private static final int INPUT_CAPACITY = 512;
+    /** Capacity of the queue of messages between programs. */
+    private static final int OTHER_CAPACITY = 4;
+
+    /** Splits a script into sections for two programs. */
+    private static final Pattern SECTIONS =
+        Pattern.compile("(?sm)(.*?)^ *----------+ *\n(.*)");
+    /** Gives the total time allowed for a script. */
+    private static final Pattern TOTAL_TIME =
+        Pattern.compile("(?m)^\\s*@total-time\\s+(\\d+)");
+    /** The commands that may be run in-process. */
+    private static final Pattern PROGRAM =
+        Pattern.compile("java( -ea)? ataxx\\.Main");
+    /** Script directives. */
+    private static final Pattern
+        TIME = Pattern.compile("@time ([\\d.]+)"),
+        CHECK = Pattern.compile("@([<?])(.*)"),
+        PLAY = Pattern.compile("@(red|blue)\\.\\.\\.\\s*(.*)"),
+        EXCHANGE = Pattern.compile("@(send|recv) (red|blue)\\.\\.\\.\\s*(.*)");
+    /** Announcements of Red's and Blue's moves and of outcomes. */
+    private static final Pattern
+        RED_MOVE = Pattern.compile("(?:((?:Red|Blue) wins|Draw)|Red (passes)"
+                                   + "|Red moves ([a-g][1-7]-[a-g][1-7]))\\."),
+        BLUE_MOVE = Pattern.compile("(?:((?:Red|Blue) wins|Draw)|Blue "
+                                    + "(passes)|Blue moves "
+                                    + "([a-g][1-7]-[a-g][1-7]))\\.");
+    /** A prompt at the start of an output line. */
+    private static final Pattern PROMPT = Pattern.compile("^.*:\\s*");
+    /** The first or last line of a board dump. */
+    private static final Pattern DUMP_EDGE = Pattern.compile("\\s*===");
+    /** Output lines that are checked. */
+    private static final Pattern CHECKED =
+        Pattern.compile("(?i)wins|passes|moves|draw|Exception in thread");
+    /** Runs of spaces. */
+    private static final Pattern SPACES = Pattern.compile("  +");
+}
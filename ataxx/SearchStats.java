@@ -0,0 +1,103 @@
+package ataxx;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/** Measurements of the searches made by AI players: for each search, its
+ *  latency, the number of positions it visited, and the bytes allocated
+ *  by the thread that ran it.  Searches may be measured from any
+ *  thread.
+ *  @author Carson Trinh
+ */
+class SearchStats {
+
+    /** Return the best move for the player to move on BOARD found by
+     *  SEARCHER to DEPTH, as for Searcher.findMove, recording the
+     *  search's measurements. */
+    Move measure(Searcher searcher, Board board, int depth) {
+        long bytes0 = allocatedBytes(), start = System.nanoTime();
+        Move move = searcher.findMove(board, depth);
+        long nanos = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytes0;
+        add(nanos, searcher.nodes(), bytes);
+        return move;
+    }
+
+    /** Record a search that took NANOS nsec, visited NODES positions and
+     *  allocated BYTES bytes. */
+    synchronized void add(long nanos, long nodes, long bytes) {
+        if (_count == _nanos.length) {
+            _nanos = Arrays.copyOf(_nanos, 2 * _count);
+        }
+        _nanos[_count] = nanos;
+        _count += 1;
+        _nodes += nodes;
+        _bytes += bytes;
+    }
+
+    /** Return the number of searches recorded. */
+    synchronized int count() {
+        return _count;
+    }
+
+    /** Return the smallest latency (nsec) no less than that of fraction
+     *  P of the searches, or 0 if there are none. */
+    synchronized long percentile(double p) {
+        if (_count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(_nanos, _count);
+        Arrays.sort(sorted);
+        int k = (int) Math.ceil(p * _count) - 1;
+        return sorted[Math.max(0, Math.min(_count - 1, k))];
+    }
+
+    /** Return the total number of positions visited. */
+    synchronized long nodes() {
+        return _nodes;
+    }
+
+    /** Return the total number of bytes allocated, or 0 if allocation
+     *  cannot be measured. */
+    synchronized long bytes() {
+        return _bytes;
+    }
+
+    /** Return the number of bytes allocated so far by this thread, or 0
+     *  if that cannot be determined. */
+    private static long allocatedBytes() {
+        if (THREADS != null) {
+            return THREADS.getThreadAllocatedBytes(Thread.currentThread()
+                                                   .getId());
+        }
+        return 0;
+    }
+
+    /** Source of allocation counts, or null if unavailable. */
+    private static final com.sun.management.ThreadMXBean THREADS;
+
+    static {
+        java.lang.management.ThreadMXBean threads =
+            ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) threads)
+               .isThreadAllocatedMemorySupported()) {
+            THREADS = (com.sun.management.ThreadMXBean) threads;
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            THREADS = null;
+        }
+    }
+
+    /** Latencies of the searches (nsec), in _nanos[0 .. _count-1]. */
+    private long[] _nanos = new long[INITIAL_SIZE];
+    /** Number of searches. */
+    private int _count;
+    /** Total positions visited. */
+    private long _nodes;
+    /** Total bytes allocated. */
+    private long _bytes;
+
+    /** Initial capacity of _nanos. */
+    private static final int INITIAL_SIZE = 64;
+}
@@ -0,0 +1,380 @@
+package ataxx;
+
+import static ataxx.PieceColor.*;
+import static java.lang.Math.min;
+import static java.lang.Math.max;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Stack;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/** A minimax search with alpha-beta pruning over a Board, backed by a
+ *  TranspositionTable.  Scores are from Red's point of view: positive
+ *  values favor Red.  A Searcher keeps its table between searches, and is
+ *  meant to be used by one thread at a time.
+ *  @author Carson Trinh
+ *  Took inspiration for implementing findMove from Paul Hilfinger's CS61B
+ *  Lecture 22 Slides (pseudocode)
+ */
+class Searcher {
+
+    /** A position magnitude indicating a win (for red if positive, blue
+     *  if negative). */
+    static final int WINNING_VALUE = Integer.MAX_VALUE - 1;
+    /** A magnitude greater than a normal value. */
+    static final int INFTY = Integer.MAX_VALUE;
+    /** Log base 2 of the default transposition table size. */
+    static final int DEFAULT_TABLE_SIZE = 16;
+
+    /** A Searcher with a new table of the default size. */
+    Searcher() {
+        this(new TranspositionTable(DEFAULT_TABLE_SIZE));
+    }
+
+    /** A Searcher that records its results in TABLE. */
+    Searcher(TranspositionTable table) {
+        this(table, null);
+    }
+
+    /** A Searcher that records its results in TABLE and, for searches
+     *  of at least SharedCache.MIN_DEPTH, in SHARED, which is consulted
+     *  for positions not in TABLE.  SHARED may be null. */
+    Searcher(TranspositionTable table, SharedCache shared) {
+        _table = table;
+        _shared = shared;
+    }
+
+    /** Return the best move for the player to move on BOARD, or null if
+     *  the game is over, searching to depths 1 through DEPTH in turn.
+     *  BOARD is used for the search, but is restored before returning. */
+    Move findMove(Board board, int depth) {
+        int sense = board.whoseMove() == RED ? 1 : -1;
+        _nodes = 0;
+        _bestMove = null;
+        if (_shared != null) {
+            _shared.newSearch();
+        }
+        boolean recording = Events.recording();
+        for (int d = 1; d <= depth; d += 1) {
+            Events.SearchIteration iteration = null;
+            if (recording) {
+                iteration = new Events.SearchIteration();
+                iteration.begin();
+            }
+            _score = findMove(board, d, true, sense, -INFTY, INFTY);
+            _depth = d;
+            if (recording) {
+                iteration.end();
+                if (iteration.shouldCommit()) {
+                    iteration.depth = d;
+                    iteration.score = _score;
+                    iteration.nodes = _nodes;
+                    iteration.move = String.valueOf(_bestMove);
+                    iteration.commit();
+                }
+            }
+        }
+        return _bestMove;
+    }
+
+    /** Analyze BOARD, on which the game must not be over, to depths 1
+     *  through DEPTH in turn, finding the exact value of every legal move
+     *  at each depth.  After each depth, pass the result to LISTENER.
+     *  Stop as soon as possible once ABORT is set, returning false;
+     *  otherwise return true.  BOARD is used for the search, and is
+     *  restored before returning unless the search is aborted. */
+    boolean analyze(Board board, int depth, AtomicBoolean abort,
+                    Consumer<Analysis> listener) {
+        int sense = board.whoseMove() == RED ? 1 : -1;
+        Move[] moves = findPossibleMoves(board.whoseMove(), board)
+            .toArray(new Move[0]);
+        int[] scores = new int[moves.length];
+        _nodes = 0;
+        _abort = abort;
+        try {
+            for (int d = 1; d <= depth; d += 1) {
+                int best = 0;
+                for (int k = 0; k < moves.length; k += 1) {
+                    board.makeMove(moves[k]);
+                    _nodes += 1;
+                    scores[k] = findMove(board, d - 1, false, -sense,
+                                         -INFTY, INFTY);
+                    board.undo();
+                    if (sense * scores[k] > sense * scores[best]) {
+                        best = k;
+                    }
+                }
+                listener.accept(new Analysis(board.key(), board.whoseMove(),
+                                             d, moves, scores,
+                                             principalVariation(board,
+                                                                moves[best],
+                                                                d),
+                                             _nodes));
+            }
+            return true;
+        } catch (SearchAborted excp) {
+            return false;
+        } finally {
+            _abort = null;
+        }
+    }
+
+    /** Return the line of at most DEPTH moves on BOARD that starts with
+     *  FIRST and continues with the best moves recorded in my table.
+     *  BOARD is restored before returning. */
+    private List<Move> principalVariation(Board board, Move first,
+                                          int depth) {
+        List<Move> pv = new ArrayList<>();
+        Move move = first;
+        while (move != null && pv.size() < depth && board.legalMove(move)
+               && move.isPass() != board.canMove(board.whoseMove())) {
+            board.makeMove(move);
+            pv.add(move);
+            move = board.gameOver() ? null
+                : TranspositionTable.move(_table.probe(tableKey(board)));
+        }
+        for (int i = 0; i < pv.size(); i += 1) {
+            board.undo();
+        }
+        return pv;
+    }
+
+    /** Return the best move found by the last findMove. */
+    Move bestMove() {
+        return _bestMove;
+    }
+
+    /** Return the score of the last findMove. */
+    int score() {
+        return _score;
+    }
+
+    /** Return the depth completed by the last findMove. */
+    int depth() {
+        return _depth;
+    }
+
+    /** Return the number of positions visited by the last findMove. */
+    long nodes() {
+        return _nodes;
+    }
+
+    /** Return my transposition table. */
+    TranspositionTable table() {
+        return _table;
+    }
+
+    /** Find a move from position BOARD and return its value, recording
+     *  the move found in _bestMove iff SAVEMOVE. The move
+     *  should have maximal value or have value >= BETA if SENSE==1,
+     *  and minimal value or value <= ALPHA if SENSE==-1. Searches up to
+     *  DEPTH levels before using a static estimate. */
+    private int findMove(Board board, int depth, boolean saveMove, int sense,
+                         int alpha, int beta) {
+        if (_abort != null && _abort.get()) {
+            throw SearchAborted.INSTANCE;
+        }
+        if (depth == 0 || board.gameOver()) {
+            return simpleFindMove(board, saveMove, sense, alpha, beta);
+        }
+        long key = tableKey(board);
+        long entry = _table.probe(key);
+        if (entry == 0 && _shared != null
+            && depth >= SharedCache.MIN_DEPTH) {
+            entry = _shared.probe(key);
+        }
+        Move hashMove = TranspositionTable.move(entry);
+        if (entry != 0 && !saveMove
+            && TranspositionTable.depth(entry) >= depth) {
+            int value = TranspositionTable.value(entry);
+            switch (TranspositionTable.bound(entry)) {
+            case TranspositionTable.EXACT:
+                return value;
+            case TranspositionTable.LOWER:
+                if (value >= beta) {
+                    return value;
+                }
+                break;
+            default:
+                if (value <= alpha) {
+                    return value;
+                }
+                break;
+            }
+        }
+
+        int alpha0 = alpha, beta0 = beta;
+        Move bestMoveSoFar = null;
+        int bestScoreSoFar = sense == 1 ? -INFTY : INFTY;
+        Stack<Move> possibleMoves =
+            findPossibleMoves(sense == 1 ? RED : BLUE, board);
+        if (!saveMove && hashMove != null && possibleMoves.remove(hashMove)) {
+            possibleMoves.add(0, hashMove);
+        }
+        for (Move move : possibleMoves) {
+            board.makeMove(move);
+            _nodes += 1;
+            int respondingScore = findMove(board, depth - 1, false, -sense,
+                    alpha, beta);
+            board.undo();
+            if (sense * respondingScore > sense * bestScoreSoFar) {
+                bestMoveSoFar = move;
+                bestScoreSoFar = respondingScore;
+                if (sense == 1) {
+                    alpha = max(alpha, respondingScore);
+                } else {
+                    beta = min(beta, respondingScore);
+                }
+                if (beta <= alpha) {
+                    break;
+                }
+            }
+        }
+        if (saveMove) {
+            _bestMove = bestMoveSoFar;
+        }
+        int bound = bestScoreSoFar <= alpha0 ? TranspositionTable.UPPER
+            : bestScoreSoFar >= beta0 ? TranspositionTable.LOWER
+            : TranspositionTable.EXACT;
+        _table.store(key, depth, bestScoreSoFar, bound, bestMoveSoFar);
+        if (_shared != null && depth >= SharedCache.MIN_DEPTH) {
+            _shared.store(key, depth, bestScoreSoFar, bound, bestMoveSoFar);
+        }
+        return bestScoreSoFar;
+    }
+
+    /** Find a move from position BOARD and return its value, recording
+     *  the move found in _bestMove iff SAVEMOVE. The move
+     *  should have maximal value or have value >= BETA if SENSE==1,
+     *  and minimal value or value <= ALPHA if SENSE==-1. Searches one level
+     *  deep. */
+    private int simpleFindMove(Board board, boolean saveMove, int sense, int
+            alpha, int beta) {
+        if (board.gameOver()) {
+            int score = staticScore(board);
+            return score > 0 ? WINNING_VALUE : score < 0 ? -WINNING_VALUE : 0;
+        }
+        Move bestMoveSoFar = null;
+        int bestScoreSoFar = sense == 1 ? -INFTY : INFTY;
+        Stack<Move> possibleMoves =
+            findPossibleMoves(sense == 1 ? RED : BLUE, board);
+        for (Move move : possibleMoves) {
+            board.makeMove(move);
+            _nodes += 1;
+            int respondingScore = staticScore(board);
+            board.undo();
+            if (sense * respondingScore > sense * bestScoreSoFar) {
+                bestMoveSoFar = move;
+                bestScoreSoFar = respondingScore;
+                if (sense == 1) {
+                    alpha = max(alpha, respondingScore);
+                } else {
+                    beta = min(beta, respondingScore);
+                }
+                if (beta <= alpha) {
+                    break;
+                }
+            }
+        }
+        if (saveMove) {
+            _bestMove = bestMoveSoFar;
+        }
+        return bestScoreSoFar;
+    }
+
+    /** Return the transposition table key for BOARD.  Besides the
+     *  position, it reflects the jump count, which decides when the
+     *  game ends. */
+    private static long tableKey(Board board) {
+        return board.key() ^ board.numJumps() * JUMP_KEY;
+    }
+
+    /** Return a stack of all possible moves for PLAYER on the BOARD. */
+    Stack<Move> findPossibleMoves(PieceColor player, Board board) {
+        Stack<Move> possibleMoves = new Stack<Move>();
+        if (!board.canMove(player)) {
+            possibleMoves.push(Move.pass());
+            return possibleMoves;
+        }
+        PieceColor subject;
+        PieceColor objective;
+        if (isLessEmpty(player, board)) {
+            subject = EMPTY;
+            objective = player;
+        } else {
+            subject = player;
+            objective = EMPTY;
+        }
+        for (int sq : board.squares()) {
+            if (board.get(sq) == subject) {
+                char c = Board.col(sq), r = Board.row(sq);
+                for (int sq1 : board.targets(sq)) {
+                    if (board.get(sq1) == objective) {
+                        char c1 = Board.col(sq1), r1 = Board.row(sq1);
+                        if (subject == player) {
+                            possibleMoves.push(Move.move(c, r, c1, r1));
+                        } else {
+                            possibleMoves.push(Move.move(c1, r1, c, r));
+                        }
+                    }
+                }
+            }
+        }
+        return possibleMoves;
+    }
+
+    /**
+     * Returns true there are less EMPTY PieceColors than PLAYER PieceColors
+     * in BOARD.
+     */
+    private boolean isLessEmpty(PieceColor player, Board board) {
+        int playerPieces = board.numPieces(player);
+        int emptyPieces = 0;
+        for (int sq : board.squares()) {
+            if (board.get(sq) == EMPTY) {
+                emptyPieces += 1;
+            }
+        }
+        return emptyPieces < playerPieces;
+    }
+
+    /** Return a heuristic value for BOARD. */
+    int staticScore(Board board) {
+        int score = board.redPieces() - board.bluePieces();
+        return score;
+    }
+
+    /** Thrown to abandon an analysis that has been aborted. */
+    private static class SearchAborted extends RuntimeException {
+        /** The only instance, which carries no stack trace. */
+        static final SearchAborted INSTANCE = new SearchAborted();
+
+        /** The exception without a stack trace. */
+        private SearchAborted() {
+            super(null, null, false, false);
+        }
+
+        /** Version of the serialized form. */
+        private static final long serialVersionUID = 1L;
+    }
+
+    /** Multiplier mixing the jump count into table keys. */
+    private static final long JUMP_KEY = 0x9E3779B97F4A7C15L;
+
+    /** Results of earlier searches. */
+    private final TranspositionTable _table;
+    /** Results shared with other Searchers, or null. */
+    private final SharedCache _shared;
+    /** Best move found by the last search. */
+    private Move _bestMove;
+    /** Score of the last search. */
+    private int _score;
+    /** Depth completed by the last search. */
+    private int _depth;
+    /** Number of positions visited by the last search. */
+    private long _nodes;
+    /** Set to abandon the current analysis, or null if there is none. */
+    private AtomicBoolean _abort;
+}
@@ -0,0 +1,257 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/** Tests of Searcher, LiveAnalysis and SharedCache.
+ *  @author Carson Trinh
+ */
+public class SearcherTest {
+
+    @Test
+    public void testAnalyze() {
+        Board b = new Board();
+        b.makeMove('a', '7', 'b', '6');
+        b.makeMove('a', '1', 'c', '3');
+        String start = b.positionString();
+        List<Analysis> results = new ArrayList<>();
+        Searcher searcher = new Searcher();
+        assertTrue(searcher.analyze(b, 3, new AtomicBoolean(),
+                                    results::add));
+        assertEquals("board not restored", start, b.positionString());
+        assertEquals(3, results.size());
+        for (int d = 1; d <= 3; d += 1) {
+            Analysis analysis = results.get(d - 1);
+            assertEquals(d, analysis.depth());
+            assertEquals(b.key(), analysis.key());
+            assertEquals(b.whoseMove(), analysis.player());
+            Searcher check = new Searcher();
+            check.findMove(new Board(b), d);
+            assertEquals("depth " + d, check.score(), analysis.score());
+            assertTrue(analysis.pv().size() <= d);
+            assertTrue(b.legalMove(analysis.pv().get(0)));
+        }
+
+        AtomicBoolean abort = new AtomicBoolean(true);
+        assertFalse(searcher.analyze(new Board(b), 3, abort,
+                                     results::add));
+    }
+
+    @Test
+    public void testLiveAnalysis() throws InterruptedException {
+        Board b = new Board();
+        Object updated = new Object();
+        LiveAnalysis live = new LiveAnalysis(b, 2, () -> {
+            synchronized (updated) {
+                updated.notifyAll();
+            }
+        });
+        live.start();
+        try {
+            awaitAnalysis(live, b, updated);
+            b.makeMove('a', '7', 'b', '7');
+            awaitAnalysis(live, b, updated);
+        } finally {
+            live.stop();
+        }
+        assertNull(live.current());
+    }
+
+    @Test
+    public void testBench() {
+        Reporter quiet =
+            new TextReporter(new PrintStream(OutputStream.nullOutputStream()));
+        long nodes = Bench.run(2, quiet);
+        assertTrue(nodes > 0);
+        assertEquals("node count not deterministic", nodes,
+                     Bench.run(2, quiet));
+    }
+
+    @Test
+    public void testSearchStats() {
+        SearchStats stats = new SearchStats();
+        for (int i = 100; i >= 1; i -= 1) {
+            stats.add(i * 1000, i, 0);
+        }
+        assertEquals(100, stats.count());
+        assertEquals(50000, stats.percentile(0.5));
+        assertEquals(99000, stats.percentile(0.99));
+        assertEquals(100000, stats.percentile(1.0));
+        assertEquals(5050, stats.nodes());
+
+        Board b = new Board();
+        Move move = stats.measure(new Searcher(), b, 2);
+        assertTrue(b.legalMove(move));
+        assertEquals(101, stats.count());
+    }
+
+    @Test
+    public void testSharedCache() {
+        SharedCache cache = new SharedCache(1 << 10);
+        assertEquals(1 << 10, cache.getCapacityBytes());
+        Move move = Move.move('a', '7', 'b', '6');
+        long key = 0x123456789ABCDEF0L;
+        assertEquals(0, cache.probe(key));
+        cache.store(key, 3, -5, TranspositionTable.LOWER, move);
+        long entry = cache.probe(key);
+        assertEquals(-5, TranspositionTable.value(entry));
+        assertEquals(3, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER,
+                     TranspositionTable.bound(entry));
+        assertEquals(move, TranspositionTable.move(entry));
+
+        cache.store(key, 2, 7, TranspositionTable.EXACT, null);
+        assertEquals("deeper entry replaced", 3,
+                     TranspositionTable.depth(cache.probe(key)));
+        long other = key + (1 << 10), third = key + (2 << 10);
+        cache.store(other, 2, 1, TranspositionTable.EXACT, null);
+        cache.store(third, 4, 2, TranspositionTable.EXACT, null);
+        assertEquals("shallowest entry kept", 0, cache.probe(other));
+        assertNotEquals(0, cache.probe(key));
+        cache.newSearch();
+        assertNotEquals("generation ended early", 0, cache.probe(key));
+        for (int g = 0; g < 3; g += 1) {
+            for (long filler = 0; filler < 32; filler += 2) {
+                cache.store(filler, 2, 0, TranspositionTable.EXACT, null);
+            }
+            cache.newSearch();
+        }
+        cache.store(other, 2, 1, TranspositionTable.EXACT, null);
+        assertEquals("stale entry kept", 0, cache.probe(key));
+        assertNotEquals(0, cache.probe(third));
+        cache.store(key, 2, 7, TranspositionTable.EXACT, null);
+        assertEquals(7, TranspositionTable.value(cache.probe(key)));
+        assertEquals(53, cache.getStores());
+        assertEquals(9, cache.getProbes());
+        assertEquals(6, cache.getHits());
+    }
+
+    @Test
+    public void testSharedCacheThreads() throws InterruptedException {
+        SharedCache cache = new SharedCache(1 << 12);
+        Thread[] workers = new Thread[4];
+        AtomicBoolean corrupt = new AtomicBoolean();
+        for (int t = 0; t < workers.length; t += 1) {
+            int seed = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < 200_000; i += 1) {
+                    long key = (i * 31L + seed) % 1000 * 0x9E3779B97F4A7C15L;
+                    int value = (int) (key >>> 40);
+                    cache.store(key, 2 + seed, value,
+                                TranspositionTable.EXACT, null);
+                    long entry = cache.probe(key ^ (i & 1) << 20);
+                    if (entry != 0 && (i & 1) == 0
+                        && TranspositionTable.value(entry) != value) {
+                        corrupt.set(true);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertFalse("inconsistent entry read", corrupt.get());
+        assertTrue(cache.getHits() > 0);
+    }
+
+    @Test
+    public void testSharedSearch() {
+        SharedCache cache = new SharedCache(1 << 12);
+        Board b = new Board();
+        b.makeMove('a', '7', 'b', '6');
+        Searcher alone = new Searcher();
+        Move expected = alone.findMove(new Board(b), 3);
+        Searcher first = new Searcher(new TranspositionTable(10), cache),
+            second = new Searcher(new TranspositionTable(10), cache);
+        assertEquals(expected, first.findMove(new Board(b), 3));
+        assertEquals(alone.score(), first.score());
+        long hits = cache.getHits();
+        assertEquals(expected, second.findMove(new Board(b), 3));
+        assertEquals(alone.score(), second.score());
+        assertTrue("no shared results used", cache.getHits() > hits);
+        assertTrue("more positions searched",
+                   second.nodes() < first.nodes());
+        assertTrue(cache.getUsedPercent() > 0);
+    }
+
+    @Test
+    public void testSharedCacheFile() throws IOException {
+        SharedCache cache = new SharedCache(1 << 12);
+        for (long key = 1; key <= 50; key += 1) {
+            cache.store(key * 0x9E3779B97F4A7C15L, (int) (key % 7) + 2,
+                        (int) key, TranspositionTable.EXACT, null);
+        }
+        cache.newSearch();
+        Path file = Files.createTempFile("cache", ".hash");
+        try {
+            cache.save(file);
+            SharedCache same = SharedCache.load(file, 1 << 12),
+                smaller = SharedCache.load(file, 1 << 10);
+            int found = 0;
+            for (long key = 1; key <= 50; key += 1) {
+                long k = key * 0x9E3779B97F4A7C15L;
+                assertEquals(cache.probe(k), same.probe(k));
+                long entry = smaller.probe(k);
+                if (entry != 0) {
+                    assertEquals(key, TranspositionTable.value(entry));
+                    found += 1;
+                }
+            }
+            assertTrue(found > 0);
+            assertEquals(cache.getUsedPercent(), same.getUsedPercent());
+
+            byte[] data = Files.readAllBytes(file);
+            data[data.length / 2] ^= 1;
+            Files.write(file, data);
+            try {
+                SharedCache.load(file, 1 << 12);
+                fail("corrupt file loaded");
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+            Files.write(file, new byte[] { 1, 2, 3 });
+            try {
+                SharedCache.load(file, 1 << 12);
+                fail("bad file loaded");
+            } catch (GameException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** Wait until LIVE has completed an analysis of B to its full depth,
+     *  using UPDATED, which is notified on each update. */
+    private static void awaitAnalysis(LiveAnalysis live, Board b,
+                                      Object updated)
+        throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        synchronized (updated) {
+            while (true) {
+                Analysis analysis = live.current();
+                if (analysis != null && analysis.key() == b.key()
+                    && analysis.depth() == 2) {
+                    return;
+                }
+                long wait = deadline - System.currentTimeMillis();
+                assertTrue("analysis timed out", wait > 0);
+                updated.wait(wait);
+            }
+        }
+    }
+
+    /** Time allowed for an analysis (msec). */
+    private static final long TIMEOUT = 10000;
+
+}
@@ -0,0 +1,387 @@
+package ataxx;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A server hosting many games in one process.  Each connection to the
+ *  server's port is a session with its own Game, which reads commands
+ *  from the connection and reports to it exactly as the text interface
+ *  does through the standard input and output.  A session ends when its
+ *  game quits or the client closes its side of the connection.
+ *
+ *  All socket I/O is done by a single thread using a Selector.  Each
+ *  game's command loop runs on its own (virtual, when the JVM supports
+ *  them) thread, which spends nearly all its time waiting for input,
+ *  and all AI searches share a pool with one thread per processor and,
+ *  optionally, a SharedCache of their results.  A game whose client
+ *  does not read its output waits once MAX_QUEUED_BYTES are queued, and
+ *  commands that use the host's files are refused.
+ *  @author Carson Trinh
+ */
+class Server {
+
+    /** A server that will accept connections on PORT of the loopback
+     *  interface, whose games share search results through CACHE, if it
+     *  is not null. */
+    Server(int port, SharedCache cache) {
+        _port = port;
+        _cache = cache;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        _searchPool = Executors.newFixedThreadPool(cpus,
+                                                   daemonThreads("search"));
+        _gamePool = gameThreadPool();
+    }
+
+    /** Accept connections and serve sessions until the server fails. */
+    void run() throws IOException {
+        _selector = Selector.open();
+        ServerSocketChannel listener = ServerSocketChannel.open();
+        listener.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                            _port), BACKLOG);
+        listener.configureBlocking(false);
+        listener.register(_selector, SelectionKey.OP_ACCEPT);
+
+        ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        while (true) {
+            _selector.select();
+            Session pending;
+            while ((pending = _changed.poll()) != null) {
+                pending.updateInterest();
+            }
+            Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (!key.isValid()) {
+                    continue;
+                }
+                if (key.isAcceptable()) {
+                    accept(listener);
+                    continue;
+                }
+                Session session = (Session) key.attachment();
+                try {
+                    if (key.isReadable()) {
+                        session.read(readBuffer);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        session.write();
+                    }
+                } catch (IOException excp) {
+                    session.close();
+                }
+            }
+        }
+    }
+
+    /** Accept a pending connection on LISTENER, if any, and start its
+     *  session.  A connection that fails while being set up (for
+     *  example, because the process is out of file descriptors or the
+     *  client has reset it) is closed, leaving other sessions
+     *  unaffected. */
+    private void accept(ServerSocketChannel listener) {
+        SocketChannel channel = null;
+        try {
+            channel = listener.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            Session session = new Session(channel);
+            session._key = channel.register(_selector, SelectionKey.OP_READ,
+                                            session);
+            _gamePool.execute(session::play);
+        } catch (IOException excp) {
+            System.err.printf("Cannot accept connection: %s%n",
+                              excp.getMessage());
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException closeExcp) {
+                    /* Ignore IOException */
+                }
+            }
+        }
+    }
+
+    /** Return an executor that runs each game on a new thread: a virtual
+     *  thread if this JVM provides them, and otherwise a platform thread
+     *  with a small stack. */
+    private static ExecutorService gameThreadPool() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable body) {
+                    Thread t = new Thread(null, body, "game-"
+                                          + _count.incrementAndGet(),
+                                          GAME_STACK_SIZE);
+                    t.setDaemon(true);
+                    return t;
+                }
+
+                private final AtomicInteger _count = new AtomicInteger();
+            });
+        }
+    }
+
+    /** Return a factory for daemon threads named after NAME. */
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return (body) -> {
+            Thread t = new Thread(body, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /** One client connection and its Game.  Input lines are queued by the
+     *  selector thread and consumed by the game's thread; output is
+     *  queued by the game's thread and written by the selector thread. */
+    private class Session implements CommandSource, Reporter {
+
+        /** A session communicating over CHANNEL. */
+        Session(SocketChannel channel) {
+            _channel = channel;
+        }
+
+        /** Play games on this session until it quits, then close it
+         *  once its output has been sent. */
+        void play() {
+            try {
+                Game game = new Game(new Board(), this, this, _searchPool);
+                game.setSharedCache(_cache);
+                game.setRemote(true);
+                game.process(false);
+            } catch (RuntimeException excp) {
+                errMsg("Internal error: %s", excp);
+            }
+            synchronized (this) {
+                _closing = true;
+            }
+            requestUpdate();
+        }
+
+        @Override
+        public String getLine(String unused) {
+            synchronized (this) {
+                while (_lines.isEmpty() && !_eof) {
+                    try {
+                        wait();
+                    } catch (InterruptedException excp) {
+                        return null;
+                    }
+                }
+                String line = _lines.poll();
+                if (_lines.size() == MAX_PENDING_LINES - 1) {
+                    requestUpdate();
+                }
+                return line;
+            }
+        }
+
+        @Override
+        public void errMsg(String format, Object... args) {
+            send(format, args);
+        }
+
+        @Override
+        public void outcomeMsg(String format, Object... args) {
+            send(format, args);
+        }
+
+        @Override
+        public void moveMsg(String format, Object... args) {
+            send(format, args);
+        }
+
+        @Override
+        public void promptMsg(String unused) {
+        }
+
+        /** Queue the message formed from FORMAT and ARGS as for
+         *  String.format, followed by a newline, for sending.  While more
+         *  than MAX_QUEUED_BYTES are waiting to be sent, wait for the
+         *  client to read them; drop the message if the connection is
+         *  closed meanwhile. */
+        private void send(String format, Object... args) {
+            byte[] text = (String.format(format, args) + "\n")
+                .getBytes(StandardCharsets.UTF_8);
+            synchronized (this) {
+                while (_queuedBytes > MAX_QUEUED_BYTES && !_closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException excp) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (_closed) {
+                    return;
+                }
+                _queuedBytes += text.length;
+            }
+            _output.add(ByteBuffer.wrap(text));
+            requestUpdate();
+        }
+
+        /** Ask the selector thread to recompute the events I am
+         *  waiting for. */
+        private void requestUpdate() {
+            _changed.add(this);
+            _selector.wakeup();
+        }
+
+        /** Set the events the selector waits for on my channel according
+         *  to the state of my queues, and close my channel if I have quit
+         *  and sent all my output.  Called on the selector thread. */
+        void updateInterest() {
+            if (!_key.isValid()) {
+                return;
+            }
+            int ops = 0;
+            synchronized (this) {
+                if (!_eof && !_closing && _lines.size() < MAX_PENDING_LINES) {
+                    ops |= SelectionKey.OP_READ;
+                }
+            }
+            if (!_output.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            } else if (_closing) {
+                close();
+                return;
+            }
+            _key.interestOps(ops);
+        }
+
+        /** Read available input using BUFFER, queueing each complete
+         *  line.  Close the connection if a line exceeds MAX_LINE_LENGTH.
+         *  Called on the selector thread. */
+        void read(ByteBuffer buffer) throws IOException {
+            buffer.clear();
+            int n = _channel.read(buffer);
+            buffer.flip();
+            synchronized (this) {
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    if (b == '\n') {
+                        _lines.add(_partial.toString());
+                        _partial.setLength(0);
+                    } else if (_partial.length() == MAX_LINE_LENGTH) {
+                        _partial.setLength(0);
+                        close();
+                        return;
+                    } else if (b != '\r') {
+                        _partial.append((char) (b & 0xFF));
+                    }
+                }
+                if (n < 0) {
+                    if (_partial.length() > 0) {
+                        _lines.add(_partial.toString());
+                        _partial.setLength(0);
+                    }
+                    _eof = true;
+                }
+                notifyAll();
+            }
+            updateInterest();
+        }
+
+        /** Write as much queued output as the channel accepts.  Called on
+         *  the selector thread. */
+        void write() throws IOException {
+            ByteBuffer head;
+            while ((head = _output.peek()) != null) {
+                _channel.write(head);
+                if (head.hasRemaining()) {
+                    return;
+                }
+                _output.poll();
+                synchronized (this) {
+                    _queuedBytes -= head.capacity();
+                    notifyAll();
+                }
+            }
+            updateInterest();
+        }
+
+        /** Close my connection, ending my game at its next read. */
+        void close() {
+            _key.cancel();
+            try {
+                _channel.close();
+            } catch (IOException excp) {
+                /* Ignore IOException */
+            }
+            synchronized (this) {
+                _eof = _closed = true;
+                notifyAll();
+            }
+        }
+
+        /** My connection. */
+        private final SocketChannel _channel;
+        /** My registration with the selector. */
+        private SelectionKey _key;
+        /** Complete input lines not yet read by my game. */
+        private final Queue<String> _lines = new ArrayDeque<>();
+        /** Input received since the last complete line. */
+        private final StringBuilder _partial = new StringBuilder();
+        /** True once the client has closed its side of the connection. */
+        private boolean _eof;
+        /** True once my game has quit. */
+        private boolean _closing;
+        /** True once my connection is closed. */
+        private boolean _closed;
+        /** Number of bytes in _output. */
+        private long _queuedBytes;
+        /** Output not yet sent. */
+        private final Queue<ByteBuffer> _output =
+            new ConcurrentLinkedQueue<>();
+    }
+
+    /** Maximum number of unread input lines buffered for a session before
+     *  the server stops reading from its connection. */
+    private static final int MAX_PENDING_LINES = 256;
+    /** Number of bytes of output queued for a session beyond which its
+     *  game waits for the client to read them. */
+    private static final long MAX_QUEUED_BYTES = 1 << 16;
+    /** Maximum length of an input line (characters). */
+    private static final int MAX_LINE_LENGTH = 1 << 12;
+    /** Size of the buffer used for reading from connections (bytes). */
+    private static final int READ_BUFFER_SIZE = 1 << 14;
+    /** Stack size of a platform thread running a game (bytes). */
+    private static final long GAME_STACK_SIZE = 1 << 18;
+    /** Maximum number of connections waiting to be accepted. */
+    private static final int BACKLOG = 1024;
+
+    /** Port on which to listen. */
+    private final int _port;
+    /** Executor running the games' command loops. */
+    private final ExecutorService _gamePool;
+    /** Executor running AI searches for all games. */
+    private final ExecutorService _searchPool;
+    /** Search results shared by all games, or null. */
+    private final SharedCache _cache;
+    /** Multiplexes all connections. */
+    private Selector _selector;
+    /** Sessions whose interest in I/O events may have changed. */
+    private final Queue<Session> _changed = new ConcurrentLinkedQueue<>();
+}
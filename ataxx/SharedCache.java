@@ -0,0 +1,386 @@
+package ataxx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static ataxx.GameException.error;
+
+/** A table of search results shared by all the Searchers in a process,
+ *  so that games hosted together reuse each other's work on common
+ *  openings and block layouts.  Entries are packed as by
+ *  TranspositionTable, with the generation in which they were stored in
+ *  otherwise unused bits.
+ *
+ *  The table is lock-free.  Each slot holds an entry and its key XORed
+ *  with the entry, each written atomically but not together, so a probe
+ *  that sees halves of two different writes finds a mismatched key and
+ *  reports a miss; writes that race simply lose one of the entries.
+ *  Slots are grouped in pairs, and a new entry replaces the member of its
+ *  pair with the least depth, counting each generation of age as
+ *  AGE_DEPTH plies, so that results of old searches give way to new ones
+ *  without ever clearing the table.  A generation lasts until a quarter
+ *  of the table's size in entries has been stored, rather than for one
+ *  search, so that however many games share the cache, an entry is
+ *  replaced (having aged by its depth) long before the 8-bit generation
+ *  wraps around and makes it look new again.  The slots are divided into
+ *  stripes of at most STRIPE_SLOTS, selected by the high bits of the
+ *  key, so that the table may exceed the size of one array.
+ *
+ *  A cache may be saved to a file and loaded into a new cache when the
+ *  process restarts, so that it need not warm up again.  The file holds
+ *  a header (magic number, version, number of slots, generation and a
+ *  checksum of the rest) followed by the slots in order.
+ *  @author Carson Trinh
+ */
+class SharedCache implements SharedCacheMXBean {
+
+    /** Least depth of the searches whose results are shared: shallower
+     *  ones are cheaper to repeat than to share. */
+    static final int MIN_DEPTH = 2;
+
+    /** A cache occupying at most BYTES bytes, which must be enough for
+     *  at least one pair of slots. */
+    SharedCache(long bytes) {
+        long slots = Long.highestOneBit(bytes / SLOT_BYTES);
+        if (slots < 2) {
+            throw error("Shared cache too small: %d bytes.", bytes);
+        }
+        if (slots > MAX_SLOTS) {
+            throw error("Shared cache too large: %d bytes.", bytes);
+        }
+        int stripeSlots = (int) Math.min(slots, STRIPE_SLOTS);
+        _stripes = new AtomicLongArray[(int) (slots / stripeSlots)];
+        for (int i = 0; i < _stripes.length; i += 1) {
+            _stripes[i] = new AtomicLongArray(2 * stripeSlots);
+        }
+        _slotMask = stripeSlots - 2;
+        _stripeShift = Long.SIZE - Integer.numberOfTrailingZeros(
+            _stripes.length);
+    }
+
+    /** Return the packed entry stored for KEY, as for
+     *  TranspositionTable.probe, or 0 if there is none. */
+    long probe(long key) {
+        _probes.increment();
+        AtomicLongArray stripe = stripe(key);
+        int i = slot(key);
+        for (int k = i; k < i + 4; k += 2) {
+            long entry = stripe.getOpaque(k + 1);
+            if (entry != 0 && (stripe.getOpaque(k) ^ entry) == key) {
+                _hits.increment();
+                return entry & ~GENERATION_MASK;
+            }
+        }
+        return 0;
+    }
+
+    /** Record that the position with KEY has VALUE of kind BOUND when
+     *  searched to DEPTH, with best move MOVE (possibly null), as for
+     *  TranspositionTable.store.  An entry for the same position from
+     *  a deeper search in the current generation is kept. */
+    void store(long key, int depth, int value, int bound, Move move) {
+        long entry = TranspositionTable.pack(value, depth, bound, move)
+            | (long) (_generation.get() & 0xFF) << GENERATION_SHIFT;
+        if (insert(key, entry)) {
+            _stores.increment();
+        }
+    }
+
+    /** Called at the start of each search: start a new generation,
+     *  making existing entries older, if enough entries have been stored
+     *  in the current one. */
+    void newSearch() {
+        long stores = _stores.sum(), start = _generationStart.get();
+        if (stores - start >= slots() / GENERATION_FRACTION
+            && _generationStart.compareAndSet(start, stores)) {
+            _generation.incrementAndGet();
+        }
+    }
+
+    /** Write my entries to FILE, replacing it atomically, in the form
+     *  read by load.  Entries stored meanwhile may or may not be
+     *  included.  Saves are made one at a time. */
+    synchronized void save(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out =
+             FileChannel.open(temp, StandardOpenOption.CREATE,
+                              StandardOpenOption.TRUNCATE_EXISTING,
+                              StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_SIZE);
+            LongBuffer longs = buffer.asLongBuffer();
+            long[] chunk = new long[longs.capacity()];
+            long checksum = 0;
+            out.position(HEADER_SIZE);
+            for (AtomicLongArray stripe : _stripes) {
+                for (int start = 0; start < stripe.length();
+                     start += chunk.length) {
+                    int n = Math.min(chunk.length, stripe.length() - start);
+                    for (int k = 0; k < n; k += 1) {
+                        chunk[k] = stripe.getOpaque(start + k);
+                    }
+                    checksum = checksum(checksum, chunk, n);
+                    longs.clear();
+                    longs.put(chunk, 0, n);
+                    buffer.clear().limit(n * Long.BYTES);
+                    writeFully(out, buffer);
+                }
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(slots())
+                .putInt(_generation.get()).putLong(checksum);
+            header.clear();
+            out.position(0);
+            writeFully(out, header);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Return a new cache occupying at most BYTES bytes, holding the
+     *  entries written to FILE by save.  When the caches are of
+     *  different sizes, entries are reinserted, and some may be lost. */
+    static SharedCache load(Path file, long bytes) throws IOException {
+        SharedCache cache = new SharedCache(bytes);
+        try (FileChannel in =
+             FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            in.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE
+                || header.getInt() != MAGIC) {
+                throw error("Not a shared cache file: %s.", file);
+            }
+            if (header.getInt() != VERSION) {
+                throw error("Unsupported shared cache version: %s.", file);
+            }
+            long slots = header.getLong();
+            int generation = header.getInt();
+            long checksum = header.getLong();
+            if (slots < 2 || slots > MAX_SLOTS || Long.bitCount(slots) != 1
+                || in.size() != HEADER_SIZE + slots * SLOT_BYTES) {
+                throw error("Corrupt shared cache file: %s.", file);
+            }
+            cache._generation.set(generation);
+            boolean same = slots == cache.slots();
+            long[] chunk = new long[IO_BUFFER_SIZE / Long.BYTES];
+            long sum = 0, index = 0;
+            for (long start = 0; start < 2 * slots * Long.BYTES;
+                 start += MAP_SIZE) {
+                long size = Math.min(MAP_SIZE,
+                                     2 * slots * Long.BYTES - start);
+                LongBuffer longs =
+                    in.map(FileChannel.MapMode.READ_ONLY,
+                           HEADER_SIZE + start, size).asLongBuffer();
+                while (longs.hasRemaining()) {
+                    int n = Math.min(chunk.length, longs.remaining());
+                    longs.get(chunk, 0, n);
+                    sum = checksum(sum, chunk, n);
+                    if (same) {
+                        cache.copy(index, chunk, n);
+                    } else {
+                        cache.reinsert(chunk, n);
+                    }
+                    index += n;
+                }
+            }
+            if (sum != checksum) {
+                throw error("Corrupt shared cache file: %s.", file);
+            }
+        }
+        return cache;
+    }
+
+    @Override
+    public long getCapacityBytes() {
+        return (long) _stripes.length * _stripes[0].length() * Long.BYTES;
+    }
+
+    @Override
+    public int getUsedPercent() {
+        AtomicLongArray stripe = _stripes[0];
+        int sample = Math.min(stripe.length() / 2, USAGE_SAMPLE);
+        int generation = _generation.get() & 0xFF, used = 0;
+        for (int k = 0; k < 2 * sample; k += 2) {
+            long entry = stripe.getOpaque(k + 1);
+            if (entry != 0
+                && ((generation - generation(entry)) & 0xFF) < RECENT) {
+                used += 1;
+            }
+        }
+        return 100 * used / sample;
+    }
+
+    @Override
+    public long getProbes() {
+        return _probes.sum();
+    }
+
+    @Override
+    public long getHits() {
+        return _hits.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long probes = getProbes();
+        return probes == 0 ? 0 : 100.0 * getHits() / probes;
+    }
+
+    @Override
+    public long getStores() {
+        return _stores.sum();
+    }
+
+    /** Record ENTRY for KEY, replacing the entry of least worth in its
+     *  pair of slots unless that pair holds an entry for KEY from a
+     *  deeper search of the same generation.  Return true iff ENTRY was
+     *  stored. */
+    private boolean insert(long key, long entry) {
+        AtomicLongArray stripe = stripe(key);
+        int i = slot(key), generation = _generation.get() & 0xFF;
+        int victim = -1, victimWorth = Integer.MAX_VALUE;
+        for (int k = i; k < i + 4; k += 2) {
+            long old = stripe.getOpaque(k + 1);
+            if (old != 0 && (stripe.getOpaque(k) ^ old) == key) {
+                if (generation(old) == generation(entry)
+                    && TranspositionTable.depth(old)
+                       > TranspositionTable.depth(entry)) {
+                    return false;
+                }
+                victim = k;
+                break;
+            }
+            int worth = old == 0 ? Integer.MIN_VALUE
+                : TranspositionTable.depth(old)
+                - AGE_DEPTH * ((generation - generation(old)) & 0xFF);
+            if (worth < victimWorth) {
+                victim = k;
+                victimWorth = worth;
+            }
+        }
+        stripe.setOpaque(victim, key ^ entry);
+        stripe.setOpaque(victim + 1, entry);
+        return true;
+    }
+
+    /** Copy the N longs CHUNK[0 .. N-1] into my slots, starting at long
+     *  INDEX over all stripes in order. */
+    private void copy(long index, long[] chunk, int n) {
+        for (int k = 0; k < n; k += 1, index += 1) {
+            AtomicLongArray stripe =
+                _stripes[(int) (index / _stripes[0].length())];
+            stripe.setOpaque((int) (index % _stripes[0].length()),
+                             chunk[k]);
+        }
+    }
+
+    /** Insert each entry among the N longs CHUNK[0 .. N-1], which are
+     *  slots from another cache, into my slots. */
+    private void reinsert(long[] chunk, int n) {
+        for (int k = 0; k + 1 < n; k += 2) {
+            if (chunk[k + 1] != 0) {
+                insert(chunk[k] ^ chunk[k + 1], chunk[k + 1]);
+            }
+        }
+    }
+
+    /** Return my number of slots. */
+    private long slots() {
+        return (long) _stripes.length * _stripes[0].length() / 2;
+    }
+
+    /** Return the result of mixing the N longs DATA[0 .. N-1] into
+     *  CHECKSUM. */
+    private static long checksum(long checksum, long[] data, int n) {
+        for (int k = 0; k < n; k += 1) {
+            checksum = (checksum ^ data[k]) * CHECKSUM_MULTIPLIER;
+        }
+        return checksum;
+    }
+
+    /** Write all of BUFFER to OUT. */
+    private static void writeFully(FileChannel out, ByteBuffer buffer)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    /** Return the stripe holding KEY. */
+    private AtomicLongArray stripe(long key) {
+        return _stripes.length == 1 ? _stripes[0]
+            : _stripes[(int) (key >>> _stripeShift)];
+    }
+
+    /** Return the index in its stripe of the first slot of the pair that
+     *  may hold KEY. */
+    private int slot(long key) {
+        return 2 * ((int) key & _slotMask);
+    }
+
+    /** Return the generation recorded in ENTRY. */
+    private static int generation(long entry) {
+        return (int) ((entry & GENERATION_MASK) >>> GENERATION_SHIFT);
+    }
+
+    /** Magic number identifying a saved cache. */
+    private static final int MAGIC = 0x41545843;
+    /** Version of the format of saved caches. */
+    private static final int VERSION = 1;
+    /** Size of the header of a saved cache (bytes). */
+    private static final int HEADER_SIZE = 64;
+    /** Size of the buffer used to copy slots to and from files. */
+    private static final int IO_BUFFER_SIZE = 1 << 20;
+    /** Largest part of a saved cache mapped at once (bytes). */
+    private static final long MAP_SIZE = 1L << 30;
+    /** Multiplier mixing the slots of a saved cache into its checksum. */
+    private static final long CHECKSUM_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    /** Largest number of slots in a cache. */
+    private static final long MAX_SLOTS = 1L << 34;
+
+    /** Bytes occupied by a slot: the key and the entry. */
+    private static final int SLOT_BYTES = 2 * Long.BYTES;
+    /** Largest number of slots in a stripe. */
+    private static final int STRIPE_SLOTS = 1 << 24;
+    /** Position of the generation in an entry, in bits that
+     *  TranspositionTable.pack leaves 0. */
+    private static final int GENERATION_SHIFT = 54;
+    /** Mask selecting the generation of an entry. */
+    private static final long GENERATION_MASK = 0xFFL << GENERATION_SHIFT;
+    /** Reciprocal of the fraction of the slots to be stored in each
+     *  generation. */
+    private static final int GENERATION_FRACTION = 4;
+    /** Depth that an entry is worth less for each generation of age. */
+    private static final int AGE_DEPTH = 1;
+    /** Number of generations for which an entry counts as recent in
+     *  getUsedPercent. */
+    private static final int RECENT = 64;
+    /** Number of slots sampled by getUsedPercent. */
+    private static final int USAGE_SAMPLE = 1000;
+
+    /** The slots, as pairs of longs (key XOR entry, entry), divided into
+     *  stripes. */
+    private final AtomicLongArray[] _stripes;
+    /** Mask selecting the first slot of a pair within a stripe (divided
+     *  by two). */
+    private final int _slotMask;
+    /** Shift selecting the stripe from the high bits of a key. */
+    private final int _stripeShift;
+    /** The current generation. */
+    private final AtomicInteger _generation = new AtomicInteger();
+    /** Value of getStores() when the current generation started. */
+    private final AtomicLong _generationStart = new AtomicLong();
+    /** Numbers of probes, of probes that hit, and of stores. */
+    private final LongAdder _probes = new LongAdder(),
+        _hits = new LongAdder(), _stores = new LongAdder();
+}
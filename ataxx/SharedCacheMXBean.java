@@ -0,0 +1,26 @@
+package ataxx;
+
+/** The management interface of a SharedCache.
+ *  @author Carson Trinh
+ */
+public interface SharedCacheMXBean {
+
+    /** Return the memory occupied by the cache's entries (bytes). */
+    long getCapacityBytes();
+
+    /** Return the percentage of sampled slots holding entries from recent
+     *  searches. */
+    int getUsedPercent();
+
+    /** Return the number of probes. */
+    long getProbes();
+
+    /** Return the number of probes that found an entry. */
+    long getHits();
+
+    /** Return the percentage of probes that found an entry. */
+    double getHitRate();
+
+    /** Return the number of entries stored. */
+    long getStores();
+}
@@ -0,0 +1,482 @@
+package ataxx;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static ataxx.GameException.error;
+import static ataxx.Variant.*;
+
+/** An endgame tablebase giving the exact value of every position of a
+ *  Variant: whether the player to move wins, loses or draws with best
+ *  play by both sides, where a game ends as on a Board (except that the
+ *  limit on consecutive jumps is not counted) and games that never end
+ *  are drawn.
+ *
+ *  A tablebase is computed by retrograde analysis in passes over all
+ *  positions, on several threads.  Pass 0 scores the positions where the
+ *  game is over by their piece counts.  Pass P finds the positions with
+ *  a move to a position lost for the opponent in an earlier pass (won in
+ *  P), and those all of whose moves lead to positions won by the
+ *  opponent in earlier passes (lost in P).  When a pass finds nothing,
+ *  the remaining positions are drawn.  Because positions are described
+ *  relative to the player to move, one table serves both players.
+ *
+ *  The table is a file holding one byte per position after a short
+ *  header: the value in the top two bits and the pass that found it
+ *  (its depth) in the others.  A player who is winning reaches a lost
+ *  position of the least depth, and so wins in at most that many moves.
+ *  The file is memory-mapped both while it is computed and when it is
+ *  probed, so it need not fit in the heap; the 4x4 board takes 43 MB,
+ *  and a 5x5 board with five blocks 3.5 GB.
+ *
+ *  Usage: java ataxx.Tablebase --size=N [--block=CR ...] [--threads=N]
+ *  FILE computes the tablebase for the NxN board with blocks at the
+ *  squares CR (and their reflections) in FILE, and
+ *  java ataxx.Tablebase --probe FILE POSITION ... reports the values of
+ *  the given positions (in the notation of Board.setPosition, without a
+ *  jump count) and a best move from each.
+ *  @author Carson Trinh
+ */
+public class Tablebase implements AutoCloseable {
+
+    /** Values of positions, for the player to move. */
+    static final int UNKNOWN = 0, WIN = 1, LOSS = 2, DRAW = 3;
+
+    /** Largest depth that can be recorded. */
+    static final int MAX_DEPTH = 63;
+
+    /** Compute or probe tablebases according to ARGS, as described
+     *  above. */
+    public static void main(String[] args) throws IOException {
+        int size = 0, threads = Runtime.getRuntime().availableProcessors();
+        boolean probe = false;
+        List<String> blocks = new ArrayList<>();
+        List<String> operands = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--size=")) {
+                size = Integer.parseInt(arg.substring("--size=".length()));
+            } else if (arg.startsWith("--block=")) {
+                blocks.add(arg.substring("--block=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads =
+                    Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.equals("--probe")) {
+                probe = true;
+            } else if (arg.startsWith("--")) {
+                usage();
+            } else {
+                operands.add(arg);
+            }
+        }
+        try {
+            if (probe && operands.size() >= 2) {
+                try (Tablebase table =
+                     open(Paths.get(operands.get(0)))) {
+                    for (String position
+                             : operands.subList(1, operands.size())) {
+                        System.out.println(table.describe(position));
+                    }
+                }
+            } else if (!probe && size > 0 && operands.size() == 1) {
+                Variant variant = new Variant(size, blocks);
+                System.out.printf("%dx%d board, %d squares, %d positions%n",
+                                  size, size, variant.numSquares(),
+                                  variant.numPositions());
+                long start = System.nanoTime();
+                generate(variant, Paths.get(operands.get(0)), threads,
+                         (pass, wins, losses) ->
+                         System.out.printf("Pass %d: %d won, %d lost%n",
+                                           pass, wins, losses));
+                System.out.printf("Done in %.1f s.%n",
+                                  (System.nanoTime() - start) * 1e-9);
+            } else {
+                usage();
+            }
+        } catch (GameException excp) {
+            System.err.println(excp.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Receives progress reports from generate. */
+    interface Progress {
+        /** Report that pass PASS found WINS won and LOSSES lost
+         *  positions. */
+        void pass(int pass, long wins, long losses);
+    }
+
+    /** Compute the tablebase for VARIANT into FILE, replacing its
+     *  contents, on THREADS threads, reporting each pass to PROGRESS. */
+    static void generate(Variant variant, Path file, int threads,
+                         Progress progress) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file.toFile(),
+                                                         "rw")) {
+            out.setLength(0);
+            out.setLength(HEADER_SIZE + variant.numPositions());
+            Tablebase table = new Tablebase(variant, out.getChannel(),
+                                            FileChannel.MapMode.READ_WRITE);
+            for (int pass = 0; ; pass += 1) {
+                if (pass > MAX_DEPTH) {
+                    throw error("Positions deeper than %d moves.",
+                                MAX_DEPTH);
+                }
+                LongAdder wins = new LongAdder(), losses = new LongAdder();
+                table.runPass(pass, threads, wins, losses);
+                progress.pass(pass, wins.sum(), losses.sum());
+                if (pass > 0 && wins.sum() + losses.sum() == 0) {
+                    break;
+                }
+            }
+            for (long i = 0; i < variant.numPositions(); i += 1) {
+                if (table.entry(i) == UNKNOWN) {
+                    table.put(i, DRAW << DEPTH_BITS);
+                }
+            }
+            table.writeHeader();
+            table.force();
+        }
+    }
+
+    /** Return the tablebase in FILE, which stays open (and mapped) until
+     *  closed. */
+    static Tablebase open(Path file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file.toFile(), "r");
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            in.getChannel().read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE
+                || header.getInt() != MAGIC) {
+                throw error("Not a tablebase: %s.", file);
+            }
+            int size = header.getInt(), numBlocks = header.getInt();
+            List<String> blocks = new ArrayList<>();
+            for (int i = 0; i < numBlocks; i += 1) {
+                blocks.add("" + header.getChar() + header.getChar());
+            }
+            Tablebase table =
+                new Tablebase(new Variant(size, blocks), in.getChannel(),
+                              FileChannel.MapMode.READ_ONLY);
+            table._file = in;
+            return table;
+        } catch (IOException | RuntimeException excp) {
+            in.close();
+            throw excp;
+        }
+    }
+
+    /** Return the Variant whose positions I value. */
+    Variant variant() {
+        return _variant;
+    }
+
+    /** Return the value (WIN, LOSS or DRAW) for the player to move of the
+     *  position whose squares contain CONTENTS. */
+    int value(int[] contents) {
+        return entry(_variant.index(contents)) >>> DEPTH_BITS;
+    }
+
+    /** Return the depth of the position whose squares contain CONTENTS:
+     *  for a position that is won or lost, the number of moves in which
+     *  the game ends with best play (at most, for the winner). */
+    int depth(int[] contents) {
+        return entry(_variant.index(contents)) & DEPTH_MASK;
+    }
+
+    /** Return a best move in the position whose squares contain
+     *  CONTENTS: for a won position, one reaching a lost position of
+     *  least depth; for a lost one, one reaching a won position of
+     *  greatest depth; and for a drawn one, one reaching a drawn
+     *  position.  Returns a pass if the player to move must pass, and
+     *  null if the game is over. */
+    Move bestMove(int[] contents) {
+        if (terminal(contents) != UNKNOWN) {
+            return null;
+        }
+        int value = value(contents);
+        long opposite = _variant.opposite(_variant.index(contents));
+        Move best = Move.pass();
+        int bestRank = Integer.MIN_VALUE;
+        for (int k = 0; k < contents.length; k += 1) {
+            if (contents[k] != MINE) {
+                continue;
+            }
+            int[] targets = _variant.targets(k);
+            for (int j = 0; j < targets.length; j += 1) {
+                if (contents[targets[j]] != EMPTY) {
+                    continue;
+                }
+                int entry =
+                    entry(successor(contents, opposite, k, j));
+                int next = entry >>> DEPTH_BITS, depth = entry & DEPTH_MASK;
+                int rank;
+                if (value == WIN) {
+                    rank = next == LOSS ? -depth : Integer.MIN_VALUE;
+                } else if (value == LOSS) {
+                    rank = depth;
+                } else {
+                    rank = next == DRAW ? 0 : Integer.MIN_VALUE;
+                }
+                if (rank > bestRank) {
+                    bestRank = rank;
+                    best = _variant.move(k, targets[j]);
+                }
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _chunks = null;
+        if (_file != null) {
+            _file.close();
+        }
+    }
+
+    /** Return a description of the value of POSITION and a best move
+     *  from it. */
+    String describe(String position) {
+        PieceColor[] player = new PieceColor[1];
+        int[] contents = _variant.parse(position, player);
+        int value = value(contents);
+        Move move = bestMove(contents);
+        String result = value == WIN ? player[0] + " wins"
+            : value == LOSS ? player[0].opposite() + " wins" : "Draw";
+        return String.format("%s: %s%s%s", position, result,
+                             value == DRAW ? ""
+                             : " in " + depth(contents) + " moves",
+                             move == null ? "" : ", best move " + move);
+    }
+
+    /** A tablebase for VARIANT whose entries are in CHANNEL, mapped with
+     *  MODE. */
+    private Tablebase(Variant variant, FileChannel channel,
+                      FileChannel.MapMode mode) throws IOException {
+        _variant = variant;
+        long n = variant.numPositions();
+        if (channel.size() < HEADER_SIZE + n) {
+            throw error("Tablebase is truncated.");
+        }
+        _chunks = new MappedByteBuffer[(int) ((n + CHUNK_SIZE - 1)
+                                              / CHUNK_SIZE)];
+        for (int c = 0; c < _chunks.length; c += 1) {
+            long start = (long) c * CHUNK_SIZE;
+            _chunks[c] = channel.map(mode, HEADER_SIZE + start,
+                                     Math.min(CHUNK_SIZE, n - start));
+        }
+        _channel = channel;
+    }
+
+    /** Perform pass number PASS of the computation on THREADS threads,
+     *  adding the numbers of positions found won and lost to WINS and
+     *  LOSSES. */
+    private void runPass(int pass, int threads, LongAdder wins,
+                         LongAdder losses) {
+        AtomicLong next = new AtomicLong();
+        long n = _variant.numPositions();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t += 1) {
+            workers[t] = new Thread(() -> {
+                int[] contents = new int[_variant.numSquares()];
+                for (long lo = next.getAndAdd(BATCH_SIZE); lo < n;
+                     lo = next.getAndAdd(BATCH_SIZE)) {
+                    long hi = Math.min(n, lo + BATCH_SIZE);
+                    _variant.contents(lo, contents);
+                    for (long i = lo; i < hi; i += 1) {
+                        if (entry(i) == UNKNOWN) {
+                            int found = pass == 0 ? terminal(contents)
+                                : resolve(contents, i, pass);
+                            if (found != UNKNOWN) {
+                                put(i, found << DEPTH_BITS | pass);
+                                (found == LOSS ? losses : wins).increment();
+                            }
+                        }
+                        increment(contents);
+                    }
+                }
+            }, "tablebase-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException excp) {
+                Thread.currentThread().interrupt();
+                throw error("Interrupted.");
+            }
+        }
+    }
+
+    /** Return the value of the position with index INDEX, whose squares
+     *  contain CONTENTS, if it can be found in pass PASS from those of
+     *  positions found in earlier passes, and otherwise UNKNOWN. */
+    private int resolve(int[] contents, long index, int pass) {
+        long opposite = _variant.opposite(index);
+        boolean moved = false, allWon = true;
+        for (int k = 0; k < contents.length; k += 1) {
+            if (contents[k] != MINE) {
+                continue;
+            }
+            int[] targets = _variant.targets(k);
+            for (int j = 0; j < targets.length; j += 1) {
+                if (contents[targets[j]] != EMPTY) {
+                    continue;
+                }
+                moved = true;
+                int next = earlier(successor(contents, opposite, k, j),
+                                   pass);
+                if (next == LOSS) {
+                    return WIN;
+                }
+                allWon &= next == WIN;
+            }
+        }
+        if (!moved) {
+            int next = earlier(opposite, pass);
+            if (next == LOSS) {
+                return WIN;
+            }
+            allWon = next == WIN;
+        }
+        return allWon ? LOSS : UNKNOWN;
+    }
+
+    /** Return the value of the position with index INDEX if it was found
+     *  in a pass before PASS, and otherwise UNKNOWN. */
+    private int earlier(long index, int pass) {
+        int entry = entry(index);
+        return (entry & DEPTH_MASK) < pass ? entry >>> DEPTH_BITS : UNKNOWN;
+    }
+
+    /** Return the index of the position after moving the piece on square
+     *  K to its target #J, in the position whose squares contain CONTENTS
+     *  and whose index from the opponent's side is OPPOSITE. */
+    private long successor(int[] contents, long opposite, int k, int j) {
+        int to = _variant.targets(k)[j];
+        long result = opposite + THEIRS * _variant.power(to);
+        if (j >= _variant.numAdjacent(k)) {
+            result -= THEIRS * _variant.power(k);
+        }
+        for (int u : _variant.adjacent(to)) {
+            if (contents[u] == THEIRS) {
+                result += _variant.power(u);
+            }
+        }
+        return result;
+    }
+
+    /** Return the value of the position whose squares contain CONTENTS
+     *  if the game is over there, and otherwise UNKNOWN. */
+    private int terminal(int[] contents) {
+        int mine = 0, theirs = 0;
+        for (int v : contents) {
+            mine += v == MINE ? 1 : 0;
+            theirs += v == THEIRS ? 1 : 0;
+        }
+        if (mine > 0 && theirs > 0
+            && (canMove(contents, MINE) || canMove(contents, THEIRS))) {
+            return UNKNOWN;
+        }
+        return mine > theirs ? WIN : mine < theirs ? LOSS : DRAW;
+    }
+
+    /** Return true iff the pieces WHO on the squares containing CONTENTS
+     *  have a move. */
+    private boolean canMove(int[] contents, int who) {
+        for (int k = 0; k < contents.length; k += 1) {
+            if (contents[k] == who) {
+                for (int to : _variant.targets(k)) {
+                    if (contents[to] == EMPTY) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Change CONTENTS to those of the position with the next index. */
+    private static void increment(int[] contents) {
+        int k;
+        for (k = 0; k < contents.length && contents[k] == THEIRS; k += 1) {
+            contents[k] = EMPTY;
+        }
+        if (k < contents.length) {
+            contents[k] += 1;
+        }
+    }
+
+    /** Return the entry for position INDEX. */
+    private int entry(long index) {
+        return _chunks[(int) (index / CHUNK_SIZE)]
+            .get((int) (index % CHUNK_SIZE)) & 0xff;
+    }
+
+    /** Set the entry for position INDEX to ENTRY. */
+    private void put(long index, int entry) {
+        _chunks[(int) (index / CHUNK_SIZE)].put((int) (index % CHUNK_SIZE),
+                                                (byte) entry);
+    }
+
+    /** Write my header, describing my Variant. */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(_variant.size())
+            .putInt(_variant.blocks().size());
+        for (String block : _variant.blocks()) {
+            header.putChar(block.charAt(0)).putChar(block.charAt(1));
+        }
+        header.position(0);
+        _channel.write(header, 0);
+    }
+
+    /** Write my entries to my file. */
+    private void force() throws IOException {
+        for (MappedByteBuffer chunk : _chunks) {
+            chunk.force();
+        }
+        _channel.force(true);
+    }
+
+    /** Print a usage message and exit. */
+    private static void usage() {
+        System.err.println("Usage: java ataxx.Tablebase --size=N "
+                           + "[--block=CR ...] [--threads=N] FILE");
+        System.err.println("       java ataxx.Tablebase --probe FILE "
+                           + "POSITION ...");
+        System.exit(1);
+    }
+
+    /** Identifies tablebase files. */
+    private static final int MAGIC = 0x41544231;
+    /** Size of the header preceding the entries: magic number, board
+     *  size, number of blocks, and the blocks, as pairs of chars. */
+    private static final int HEADER_SIZE = 64;
+    /** Number of bits of an entry holding the depth. */
+    private static final int DEPTH_BITS = 6;
+    /** Mask for the depth in an entry. */
+    private static final int DEPTH_MASK = (1 << DEPTH_BITS) - 1;
+    /** Number of entries in each mapped part of the file. */
+    private static final long CHUNK_SIZE = 1 << 30;
+    /** Number of consecutive positions a thread takes at a time. */
+    private static final long BATCH_SIZE = 1 << 16;
+
+    /** The variant. */
+    private final Variant _variant;
+    /** The file holding my entries. */
+    private final FileChannel _channel;
+    /** My entries, in parts of at most CHUNK_SIZE. */
+    private MappedByteBuffer[] _chunks;
+    /** The file I opened, to be closed with me, if any. */
+    private RandomAccessFile _file;
+}
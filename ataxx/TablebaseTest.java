@@ -0,0 +1,145 @@
+package ataxx;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static ataxx.Variant.*;
+import static ataxx.Tablebase.*;
+
+/** Tests of tablebases.
+ *  @author Carson Trinh
+ */
+public class TablebaseTest {
+
+    /** Return the position after moving from square K0 to square K1 in
+     *  the position whose squares contain CONTENTS in VARIANT, relative
+     *  to the opponent. */
+    private static int[] after(Variant variant, int[] contents,
+                               int k0, int k1) {
+        int[] result = new int[contents.length];
+        for (int k = 0; k < contents.length; k += 1) {
+            result[k] = contents[k] == EMPTY ? EMPTY : 3 - contents[k];
+        }
+        if (k0 >= 0) {
+            result[k1] = THEIRS;
+            if (!variant.move(k0, k1).isExtend()) {
+                result[k0] = EMPTY;
+            }
+            for (int u : variant.adjacent(k1)) {
+                if (result[u] == MINE) {
+                    result[u] = THEIRS;
+                }
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testVariant() {
+        Variant variant = new Variant(5, List.of("c1", "b2"));
+        assertEquals(25 - 6, variant.numSquares());
+        String initial = variant.initialPosition();
+        assertEquals("r-X-b/-X-X-/-----/-X-X-/b-X-r r", initial);
+        PieceColor[] player = new PieceColor[1];
+        int[] contents = variant.parse(initial, player);
+        assertEquals(PieceColor.RED, player[0]);
+        long index = variant.index(contents);
+        int[] back = new int[contents.length];
+        variant.contents(index, back);
+        assertArrayEquals(contents, back);
+        variant.contents(variant.opposite(index), back);
+        assertEquals(THEIRS, contents[0]);
+        assertEquals(MINE, back[0]);
+        try {
+            new Variant(5, List.of("a1"));
+            fail("blocked a corner");
+        } catch (GameException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testConsistency() throws IOException {
+        Path file = Files.createTempFile("ataxx", ".tb");
+        try {
+            Variant variant = new Variant(3, List.of());
+            generate(variant, file, 2, (pass, wins, losses) -> { });
+            try (Tablebase table = open(file)) {
+                int[] contents = new int[variant.numSquares()];
+                for (long i = 0; i < variant.numPositions(); i += 1) {
+                    variant.contents(i, contents);
+                    checkPosition(table, contents);
+                }
+                int[] initial =
+                    variant.parse(variant.initialPosition(),
+                                  new PieceColor[1]);
+                assertEquals(WIN, table.value(initial));
+                assertEquals(1, table.depth(initial));
+                assertEquals(Move.move('c', '1', 'b', '2'),
+                             table.bestMove(initial));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /** Check that the value of the position whose squares contain
+     *  CONTENTS in TABLE agrees with those of its successors. */
+    private static void checkPosition(Tablebase table, int[] contents) {
+        Variant variant = table.variant();
+        int value = table.value(contents), depth = table.depth(contents);
+        int mine = 0, theirs = 0;
+        boolean anyLoss = false, allWins = true, anyDraw = false;
+        int moves = 0;
+        for (int k0 = 0; k0 < contents.length; k0 += 1) {
+            mine += contents[k0] == MINE ? 1 : 0;
+            theirs += contents[k0] == THEIRS ? 1 : 0;
+            if (contents[k0] != MINE) {
+                continue;
+            }
+            for (int k1 : variant.targets(k0)) {
+                if (contents[k1] == EMPTY) {
+                    int[] next = after(variant, contents, k0, k1);
+                    int v = table.value(next);
+                    anyLoss |= v == LOSS && table.depth(next) < depth;
+                    allWins &= v == WIN && table.depth(next) < depth;
+                    anyDraw |= v == DRAW;
+                    moves += 1;
+                }
+            }
+        }
+        Move best = table.bestMove(contents);
+        if (best == null) {
+            assertTrue(mine == 0 || theirs == 0 || moves == 0);
+            assertEquals(mine > theirs ? WIN : mine < theirs ? LOSS : DRAW,
+                         value);
+            assertEquals(0, depth);
+            return;
+        }
+        if (moves == 0) {
+            assertTrue(best.isPass());
+            int[] next = after(variant, contents, -1, -1);
+            int v = table.value(next);
+            anyLoss = v == LOSS;
+            allWins = v == WIN;
+            anyDraw = v == DRAW;
+        }
+        switch (value) {
+        case WIN:
+            assertTrue("won position without a losing reply", anyLoss);
+            break;
+        case LOSS:
+            assertTrue("lost position with an escape", allWins);
+            break;
+        default:
+            assertTrue("drawn position without a drawing reply", anyDraw);
+            break;
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package ataxx;
+
+import java.util.Arrays;
+
+/** A fixed-size table of search results indexed by position key.  Each
+ *  entry is packed into a single long stored alongside its key, so that
+ *  probing and storing never allocate, and one table can be reused from
+ *  one search (or position) to the next.
+ *  @author Carson Trinh
+ */
+class TranspositionTable {
+
+    /** Kinds of stored value: exact, a lower bound (the search failed
+     *  high), or an upper bound (the search failed low). */
+    static final int EXACT = 0, LOWER = 1, UPPER = 2;
+
+    /** A new, empty table with 2**LOGSIZE entries. */
+    TranspositionTable(int logSize) {
+        _keys = new long[1 << logSize];
+        _entries = new long[1 << logSize];
+        _mask = (1 << logSize) - 1;
+    }
+
+    /** Return the packed entry stored for KEY, or 0 if there is none. */
+    long probe(long key) {
+        int i = (int) key & _mask;
+        return _keys[i] == key ? _entries[i] : 0;
+    }
+
+    /** Record that the position with KEY has VALUE of kind BOUND when
+     *  searched to DEPTH, with best move MOVE (possibly null).  Replaces
+     *  whatever occupies the slot unless it is a deeper result for the
+     *  same position. */
+    void store(long key, int depth, int value, int bound, Move move) {
+        int i = (int) key & _mask;
+        if (_keys[i] == key && depth(_entries[i]) > depth) {
+            return;
+        }
+        _keys[i] = key;
+        _entries[i] = pack(value, depth, bound, move);
+    }
+
+    /** Remove all entries. */
+    void clear() {
+        Arrays.fill(_keys, 0);
+        Arrays.fill(_entries, 0);
+    }
+
+    /** Return my number of entries. */
+    int size() {
+        return _entries.length;
+    }
+
+    /** Return an entry holding VALUE, DEPTH, BOUND and MOVE.  The result
+     *  is never 0. */
+    static long pack(int value, int depth, int bound, Move move) {
+        return (value & 0xFFFFFFFFL)
+            | ((long) depth & 0xFF) << 32
+            | ((long) bound) << 40
+            | ((long) (move == null ? 0 : move.id())) << 42
+            | (move == null ? 0 : 1L << 62)
+            | 1L << 63;
+    }
+
+    /** Return the value recorded in ENTRY. */
+    static int value(long entry) {
+        return (int) entry;
+    }
+
+    /** Return the search depth recorded in ENTRY. */
+    static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    /** Return the kind of value (EXACT, LOWER, UPPER) recorded in ENTRY. */
+    static int bound(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /** Return the best move recorded in ENTRY, or null if none was. */
+    static Move move(long entry) {
+        if ((entry & 1L << 62) == 0) {
+            return null;
+        }
+        return Move.fromId((int) (entry >>> 42) & 0xFFF);
+    }
+
+    /** Position keys, indexed by the low-order bits of the key. */
+    private final long[] _keys;
+    /** Packed entries corresponding to _keys. */
+    private final long[] _entries;
+    /** Mask selecting a slot from a key. */
+    private final int _mask;
+}
@@ -11,7 +11,10 @@ public class UnitTest {
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
         textui.runClasses(CommandTest.class, MoveTest.class,
-                          BoardTest.class);
+                          BoardTest.class, GameTest.class,
+                          ReporterTest.class, GameRecordTest.class,
+                          SearcherTest.class, MetricsTest.class,
+                          TablebaseTest.class, ProofSolverTest.class);
     }
 
 }
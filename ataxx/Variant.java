@@ -0,0 +1,265 @@
+package ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ataxx.GameException.error;
+
+/** A square Ataxx board smaller than the standard one, with blocks placed
+ *  in symmetric groups as by Board.setBlock, on which the usual rules
+ *  apply.  Its unblocked squares are numbered 0 .. numSquares() - 1 in
+ *  row-major order from a1.
+ *
+ *  Positions are described relative to the player to move: the contents
+ *  of square K are MINE, THEIRS or EMPTY, and the position's index is
+ *  the sum of contents[K] * 3**K, so that the positions with either
+ *  player to move are numbered 0 .. numPositions() - 1.  The position
+ *  after a move is described relative to the opponent, who moves next.
+ *  @author Carson Trinh
+ */
+class Variant {
+
+    /** Contents of a square. */
+    static final int EMPTY = 0, MINE = 1, THEIRS = 2;
+
+    /** Largest size of a variant. */
+    static final int MAX_SIZE = Board.SIDE;
+
+    /** The SIZE x SIZE board with blocks at the squares in BLOCKS and
+     *  their reflections across the middle row and column. */
+    Variant(int size, List<String> blocks) {
+        if (size < 2 || size > MAX_SIZE) {
+            throw error("Board size must be between 2 and %d.", MAX_SIZE);
+        }
+        _size = size;
+        boolean[] blocked = new boolean[size * size];
+        for (String block : blocks) {
+            if (block.length() != 2) {
+                throw error("Bad block: %s.", block);
+            }
+            int c = block.charAt(0) - 'a', r = block.charAt(1) - '1';
+            if (c < 0 || c >= size || r < 0 || r >= size) {
+                throw error("Bad block: %s.", block);
+            }
+            int cP = size - 1 - c, rP = size - 1 - r;
+            for (int cell : new int[] {
+                    r * size + c, rP * size + c, r * size + cP,
+                    rP * size + cP }) {
+                if (isCorner(cell)) {
+                    throw error("Cannot block a corner: %s.", block);
+                }
+                blocked[cell] = true;
+            }
+        }
+        _blocks = new ArrayList<>(blocks);
+
+        _square = new int[size * size];
+        int n = 0;
+        for (int cell = 0; cell < size * size; cell += 1) {
+            _square[cell] = blocked[cell] ? -1 : n;
+            n += blocked[cell] ? 0 : 1;
+        }
+        if (n > MAX_SQUARES) {
+            throw error("Too many squares: %d (at most %d).", n,
+                        MAX_SQUARES);
+        }
+        _cells = new int[n];
+        _powers = new long[n];
+        _adjacent = new int[n][];
+        _targets = new int[n][];
+        for (int cell = 0, k = 0; cell < size * size; cell += 1) {
+            if (_square[cell] >= 0) {
+                _cells[k] = cell;
+                _powers[k] = k == 0 ? 1 : 3 * _powers[k - 1];
+                k += 1;
+            }
+        }
+        _numPositions = 3 * _powers[n - 1];
+        for (int k = 0; k < n; k += 1) {
+            _adjacent[k] = within(k, 1, 1);
+            int[] near = _adjacent[k], far = within(k, 2, 2);
+            _targets[k] = new int[near.length + far.length];
+            System.arraycopy(near, 0, _targets[k], 0, near.length);
+            System.arraycopy(far, 0, _targets[k], near.length, far.length);
+        }
+    }
+
+    /** Return the number of squares on a side. */
+    int size() {
+        return _size;
+    }
+
+    /** Return the squares given as blocks (before reflection). */
+    List<String> blocks() {
+        return _blocks;
+    }
+
+    /** Return the number of unblocked squares. */
+    int numSquares() {
+        return _cells.length;
+    }
+
+    /** Return the number of positions with a given player to move. */
+    long numPositions() {
+        return _numPositions;
+    }
+
+    /** Return 3 ** K, the weight of square K in an index. */
+    long power(int k) {
+        return _powers[k];
+    }
+
+    /** Return the squares adjacent to square K. */
+    int[] adjacent(int k) {
+        return _adjacent[k];
+    }
+
+    /** Return the squares to which a piece may move from square K: the
+     *  adjacent squares (extends) followed by those two away (jumps). */
+    int[] targets(int k) {
+        return _targets[k];
+    }
+
+    /** Return the number of adjacent squares at the start of
+     *  targets(K). */
+    int numAdjacent(int k) {
+        return _adjacent[k].length;
+    }
+
+    /** Return the index of the position whose squares contain
+     *  CONTENTS. */
+    long index(int[] contents) {
+        long index = 0;
+        for (int k = contents.length - 1; k >= 0; k -= 1) {
+            index = 3 * index + contents[k];
+        }
+        return index;
+    }
+
+    /** Fill CONTENTS with the contents of position INDEX. */
+    void contents(long index, int[] contents) {
+        for (int k = 0; k < contents.length; k += 1) {
+            contents[k] = (int) (index % 3);
+            index /= 3;
+        }
+    }
+
+    /** Return the index of the position with the contents of position
+     *  INDEX seen from the other player, with MINE and THEIRS
+     *  exchanged. */
+    long opposite(long index) {
+        long result = 0;
+        for (int k = 0; k < _cells.length; k += 1) {
+            int v = (int) (index % 3);
+            result += v == EMPTY ? 0 : (3 - v) * _powers[k];
+            index /= 3;
+        }
+        return result;
+    }
+
+    /** Return the position described by POSITION, in the notation of
+     *  Board.setPosition without a jump count (and with SIZE rows of
+     *  SIZE squares), as its contents relative to the player to move,
+     *  who is stored in PLAYER[0]. */
+    int[] parse(String position, PieceColor[] player) {
+        String[] parts = position.trim().split("\\s+");
+        String[] rows = parts[0].split("/");
+        if (parts.length < 2 || rows.length != _size
+            || !parts[1].matches("[rb]")) {
+            throw error("Bad position: %s.", position);
+        }
+        player[0] = parts[1].equals("r") ? PieceColor.RED : PieceColor.BLUE;
+        char mine = parts[1].charAt(0), theirs = mine == 'r' ? 'b' : 'r';
+        int[] contents = new int[_cells.length];
+        for (int r = 0; r < _size; r += 1) {
+            String row = rows[_size - 1 - r];
+            if (row.length() != _size) {
+                throw error("Bad position: %s.", position);
+            }
+            for (int c = 0; c < _size; c += 1) {
+                char v = row.charAt(c);
+                int k = _square[r * _size + c];
+                if ((k < 0) != (v == 'X')) {
+                    throw error("Blocks do not match the board: %s.",
+                                position);
+                } else if (v == mine) {
+                    contents[k] = MINE;
+                } else if (v == theirs) {
+                    contents[k] = THEIRS;
+                } else if (v != '-' && v != 'X') {
+                    throw error("Bad position: %s.", position);
+                }
+            }
+        }
+        return contents;
+    }
+
+    /** Return the initial position, with Red to move. */
+    String initialPosition() {
+        StringBuilder out = new StringBuilder();
+        for (int r = _size - 1; r >= 0; r -= 1) {
+            for (int c = 0; c < _size; c += 1) {
+                int cell = r * _size + c;
+                boolean top = r == _size - 1, left = c == 0;
+                out.append(!isCorner(cell) ? (_square[cell] < 0 ? 'X' : '-')
+                           : top == left ? 'r' : 'b');
+            }
+            out.append(r == 0 ? ' ' : '/');
+        }
+        return out.append('r').toString();
+    }
+
+    /** Return the Move from square K0 to square K1. */
+    Move move(int k0, int k1) {
+        return Move.move((char) ('a' + _cells[k0] % _size),
+                         (char) ('1' + _cells[k0] / _size),
+                         (char) ('a' + _cells[k1] % _size),
+                         (char) ('1' + _cells[k1] / _size));
+    }
+
+    /** Return the squares other than K whose column and row differ from
+     *  K's by at most MAX, and by at least MIN in one of them. */
+    private int[] within(int k, int min, int max) {
+        int c0 = _cells[k] % _size, r0 = _cells[k] / _size;
+        List<Integer> result = new ArrayList<>();
+        for (int r = Math.max(0, r0 - max);
+             r <= Math.min(_size - 1, r0 + max); r += 1) {
+            for (int c = Math.max(0, c0 - max);
+                 c <= Math.min(_size - 1, c0 + max); c += 1) {
+                int dist = Math.max(Math.abs(c - c0), Math.abs(r - r0));
+                if (dist >= min && _square[r * _size + c] >= 0) {
+                    result.add(_square[r * _size + c]);
+                }
+            }
+        }
+        return result.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Return true iff CELL (row * size + column) is a corner. */
+    private boolean isCorner(int cell) {
+        int c = cell % _size, r = cell / _size;
+        return (c == 0 || c == _size - 1) && (r == 0 || r == _size - 1);
+    }
+
+    /** Largest number of unblocked squares, that of the 5x5 board
+     *  without blocks.  Tables for more are impractically large. */
+    static final int MAX_SQUARES = 25;
+
+    /** Number of squares on a side. */
+    private final int _size;
+    /** The blocks given. */
+    private final List<String> _blocks;
+    /** Square number of each cell (row * size + column), or -1 if the
+     *  cell is blocked. */
+    private final int[] _square;
+    /** Cell of each square. */
+    private final int[] _cells;
+    /** 3 ** K for each square K. */
+    private final long[] _powers;
+    /** Squares adjacent to each square. */
+    private final int[][] _adjacent;
+    /** Squares one or two away from each square, adjacent ones first. */
+    private final int[][] _targets;
+    /** Number of positions. */
+    private final long _numPositions;
+}